@@ -10,18 +10,58 @@ extern "C" {
 /*
  * Class:     org_opensearch_knn_reorder_FaissIndexService
  * Method:    buildAndWriteIndex
- * Signature: (JII[ILjava/lang/String;Ljava/lang/String;IILjava/lang/String;)V
+ * Signature: (JII[ILjava/lang/String;Ljava/lang/String;IILjava/lang/String;I)V
  */
 JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_buildAndWriteIndex
-  (JNIEnv *, jclass, jlong, jint, jint, jintArray, jstring, jstring, jint, jint, jstring);
+  (JNIEnv *, jclass, jlong, jint, jint, jintArray, jstring, jstring, jint, jint, jstring, jint);
 
 /*
  * Class:     org_opensearch_knn_reorder_FaissIndexService
  * Method:    buildAndWriteBinaryIndex
- * Signature: ([BII[IIIILjava/lang/String;)V
+ * Signature: (JJII[IIIILjava/lang/String;I)V
  */
 JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_buildAndWriteBinaryIndex
-  (JNIEnv *, jclass, jbyteArray, jint, jint, jintArray, jint, jint, jint, jstring);
+  (JNIEnv *, jclass, jlong, jlong, jint, jint, jintArray, jint, jint, jint, jstring, jint);
+
+/*
+ * Class:     org_opensearch_knn_reorder_FaissIndexService
+ * Method:    setThreads
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_setThreads
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     org_opensearch_knn_reorder_FaissIndexService
+ * Method:    getThreads
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_getThreads
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     org_opensearch_knn_reorder_FaissIndexService
+ * Method:    allocateCodes
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_allocateCodes
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_opensearch_knn_reorder_FaissIndexService
+ * Method:    codesView
+ * Signature: (JJI)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_codesView
+  (JNIEnv *, jclass, jlong, jlong, jint);
+
+/*
+ * Class:     org_opensearch_knn_reorder_FaissIndexService
+ * Method:    freeCodes
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_freeCodes
+  (JNIEnv *, jclass, jlong);
 
 #ifdef __cplusplus
 }
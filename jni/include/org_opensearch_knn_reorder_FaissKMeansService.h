@@ -13,9 +13,21 @@ JNIEXPORT jintArray JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_k
 JNIEXPORT jobject JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_kmeansWithDistances
   (JNIEnv *, jclass, jlong, jint, jint, jint, jint, jint);
 
+JNIEXPORT jobject JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_kmeansWithDistancesApprox
+  (JNIEnv *, jclass, jlong, jint, jint, jint, jint, jint, jint, jint, jint);
+
+JNIEXPORT jfloatArray JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_trainCentroids
+  (JNIEnv *, jclass, jlong, jint, jint, jint, jint, jint);
+
 JNIEXPORT jlong JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_storeVectors
   (JNIEnv *, jclass, jobjectArray);
 
+JNIEXPORT jlong JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_allocateVectors
+  (JNIEnv *, jclass, jlong, jint);
+
+JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_copyVectors
+  (JNIEnv *, jclass, jlong, jlong, jfloatArray, jint, jint);
+
 JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_freeVectors
   (JNIEnv *, jclass, jlong);
 
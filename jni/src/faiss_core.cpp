@@ -13,8 +13,38 @@
 #include <faiss/index_factory.h>
 #include <faiss/index_io.h>
 
+#include <algorithm>
+#include <omp.h>
+
 namespace faiss_core {
 
+namespace {
+
+// Applies a per-call OpenMP thread count and restores the caller's setting when the call returns
+class ScopedThreads {
+public:
+    explicit ScopedThreads(int numThreads) : previous_(omp_get_max_threads()), active_(numThreads > 0) {
+        if (active_) omp_set_num_threads(numThreads);
+    }
+    ~ScopedThreads() {
+        if (active_) omp_set_num_threads(previous_);
+    }
+
+private:
+    int previous_;
+    bool active_;
+};
+
+} // namespace
+
+void setThreads(int numThreads) {
+    omp_set_num_threads(numThreads);
+}
+
+int getThreads() {
+    return omp_get_max_threads();
+}
+
 std::vector<int> kmeans(float* vectors, int numVectors, int dimension,
                         int numClusters, int numIterations) {
     faiss::ClusteringParameters cp;
@@ -58,11 +88,64 @@ KMeansResult kmeansWithDistances(float* vectors, int numVectors, int dimension,
     return result;
 }
 
+KMeansResult kmeansWithDistancesApprox(float* vectors, int numVectors, int dimension,
+                                       int numClusters, int numIterations, MetricType metric,
+                                       int hnswM, int efSearch, int batchSize) {
+    faiss::ClusteringParameters cp;
+    cp.niter = numIterations;
+    cp.verbose = false;
+
+    faiss::Clustering clustering(dimension, numClusters, cp);
+
+    // Clustering rebuilds the index from the current centroids every iteration,
+    // so each pass costs O(k log k) to build plus O(n log k) to search.
+    faiss::MetricType faissMetric = (metric == INNER_PRODUCT)
+        ? faiss::METRIC_INNER_PRODUCT : faiss::METRIC_L2;
+    faiss::IndexHNSWFlat index(dimension, hnswM, faissMetric);
+    index.hnsw.efSearch = efSearch;
+
+    clustering.train(numVectors, vectors, index);
+
+    // The index holds the final centroids; assign in batches to bound the label buffer
+    KMeansResult result;
+    result.assignments.resize(numVectors);
+    result.distances.resize(numVectors);
+    std::vector<faiss::idx_t> labels(std::min(batchSize, numVectors));
+    for (int64_t from = 0; from < numVectors; from += batchSize) {
+        int64_t count = std::min<int64_t>(batchSize, numVectors - from);
+        index.search(count, vectors + from * dimension, 1,
+                     result.distances.data() + from, labels.data());
+        for (int64_t i = 0; i < count; i++) {
+            result.assignments[from + i] = static_cast<int>(labels[i]);
+        }
+    }
+    return result;
+}
+
+std::vector<float> trainCentroids(float* vectors, int numVectors, int dimension,
+                                  int numClusters, int numIterations, MetricType metric) {
+    faiss::ClusteringParameters cp;
+    cp.niter = numIterations;
+    cp.verbose = false;
+
+    faiss::Clustering clustering(dimension, numClusters, cp);
+
+    faiss::Index* index = (metric == INNER_PRODUCT)
+        ? static_cast<faiss::Index*>(new faiss::IndexFlatIP(dimension))
+        : static_cast<faiss::Index*>(new faiss::IndexFlatL2(dimension));
+
+    clustering.train(numVectors, vectors, *index);
+    delete index;
+
+    return clustering.centroids;
+}
+
 void buildAndWriteIndex(float* vectors, int numVectors, int dimension,
                         const std::vector<int64_t>& ids,
                         const std::string& indexDescription,
                         MetricType metric, int efConstruction, int efSearch,
-                        const std::string& outputPath) {
+                        const std::string& outputPath, int numThreads) {
+    ScopedThreads threads(numThreads);
     faiss::MetricType faissMetric = (metric == INNER_PRODUCT) 
         ? faiss::METRIC_INNER_PRODUCT : faiss::METRIC_L2;
     
@@ -72,9 +155,14 @@ void buildAndWriteIndex(float* vectors, int numVectors, int dimension,
         hnswIndex->hnsw.efConstruction = efConstruction;
         hnswIndex->hnsw.efSearch = efSearch;
     }
-    
+
+    // SQ8/SQ6/SQ4 learn per-dimension ranges; Flat, SQfp16 and SQbf16 are trained from the start
+    if (!index->is_trained) {
+        index->train(numVectors, vectors);
+    }
+
     std::vector<faiss::idx_t> faissIds(ids.begin(), ids.end());
-    
+
     faiss::IndexIDMap idMap(index);
     idMap.own_fields = true;
     idMap.add_with_ids(numVectors, vectors, faissIds.data());
@@ -85,7 +173,8 @@ void buildAndWriteIndex(float* vectors, int numVectors, int dimension,
 void buildAndWriteBinaryIndex(uint8_t* vectors, int numVectors, int dimension,
                               const std::vector<int64_t>& ids,
                               int hnswM, int efConstruction, int efSearch,
-                              const std::string& outputPath) {
+                              const std::string& outputPath, int numThreads) {
+    ScopedThreads threads(numThreads);
     // dimension is in bits for binary index
     faiss::IndexBinaryHNSW* index = new faiss::IndexBinaryHNSW(dimension, hnswM);
     index->hnsw.efConstruction = efConstruction;
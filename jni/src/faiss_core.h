@@ -28,17 +28,36 @@ std::vector<int> kmeans(float* vectors, int numVectors, int dimension,
 KMeansResult kmeansWithDistances(float* vectors, int numVectors, int dimension,
                                   int numClusters, int numIterations, MetricType metric);
 
-// Build HNSW index and write to file
+// Run k-means with distances, assigning vectors through an HNSW index over the centroids
+// instead of a flat index. efSearch trades assignment recall for speed; the final pass
+// searches batchSize vectors at a time.
+KMeansResult kmeansWithDistancesApprox(float* vectors, int numVectors, int dimension,
+                                       int numClusters, int numIterations, MetricType metric,
+                                       int hnswM, int efSearch, int batchSize);
+
+// Train k-means and return the centroids (numClusters * dimension floats, row-major)
+std::vector<float> trainCentroids(float* vectors, int numVectors, int dimension,
+                                  int numClusters, int numIterations, MetricType metric);
+
+// Set the number of OpenMP threads for later FAISS calls made from the calling thread
+// (OpenMP keeps this setting per thread)
+void setThreads(int numThreads);
+
+// Number of OpenMP threads FAISS calls from the calling thread will use
+int getThreads();
+
+// Build HNSW index and write to file. numThreads > 0 overrides the OpenMP thread count for
+// this build only; 0 keeps the calling thread's setting.
 void buildAndWriteIndex(float* vectors, int numVectors, int dimension,
                         const std::vector<int64_t>& ids,
                         const std::string& indexDescription,
                         MetricType metric, int efConstruction, int efSearch,
-                        const std::string& outputPath);
+                        const std::string& outputPath, int numThreads = 0);
 
-// Build binary HNSW index and write to file
+// Build binary HNSW index and write to file, with numThreads as for buildAndWriteIndex
 void buildAndWriteBinaryIndex(uint8_t* vectors, int numVectors, int dimension,
                               const std::vector<int64_t>& ids,
                               int hnswM, int efConstruction, int efSearch,
-                              const std::string& outputPath);
+                              const std::string& outputPath, int numThreads = 0);
 
 } // namespace faiss_core
@@ -49,6 +49,44 @@ JNIEXPORT jobject JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_kme
     return env->NewObject(resultClass, constructor, assignmentsArray, distancesArray);
 }
 
+JNIEXPORT jobject JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_kmeansWithDistancesApprox(
+    JNIEnv* env, jclass cls,
+    jlong vectorsAddress, jint numVectors, jint dimension, jint numClusters, jint numIterations, jint metricType,
+    jint hnswM, jint efSearch, jint batchSize)
+{
+    float* vectors = reinterpret_cast<float*>(vectorsAddress);
+
+    faiss_core::KMeansResult result = faiss_core::kmeansWithDistancesApprox(
+        vectors, numVectors, dimension, numClusters, numIterations,
+        static_cast<faiss_core::MetricType>(metricType), hnswM, efSearch, batchSize);
+
+    jclass resultClass = env->FindClass("org/opensearch/knn/reorder/KMeansResult");
+    jmethodID constructor = env->GetMethodID(resultClass, "<init>", "([I[F)V");
+
+    jintArray assignmentsArray = env->NewIntArray(numVectors);
+    env->SetIntArrayRegion(assignmentsArray, 0, numVectors, result.assignments.data());
+
+    jfloatArray distancesArray = env->NewFloatArray(numVectors);
+    env->SetFloatArrayRegion(distancesArray, 0, numVectors, result.distances.data());
+
+    return env->NewObject(resultClass, constructor, assignmentsArray, distancesArray);
+}
+
+JNIEXPORT jfloatArray JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_trainCentroids(
+    JNIEnv* env, jclass cls,
+    jlong vectorsAddress, jint numVectors, jint dimension, jint numClusters, jint numIterations, jint metricType)
+{
+    float* vectors = reinterpret_cast<float*>(vectorsAddress);
+
+    std::vector<float> centroids = faiss_core::trainCentroids(
+        vectors, numVectors, dimension, numClusters, numIterations,
+        static_cast<faiss_core::MetricType>(metricType));
+
+    jfloatArray result = env->NewFloatArray(static_cast<jsize>(centroids.size()));
+    env->SetFloatArrayRegion(result, 0, static_cast<jsize>(centroids.size()), centroids.data());
+    return result;
+}
+
 JNIEXPORT jlong JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_storeVectors(
     JNIEnv* env, jclass cls, jobjectArray vectors)
 {
@@ -67,6 +105,22 @@ JNIEXPORT jlong JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_store
     return reinterpret_cast<jlong>(data);
 }
 
+JNIEXPORT jlong JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_allocateVectors(
+    JNIEnv* env, jclass cls, jlong numVectors, jint dimension)
+{
+    if (numVectors <= 0) return 0;
+    // Same allocator as storeVectors so freeVectors releases either
+    float* data = new float[static_cast<size_t>(numVectors) * dimension];
+    return reinterpret_cast<jlong>(data);
+}
+
+JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_copyVectors(
+    JNIEnv* env, jclass cls, jlong address, jlong startVector, jfloatArray batch, jint numVectors, jint dimension)
+{
+    float* data = reinterpret_cast<float*>(address);
+    env->GetFloatArrayRegion(batch, 0, numVectors * dimension, data + static_cast<size_t>(startVector) * dimension);
+}
+
 JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_freeVectors(
     JNIEnv* env, jclass cls, jlong address)
 {
@@ -80,7 +134,8 @@ JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissKMeansService_freeVe
 JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_buildAndWriteIndex(
     JNIEnv* env, jclass cls,
     jlong vectorsAddress, jint numVectors, jint dimension, jintArray idsJ,
-    jstring indexDescriptionJ, jstring spaceTypeJ, jint efConstruction, jint efSearch, jstring outputPathJ)
+    jstring indexDescriptionJ, jstring spaceTypeJ, jint efConstruction, jint efSearch, jstring outputPathJ,
+    jint numThreads)
 {
     float* vectors = reinterpret_cast<float*>(vectorsAddress);
     
@@ -110,16 +165,21 @@ JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_buildAn
     }
     
     faiss_core::buildAndWriteIndex(vectors, numVectors, dimension, ids,
-                                    indexDesc, metric, efConstruction, efSearch, outputPath);
+                                    indexDesc, metric, efConstruction, efSearch, outputPath, numThreads);
 }
 
 JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_buildAndWriteBinaryIndex(
     JNIEnv* env, jclass cls,
-    jbyteArray vectorsJ, jint numVectors, jint dimension, jintArray idsJ,
-    jint hnswM, jint efConstruction, jint efSearch, jstring outputPathJ)
+    jlong codesAddress, jlong codesLength, jint numVectors, jint dimension, jintArray idsJ,
+    jint hnswM, jint efConstruction, jint efSearch, jstring outputPathJ, jint numThreads)
 {
-    // Marshal vectors
-    jbyte* vectorsPtr = env->GetByteArrayElements(vectorsJ, nullptr);
+    // Codes are already in native memory, so FAISS reads them in place
+    if (codesLength != static_cast<jlong>(numVectors) * (dimension / 8)) {
+        env->ThrowNew(env->FindClass("java/lang/IllegalArgumentException"),
+                      "codesLength must equal numVectors * dimension / 8");
+        return;
+    }
+    uint8_t* codes = reinterpret_cast<uint8_t*>(codesAddress);
     
     // Marshal output path
     const char* outputPathCStr = env->GetStringUTFChars(outputPathJ, nullptr);
@@ -132,9 +192,39 @@ JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_buildAn
     std::vector<int64_t> ids(idsPtr, idsPtr + numIds);
     env->ReleaseIntArrayElements(idsJ, idsPtr, JNI_ABORT);
     
-    faiss_core::buildAndWriteBinaryIndex(reinterpret_cast<uint8_t*>(vectorsPtr), 
-                                          numVectors, dimension, ids,
-                                          hnswM, efConstruction, efSearch, outputPath);
-    
-    env->ReleaseByteArrayElements(vectorsJ, vectorsPtr, JNI_ABORT);
+    faiss_core::buildAndWriteBinaryIndex(codes, numVectors, dimension, ids,
+                                          hnswM, efConstruction, efSearch, outputPath, numThreads);
+}
+
+JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_setThreads(
+    JNIEnv* env, jclass cls, jint numThreads)
+{
+    faiss_core::setThreads(numThreads);
+}
+
+JNIEXPORT jint JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_getThreads(
+    JNIEnv* env, jclass cls)
+{
+    return faiss_core::getThreads();
+}
+
+JNIEXPORT jlong JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_allocateCodes(
+    JNIEnv* env, jclass cls, jlong numBytes)
+{
+    if (numBytes <= 0) return 0;
+    uint8_t* data = new uint8_t[static_cast<size_t>(numBytes)];
+    return reinterpret_cast<jlong>(data);
+}
+
+JNIEXPORT jobject JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_codesView(
+    JNIEnv* env, jclass cls, jlong address, jlong offset, jint length)
+{
+    uint8_t* data = reinterpret_cast<uint8_t*>(address);
+    return env->NewDirectByteBuffer(data + offset, length);
+}
+
+JNIEXPORT void JNICALL Java_org_opensearch_knn_reorder_FaissIndexService_freeCodes(
+    JNIEnv* env, jclass cls, jlong address)
+{
+    delete[] reinterpret_cast<uint8_t*>(address);
 }
@@ -29,13 +29,14 @@ done
 VEC_FILES=${VEC_FILES%,}
 FAISS_FILES=${FAISS_FILES%,}
 
+# HNSW M and ef values are inferred from each source .faiss, so quantized graphs are permuted as they are
 echo "Running $REORDER_TYPE reorder..."
 cd "$VECTOR_REORDER_DIR"
 
 if [ "$REORDER_TYPE" = "kmeans" ]; then
-    ./gradlew kmeansReorder -Pvec="$VEC_FILES" -Pfaiss="$FAISS_FILES" -Pspace=l2 -PefSearch=100 -PefConstruction=100 -Pm=16
+    ./gradlew kmeansReorder -Pvec="$VEC_FILES" -Pfaiss="$FAISS_FILES" -Pspace="$SPACE_TYPE" -PcheckpointDir="$CHECKPOINT_DIR/$REORDER_TYPE"
 elif [ "$REORDER_TYPE" = "bp" ]; then
-    ./gradlew bpReorder -Pvec="$VEC_FILES" -Pfaiss="$FAISS_FILES" -Pspace=l2 -PefSearch=100 -PefConstruction=100 -Pm=16
+    ./gradlew bpReorder -Pvec="$VEC_FILES" -Pfaiss="$FAISS_FILES" -Pspace="$SPACE_TYPE" -PcheckpointDir="$CHECKPOINT_DIR/$REORDER_TYPE"
 else
     echo "Unknown reorder type: $REORDER_TYPE"
     exit 1
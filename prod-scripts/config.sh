@@ -4,11 +4,14 @@
 export OS_URL="http://localhost:9200"
 export INDEX="sift-index"
 export HDF5_PATH="/Users/finnrobl/Downloads/sift-128-euclidean.hdf5"
+# Space type of the knn_vector field (l2, innerproduct or cosinesimil); must match the index mapping
+export SPACE_TYPE="l2"
 
 export DATA_DIR="/home/ec2-user/k-NN/build/testclusters/integTest-0/distro/3.5.0-ARCHIVE/data"
 export NODE_DIR="${DATA_DIR}/nodes/0/indices"
 export OPENSEARCH_HOME="/Users/finnrobl/Documents/k-NN-2/k-NN/distribution/build/distribution/local/opensearch-3.0.0-SNAPSHOT"
 export VECTOR_REORDER_DIR="/Users/finnrobl/Documents/k-NN-2/vector-reorder"
+export CHECKPOINT_DIR="/Users/finnrobl/Documents/k-NN-2/reorder-checkpoints"
 
 export BASELINE_BACKUPS="/Users/finnrobl/Documents/k-NN-2/BASELINE_backups"
 export KMEANS_BACKUPS="/Users/finnrobl/Documents/k-NN-2/KMEANS_backups"
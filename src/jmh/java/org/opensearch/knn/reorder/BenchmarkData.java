@@ -0,0 +1,89 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic inputs shared by the benchmarks. Everything is seeded so runs are comparable.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42L;
+    static final String SEGMENT_SUFFIX = "NativeEngines990KnnVectorsFormat_0";
+
+    private BenchmarkData() {}
+
+    /**
+     * Vectors drawn around {@code clusters} random centers, so BP and k-means have structure to find.
+     */
+    static float[][] clusteredVectors(int n, int dim, int clusters, long seed) {
+        Random random = new Random(seed);
+        float[][] centers = new float[clusters][dim];
+        for (float[] center : centers) {
+            for (int j = 0; j < dim; j++) {
+                center[j] = random.nextFloat() * 2 - 1;
+            }
+        }
+        float[][] vectors = new float[n][dim];
+        for (int i = 0; i < n; i++) {
+            float[] center = centers[random.nextInt(clusters)];
+            for (int j = 0; j < dim; j++) {
+                vectors[i][j] = center[j] + (float) random.nextGaussian() * 0.1f;
+            }
+        }
+        return vectors;
+    }
+
+    static int[] randomPermutation(int n, long seed) {
+        Random random = new Random(seed);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Write a dense .vec/.vemf pair in {@code dir} readable by {@link VecFileIO}.
+     * @return path of the .vec file
+     */
+    static String writeVecFile(Path dir, float[][] vectors) throws IOException {
+        byte[] segmentId = new byte[16];
+        new Random(SEED).nextBytes(segmentId);
+        Path vec = dir.resolve("_0_" + SEGMENT_SUFFIX + ".vec");
+        Path vemf = dir.resolve("_0_" + SEGMENT_SUFFIX + ".vemf");
+        int[] identity = new int[vectors.length];
+        for (int i = 0; i < identity.length; i++) {
+            identity[i] = i;
+        }
+        KnnFileWriter.writeVecFile(vectors, identity, segmentId, SEGMENT_SUFFIX, vec.toString());
+        KnnFileWriter.writeVemfFile(vectors.length, vectors[0].length, 0, 1, 0, segmentId, SEGMENT_SUFFIX, vemf.toString());
+        return vec.toString();
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BP permutation over clustered vectors. A single run takes seconds at the larger sizes, so each
+ * measurement is one cold call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BpReordererBenchmark {
+
+    @Param({"10000", "100000"})
+    public int n;
+
+    @Param({"128"})
+    public int dim;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private float[][] vectors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        vectors = BenchmarkData.clusteredVectors(n, dim, 100, BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public int[] computePermutation() {
+        return BpReorderer.computePermutation(vectors, VectorSimilarityFunction.EUCLIDEAN, threads);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting k-means assignments into the final order, from random assignments and distances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClusterSorterBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int n;
+
+    @Param({"1000"})
+    public int clusters;
+
+    private int[] assignments;
+    private float[] distances;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        assignments = new int[n];
+        distances = new float[n];
+        for (int i = 0; i < n; i++) {
+            assignments[i] = random.nextInt(clusters);
+            distances[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public int[] sortByCluster() {
+        return ClusterSorter.sortByCluster(assignments, distances, FaissKMeansService.METRIC_L2);
+    }
+
+    @Benchmark
+    public int[] sortByClusterPageAligned() {
+        return ClusterSorter.sortByClusterPageAligned(assignments, distances, FaissKMeansService.METRIC_L2,
+            128 * Float.BYTES, 4096);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewriting the neighbor-list section of a .faiss file through a permutation: each node's block is
+ * moved to its new position and its ids renumbered. The section is held in a
+ * {@link ByteBuffersDirectory} so the benchmark measures the permutation, not the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FaissFilePermuterBenchmark {
+
+    private static final String NEIGHBORS_FILE = "neighbors";
+
+    @Param({"1000000"})
+    public int n;
+
+    /** Level-0 slots per node, 2 * M */
+    @Param({"32"})
+    public int slots;
+
+    private ByteBuffersDirectory directory;
+    private FaissFilePermuter.FaissStructure structure;
+    private long[] offsets;
+    private int[] newOrder;
+    private int[] inverse;
+    private int outputs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(BenchmarkData.SEED);
+        directory = new ByteBuffersDirectory();
+        long count = (long) n * slots;
+        try (IndexOutput out = directory.createOutput(NEIGHBORS_FILE, IOContext.DEFAULT)) {
+            // size_t count followed by int32 ids, with the -1 padding FAISS leaves in partially filled lists
+            out.writeLong(count);
+            for (int node = 0; node < n; node++) {
+                int degree = slots / 2 + random.nextInt(slots / 2 + 1);
+                for (int j = 0; j < slots; j++) {
+                    out.writeInt(j < degree ? random.nextInt(n) : -1);
+                }
+            }
+        }
+        structure = new FaissFilePermuter.FaissStructure();
+        structure.neighborsStart = 0;
+        offsets = new long[n + 1];
+        for (int node = 0; node <= n; node++) {
+            offsets[node] = (long) node * slots;
+        }
+        newOrder = BenchmarkData.randomPermutation(n, BenchmarkData.SEED);
+        inverse = new int[n];
+        for (int newIdx = 0; newIdx < n; newIdx++) {
+            inverse[newOrder[newIdx]] = newIdx;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        directory.close();
+    }
+
+    @Benchmark
+    public long permuteNeighbors() throws IOException {
+        String outputName = "out_" + outputs++;
+        try (IndexInput input = directory.openInput(NEIGHBORS_FILE, IOContext.DEFAULT);
+             IndexOutput output = directory.createOutput(outputName, IOContext.DEFAULT)) {
+            FaissFilePermuter.permuteNeighbors(input, output, structure, offsets, newOrder, inverse);
+            return output.getFilePointer();
+        } finally {
+            directory.deleteFile(outputName);
+        }
+    }
+}
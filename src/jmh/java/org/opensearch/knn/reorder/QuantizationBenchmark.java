@@ -0,0 +1,85 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1-bit quantization of a batch of vectors, with and without the random rotation: one allocated
+ * code per vector versus packing straight into one buffer. Scores are per vector.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class QuantizationBenchmark {
+
+    private static final int BATCH = 1024;
+
+    @Param({"128", "768"})
+    public int dim;
+
+    @Param({"false", "true"})
+    public boolean rotated;
+
+    private float[][] vectors;
+    private QuantizationStateIO.OneBitState state;
+    private byte[] packed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        vectors = BenchmarkData.clusteredVectors(BATCH, dim, 16, BenchmarkData.SEED);
+        float[] thresholds = new float[dim];
+        for (int j = 0; j < dim; j++) {
+            thresholds[j] = (float) random.nextGaussian() * 0.1f;
+        }
+        float[][] rotation = null;
+        if (rotated) {
+            rotation = new float[dim][dim];
+            for (float[] row : rotation) {
+                for (int j = 0; j < dim; j++) {
+                    row[j] = (float) random.nextGaussian();
+                }
+            }
+        }
+        state = new QuantizationStateIO.OneBitState(thresholds, rotation);
+        packed = new byte[BATCH * state.getBytesPerVector()];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void quantize(Blackhole blackhole) {
+        for (float[] vector : vectors) {
+            blackhole.consume(QuantizationStateIO.quantize(vector, state));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public byte[] quantizeBatch() {
+        QuantizationStateIO.quantizeBatch(vectors, 0, BATCH, null, packed, 0, state);
+        return packed;
+    }
+}
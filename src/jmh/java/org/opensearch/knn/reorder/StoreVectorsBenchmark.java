@@ -0,0 +1,54 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying a float[][] into native memory over JNI, as done before every k-means and index build.
+ * Needs the native library on {@code java.library.path}; the jmh Gradle task passes jni/release.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StoreVectorsBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int n;
+
+    @Param({"128"})
+    public int dim;
+
+    private float[][] vectors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        vectors = BenchmarkData.clusteredVectors(n, dim, 100, BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public long storeAndFree() {
+        long address = FaissKMeansService.storeVectors(vectors);
+        FaissKMeansService.freeVectors(address);
+        return address;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a .vec file into memory with one or several readers, and writing it in a new order either by a random-read copy of the
+ * file or from the vectors on the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class VecFileIOBenchmark {
+
+    @Param({"100000"})
+    public int n;
+
+    @Param({"128", "768"})
+    public int dim;
+
+    private Path dir;
+    private float[][] vectors;
+    private String vecPath;
+    private String outPath;
+    private int[] newOrder;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("vec-bench");
+        vectors = BenchmarkData.clusteredVectors(n, dim, 100, BenchmarkData.SEED);
+        vecPath = BenchmarkData.writeVecFile(dir, vectors);
+        outPath = dir.resolve("reordered.vec").toString();
+        newOrder = BenchmarkData.randomPermutation(n, BenchmarkData.SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public float[][] loadVectors() throws IOException {
+        return VecFileIO.loadVectors(vecPath, 1);
+    }
+
+    @Benchmark
+    public float[][] loadVectorsParallel() throws IOException {
+        return VecFileIO.loadVectors(vecPath, VecFileIO.DEFAULT_LOAD_THREADS);
+    }
+
+    @Benchmark
+    public void writeReordered() throws IOException {
+        // The output must not exist, so each invocation writes and removes its own file
+        VecFileIO.writeReordered(vecPath, outPath, newOrder);
+        Files.delete(Path.of(outPath));
+    }
+
+    @Benchmark
+    public void writeReorderedFromArray() throws IOException {
+        VecFileIO.writeReorderedFromArray(vecPath, vectors, newOrder, outPath);
+        Files.delete(Path.of(outPath));
+    }
+}
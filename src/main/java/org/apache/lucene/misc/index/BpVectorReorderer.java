@@ -732,7 +732,11 @@ public class BpVectorReorderer extends AbstractBPReorderer {
                 [--thread-count T]""");
   }
 
-  private static Sorter.DocMap valueMapToDocMap(
+  /**
+   * Expert: Turn a map over vector ordinals into a map over doc IDs. Docs without a vector are
+   * moved after the docs that have one, in their original order.
+   */
+  public static Sorter.DocMap valueMapToDocMap(
       Sorter.DocMap valueMap, FloatVectorValues values, int maxDoc) throws IOException {
     if (maxDoc == values.size()) {
       return valueMap;
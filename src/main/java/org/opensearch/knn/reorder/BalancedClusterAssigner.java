@@ -0,0 +1,168 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Size-constrained assignment of vectors to trained centroids.
+ *
+ * Plain k-means assigns every vector to its nearest centroid, which produces highly skewed cluster
+ * sizes. Here each cluster holds at most {@code capacity} vectors:
+ * <ol>
+ *   <li>One sequential pass records the {@code numCandidates} nearest centroids of every vector.</li>
+ *   <li>Vectors are placed closest-first, each into its nearest candidate that still has room, so
+ *       the core of every cluster is filled before its outliers.</li>
+ *   <li>Vectors whose candidates are all full are placed in a second sequential pass into the
+ *       nearest centroid with room left.</li>
+ * </ol>
+ * The returned distances are to the centroid actually assigned, so the result can be sorted with
+ * {@link ClusterSorter}.
+ */
+public class BalancedClusterAssigner {
+
+    public static final int DEFAULT_NUM_CANDIDATES = 8;
+
+    /**
+     * Assign vectors to centroids with at most {@code capacity} vectors per centroid.
+     *
+     * @param vectors       vectors to assign, read in ordinal order
+     * @param centroids     trained centroids[k][dim]
+     * @param metricType    METRIC_L2 or METRIC_INNER_PRODUCT
+     * @param capacity      maximum number of vectors per cluster
+     * @param numCandidates number of nearest centroids kept per vector for overflow reassignment
+     * @param batchSize     number of vectors read per batch
+     * @return KMeansResult containing assignments and distances to the assigned centroid
+     */
+    public static KMeansResult assign(FloatVectorValues vectors, float[][] centroids, int metricType,
+                                      int capacity, int numCandidates, int batchSize) throws IOException {
+        int n = vectors.size();
+        int k = centroids.length;
+        if ((long) capacity * k < n) {
+            throw new IllegalArgumentException(
+                "Capacity " + capacity + " x " + k + " clusters cannot hold " + n + " vectors");
+        }
+        int p = Math.min(numCandidates, k);
+
+        // Pass 1: nearest p centroids per vector
+        int[] candidates = new int[Math.multiplyExact(n, p)];
+        float[] candidateDistances = new float[candidates.length];
+        float[][] batch = new float[Math.min(batchSize, n)][vectors.dimension()];
+        for (int from = 0; from < n; from += batchSize) {
+            int count = Math.min(batchSize, n - from);
+            StreamingKMeans.readBatch(vectors, from, count, batch);
+            int base = from;
+            IntStream.range(0, count).parallel().forEach(i ->
+                nearestCandidates(batch[i], centroids, metricType, p, candidates, candidateDistances, (base + i) * p)
+            );
+        }
+
+        // Place vectors closest-first into their nearest candidate with room
+        long[] byDistance = new long[n];
+        for (int ord = 0; ord < n; ord++) {
+            byDistance[ord] = ((long) sortableDistance(candidateDistances[ord * p], metricType) << 32) | ord;
+        }
+        Arrays.parallelSort(byDistance);
+
+        int[] assignments = new int[n];
+        float[] distances = new float[n];
+        int[] sizes = new int[k];
+        boolean[] overflow = new boolean[n];
+        int overflowCount = 0;
+        for (long key : byDistance) {
+            int ord = (int) key;
+            int placed = -1;
+            for (int r = 0; r < p; r++) {
+                int c = candidates[ord * p + r];
+                if (sizes[c] < capacity) {
+                    placed = r;
+                    break;
+                }
+            }
+            if (placed == -1) {
+                overflow[ord] = true;
+                overflowCount++;
+                continue;
+            }
+            int c = candidates[ord * p + placed];
+            sizes[c]++;
+            assignments[ord] = c;
+            distances[ord] = candidateDistances[ord * p + placed];
+        }
+
+        // Pass 2: vectors whose candidates were all full go to the nearest centroid with room
+        if (overflowCount > 0) {
+            for (int ord = 0; ord < n; ord++) {
+                if (!overflow[ord]) {
+                    continue;
+                }
+                float[] v = vectors.vectorValue(ord);
+                int best = -1;
+                float bestDist = 0;
+                for (int c = 0; c < k; c++) {
+                    if (sizes[c] >= capacity) {
+                        continue;
+                    }
+                    float d = StreamingKMeans.distance(v, centroids[c], metricType);
+                    if (best == -1 || StreamingKMeans.isCloser(d, bestDist, metricType)) {
+                        best = c;
+                        bestDist = d;
+                    }
+                }
+                sizes[best]++;
+                assignments[ord] = best;
+                distances[ord] = bestDist;
+            }
+        }
+
+        return new KMeansResult(assignments, distances);
+    }
+
+    /**
+     * Largest cluster size (in vectors) that fits in {@code maxClusterBytes} and is a whole number
+     * of {@code pageBytes} pages, so that page-aligned clusters never share a page.
+     */
+    public static int alignedCapacity(long maxClusterBytes, int vectorBytes, int pageBytes) {
+        int granule = ClusterSorter.pageGranule(vectorBytes, pageBytes);
+        long capacity = maxClusterBytes / vectorBytes / granule * granule;
+        if (capacity < granule) {
+            throw new IllegalArgumentException("maxClusterBytes " + maxClusterBytes + " is smaller than one aligned block of "
+                + granule + " vectors (" + (long) granule * vectorBytes + " bytes)");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, capacity);
+    }
+
+    private static void nearestCandidates(float[] v, float[][] centroids, int metricType, int p,
+                                          int[] candidates, float[] candidateDistances, int offset) {
+        // Insertion into a small sorted list: p is tiny compared to k
+        int filled = 0;
+        for (int c = 0; c < centroids.length; c++) {
+            float d = StreamingKMeans.distance(v, centroids[c], metricType);
+            if (filled == p && !StreamingKMeans.isCloser(d, candidateDistances[offset + p - 1], metricType)) {
+                continue;
+            }
+            int pos = filled < p ? filled++ : p - 1;
+            while (pos > 0 && StreamingKMeans.isCloser(d, candidateDistances[offset + pos - 1], metricType)) {
+                candidates[offset + pos] = candidates[offset + pos - 1];
+                candidateDistances[offset + pos] = candidateDistances[offset + pos - 1];
+                pos--;
+            }
+            candidates[offset + pos] = c;
+            candidateDistances[offset + pos] = d;
+        }
+    }
+
+    private static int sortableDistance(float distance, int metricType) {
+        // Ascending order must visit the closest vectors first
+        float key = metricType == FaissKMeansService.METRIC_INNER_PRODUCT ? -distance : distance;
+        return NumericUtils.floatToSortableInt(key);
+    }
+}
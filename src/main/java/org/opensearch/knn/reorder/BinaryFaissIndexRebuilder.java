@@ -5,6 +5,7 @@
 
 package org.opensearch.knn.reorder;
 
+import java.io.File;
 import java.io.IOException;
 
 /**
@@ -18,7 +19,7 @@ public class BinaryFaissIndexRebuilder {
      * @param vectors      float vectors (in original order)
      * @param newOrder     newOrder[newIdx] = oldIdx - the reordering permutation
      * @param oldIdMapping oldIdMapping[oldIdx] = docID - from original FAISS file
-     * @param qstate       quantization state for 1-bit quantization
+     * @param qstate       quantization state for 1-, 2- or 4-bit quantization
      * @param outputPath   path for output .faiss file
      * @param hnswM        HNSW M parameter
      * @param efConstruction ef_construction parameter
@@ -28,33 +29,120 @@ public class BinaryFaissIndexRebuilder {
         float[][] vectors,
         int[] newOrder,
         long[] oldIdMapping,
-        QuantizationStateIO.OneBitState qstate,
+        QuantizationStateIO.MultiBitState qstate,
         String outputPath,
         int hnswM,
         int efConstruction,
         int efSearch
+    ) throws IOException {
+        rebuild(vectors, newOrder, oldIdMapping, qstate, outputPath, hnswM, efConstruction, efSearch, 0);
+    }
+
+    /**
+     * Same as above, building the graph with {@code threads} OpenMP threads and printing the achieved
+     * build throughput.
+     *
+     * @param threads OpenMP threads for the HNSW build, or 0 for the calling thread's setting
+     */
+    public static void rebuild(
+        float[][] vectors,
+        int[] newOrder,
+        long[] oldIdMapping,
+        QuantizationStateIO.MultiBitState qstate,
+        String outputPath,
+        int hnswM,
+        int efConstruction,
+        int efSearch,
+        int threads
     ) throws IOException {
         int n = vectors.length;
-        int bytesPerVector = qstate.getBytesPerVector();
-        int binaryDim = qstate.meanThresholds.length;
+        // One bit per coordinate and threshold plane
+        int binaryDim = qstate.getBinaryDimension();
         // Align to 8 for FAISS binary index
         int alignedDim = (binaryDim + 7) & ~7;
         
-        // Quantize and reorder vectors
-        byte[] quantizedVectors = new byte[n * bytesPerVector];
         int[] newIdMapping = new int[n];
-        
         for (int newIdx = 0; newIdx < n; newIdx++) {
-            int oldIdx = newOrder[newIdx];
-            byte[] quantized = QuantizationStateIO.quantize(vectors[oldIdx], qstate);
-            System.arraycopy(quantized, 0, quantizedVectors, newIdx * bytesPerVector, bytesPerVector);
-            newIdMapping[newIdx] = (int) oldIdMapping[oldIdx];
+            newIdMapping[newIdx] = (int) oldIdMapping[newOrder[newIdx]];
         }
         
-        // Build binary FAISS index
-        FaissIndexService.buildAndWriteBinaryIndex(
-            quantizedVectors, n, alignedDim, newIdMapping,
-            hnswM, efConstruction, efSearch, outputPath
-        );
+        // Quantize and reorder straight into native memory, which FAISS then reads in place
+        long codesLength = (long) n * qstate.getBytesPerVector();
+        long codesAddress = FaissIndexService.allocateCodes(codesLength);
+        try {
+            QuantizationStateIO.quantizeAll(vectors, newOrder, qstate,
+                (offset, length) -> FaissIndexService.codesView(codesAddress, offset, length));
+            
+            // Build binary FAISS index
+            long start = System.nanoTime();
+            FaissIndexService.buildAndWriteBinaryIndex(
+                codesAddress, codesLength, n, alignedDim, newIdMapping,
+                hnswM, efConstruction, efSearch, outputPath, threads
+            );
+            FaissIndexRebuilder.printThroughput(n, System.nanoTime() - start, threads);
+        } finally {
+            FaissIndexService.freeCodes(codesAddress);
+        }
+    }
+
+    /**
+     * Path of the quantization state that belongs to {@code vecFile}.
+     */
+    public static String qstatePath(String vecFile) {
+        return vecFile.replace(".vec", ".osknnqstate");
+    }
+
+    /**
+     * Check that the binary index {@code sourceFaiss} can be rebuilt, i.e. that {@code vecFile} has a
+     * quantization state to re-quantize its vectors with. Call before any work that would be wasted.
+     *
+     * @throws IllegalArgumentException if the state is missing
+     */
+    public static void checkRebuildable(String sourceFaiss, String vecFile) {
+        if (!new File(qstatePath(vecFile)).exists()) {
+            throw new IllegalArgumentException(sourceFaiss + " is a binary index and " + qstatePath(vecFile)
+                + " does not exist, so it can only be permuted: drop the --m/--ef-* overrides");
+        }
+    }
+
+    /**
+     * Rebuild the binary index {@code sourceFaiss} with vectors inserted in {@code newOrder},
+     * quantized with the .osknnqstate of {@code vecFile}. An {@code m}, {@code efConstruction} or
+     * {@code efSearch} of 0 keeps the value of the source.
+     *
+     * @param vectors vectors of {@code vecFile} in their original order
+     * @param metrics segment to record the build in, or null
+     */
+    public static void rebuild(
+        String sourceFaiss,
+        String vecFile,
+        float[][] vectors,
+        int[] newOrder,
+        long[] oldIdMapping,
+        String outputPath,
+        int m,
+        int efConstruction,
+        int efSearch,
+        ReorderMetrics.Segment metrics,
+        int threads
+    ) throws IOException {
+        checkRebuildable(sourceFaiss, vecFile);
+        FaissFilePermuter.FaissStructure source = FaissFilePermuter.parseStructure(sourceFaiss);
+        QuantizationStateIO.MultiBitState qstate = QuantizationStateIO.readState(qstatePath(vecFile), vectors[0].length);
+        if (qstate.getBytesPerVector() != source.codeSize) {
+            throw new IllegalArgumentException(sourceFaiss + " stores " + source.codeSize + " bytes per vector but "
+                + qstatePath(vecFile) + " produces " + qstate.getBytesPerVector());
+        }
+        int hnswM = m > 0 ? m : source.m;
+        int efC = efConstruction > 0 ? efConstruction : source.efConstruction;
+        int efS = efSearch > 0 ? efSearch : source.efSearch;
+        System.out.println("  Index: binary HNSW" + hnswM + ", " + qstate.getBitsPerCoordinate() + "-bit, efConstruction="
+            + efC + " efSearch=" + efS);
+        try (ReorderMetrics.Phase phase = ReorderMetrics.phase(metrics, "faiss-build")) {
+            rebuild(vectors, newOrder, oldIdMapping, qstate, outputPath, hnswM, efC, efS, threads);
+            if (phase != null) {
+                phase.bytesWritten(new File(outputPath).length()).items(vectors.length);
+            }
+        }
     }
 }
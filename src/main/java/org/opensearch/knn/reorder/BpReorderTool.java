@@ -5,7 +5,7 @@
 
 package org.opensearch.knn.reorder;
 
-import org.apache.lucene.store.FSDirectory;
+import jdk.jfr.Recording;
 
 import java.io.File;
 import java.nio.file.Files;
@@ -18,7 +18,11 @@ import java.util.List;
  * CLI tool: BP reorder vectors and produce reordered .faiss, .vec, .vemf, and .vord files.
  * 
  * Usage: BpReorderTool bp-reorder --vec <file1.vec> [--vec <file2.vec> ...] [--faiss <file1.faiss> ...]
- *                      [--space <l2|innerproduct>] [--ef-search <n>] [--ef-construction <n>] [--m <n>]
+ *                      [--space <l2|innerproduct|cosinesimil>] [--ef-search <n>] [--ef-construction <n>] [--m <n>]
+ *                      [--threads <n>] [--report <run.json>] [--jfr <run.jfr>] [--checkpoint-dir <dir>]
+ *        BpReorderTool lucene-rewrite --index <shard/index> --output <new-index> --field <name> [--threads <n>]
+ *                      [--leaf-concurrency <n>] [--ram-budget-mb <n>] [--max-iters <n>] [--min-partition-size <n>]
+ *                      [--report <run.json>] [--jfr <run.jfr>]
  * 
  * Output files:
  *   .faiss - HNSW index with vectors in BP order, ID mapping: faissId -> docId (only if --faiss specified)
@@ -26,6 +30,9 @@ import java.util.List;
  *   .vemf  - Lucene metadata (dense format, ord==docId assumption - INCORRECT after reorder)
  *   .vord  - docToOrd mapping for correct exact search lookups
  *   .osknnqstate - Quantization state (copied unchanged if present)
+ *
+ * lucene-rewrite instead writes a new index whose doc ids follow BP order (see
+ * {@link LuceneRewriteReorderer}); no sidecar files are produced.
  */
 public class BpReorderTool {
 
@@ -38,6 +45,8 @@ public class BpReorderTool {
         String cmd = args[0];
         if ("bp-reorder".equals(cmd)) {
             parseAndRunBpReorder(args);
+        } else if ("lucene-rewrite".equals(cmd)) {
+            parseAndRunLuceneRewrite(args);
         } else {
             // Legacy mode
             runLegacy(args);
@@ -47,24 +56,101 @@ public class BpReorderTool {
     private static void printUsage() {
         System.err.println("Usage:");
         System.err.println("  BpReorderTool bp-reorder --vec <file1.vec> [--vec <file2.vec> ...] [--faiss <file1.faiss> ...]");
-        System.err.println("                [--space <l2|innerproduct>] [--ef-search <n>] [--ef-construction <n>] [--m <n>]");
+        System.err.println("                [--space <l2|innerproduct|cosinesimil>] [--ef-search <n>] [--ef-construction <n>] [--m <n>]");
+        System.err.println("                [--threads <n>] [--report <run.json>] [--jfr <run.jfr>] [--checkpoint-dir <dir>]");
         System.err.println();
         System.err.println("Options:");
         System.err.println("  --vec             Path to .vec file (can specify multiple)");
         System.err.println("  --faiss           Path to .faiss file (can specify multiple, optional)");
-        System.err.println("  --space           Space type: l2 (default) or innerproduct");
-        System.err.println("  --ef-search       ef_search parameter for FAISS HNSW (default: 100)");
-        System.err.println("  --ef-construction ef_construction parameter for FAISS HNSW (default: 100)");
-        System.err.println("  --m               M parameter for FAISS HNSW (default: 16)");
+        System.err.println("  --space           Space type: l2 (default), innerproduct or cosinesimil");
+        System.err.println("  --ef-search       ef_search parameter for FAISS HNSW (default: same as the source .faiss)");
+        System.err.println("  --ef-construction ef_construction parameter for FAISS HNSW (default: same as the source .faiss)");
+        System.err.println("  --m               M parameter for FAISS HNSW (default: same as the source .faiss)");
+        System.err.println("  --threads         Threads for BP and for the FAISS HNSW build (default: all processors)");
+        System.err.println("  --report          Write per-phase metrics for the run as JSON");
+        System.err.println("  --jfr             Record a JFR file including per-phase events");
+        System.err.println("  --checkpoint-dir  Persist permutations and finished segments here; a rerun skips them");
+        System.err.println();
+        System.err.println("  BpReorderTool lucene-rewrite --index <shard/index> --output <new-index> --field <name> [--threads <n>]");
+        System.err.println("                [--leaf-concurrency <n>] [--ram-budget-mb <n>] [--max-iters <n>] [--min-partition-size <n>]");
+        System.err.println("                [--report <run.json>] [--jfr <run.jfr>]");
+        System.err.println();
+        System.err.println("Options:");
+        System.err.println("  --index              Lucene index directory to read (left unchanged)");
+        System.err.println("  --output             Empty directory for the reordered index");
+        System.err.println("  --field              knn_vector field whose vectors drive the order");
+        System.err.println("  --threads            BP worker threads shared by all leaves (default: all processors)");
+        System.err.println("  --leaf-concurrency   Leaves rewritten at the same time (default: processors / 2, at most 4)");
+        System.err.println("  --ram-budget-mb      Heap for doc maps across concurrent leaves (default: half the max heap)");
+        System.err.println("  --max-iters          BP iterations per level (default: 20)");
+        System.err.println("  --min-partition-size Stop splitting below this many vectors (default: 32)");
+        System.err.println("  --report             Write per-phase metrics for the run as JSON");
+        System.err.println("  --jfr                Record a JFR file including per-phase events");
+    }
+
+    private static void parseAndRunLuceneRewrite(String[] args) throws Exception {
+        String index = null;
+        String output = null;
+        String field = null;
+        String reportPath = null;
+        String jfrPath = null;
+        Integer threads = null;
+        Integer leafConcurrency = null;
+        Integer ramBudgetMB = null;
+        Integer maxIters = null;
+        Integer minPartitionSize = null;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--index" -> { if (++i < args.length) index = args[i]; }
+                case "--output" -> { if (++i < args.length) output = args[i]; }
+                case "--field" -> { if (++i < args.length) field = args[i]; }
+                case "--threads" -> { if (++i < args.length) threads = Integer.parseInt(args[i]); }
+                case "--leaf-concurrency" -> { if (++i < args.length) leafConcurrency = Integer.parseInt(args[i]); }
+                case "--ram-budget-mb" -> { if (++i < args.length) ramBudgetMB = Integer.parseInt(args[i]); }
+                case "--max-iters" -> { if (++i < args.length) maxIters = Integer.parseInt(args[i]); }
+                case "--min-partition-size" -> { if (++i < args.length) minPartitionSize = Integer.parseInt(args[i]); }
+                case "--report" -> { if (++i < args.length) reportPath = args[i]; }
+                case "--jfr" -> { if (++i < args.length) jfrPath = args[i]; }
+            }
+        }
+
+        if (index == null || output == null || field == null) {
+            System.err.println("Error: --index, --output and --field are required");
+            printUsage();
+            System.exit(1);
+        }
+
+        LuceneRewriteReorderer.Options defaults = LuceneRewriteReorderer.Options.of(field);
+        LuceneRewriteReorderer.Options options = new LuceneRewriteReorderer.Options(field,
+            threads != null ? threads : defaults.threads(),
+            leafConcurrency != null ? leafConcurrency : defaults.leafConcurrency(),
+            ramBudgetMB != null ? ramBudgetMB : defaults.ramBudgetMB(),
+            maxIters != null ? maxIters : defaults.maxIters(),
+            minPartitionSize != null ? minPartitionSize : defaults.minPartitionSize());
+        ReorderMetrics metrics = new ReorderMetrics("lucene-rewrite");
+        Recording recording = jfrPath == null ? null : ReorderMetrics.startRecording(jfrPath);
+        try (recording) {
+            LuceneRewriteReorderer.rewrite(index, output, options, metrics);
+        } finally {
+            if (reportPath != null) {
+                metrics.writeReport(reportPath);
+            }
+        }
     }
 
     private static void parseAndRunBpReorder(String[] args) throws Exception {
         List<String> vecFiles = new ArrayList<>();
         List<String> faissFiles = new ArrayList<>();
         String spaceType = "l2";
-        int efSearch = 100;
-        int efConstruction = 100;
-        int m = 16;
+        // 0 keeps the value of the source .faiss
+        int efSearch = 0;
+        int efConstruction = 0;
+        int m = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String reportPath = null;
+        String jfrPath = null;
+        String checkpointDir = null;
 
         for (int i = 1; i < args.length; i++) {
             switch (args[i]) {
@@ -74,6 +160,10 @@ public class BpReorderTool {
                 case "--ef-search" -> { if (++i < args.length) efSearch = Integer.parseInt(args[i]); }
                 case "--ef-construction" -> { if (++i < args.length) efConstruction = Integer.parseInt(args[i]); }
                 case "--m" -> { if (++i < args.length) m = Integer.parseInt(args[i]); }
+                case "--threads" -> { if (++i < args.length) threads = Integer.parseInt(args[i]); }
+                case "--report" -> { if (++i < args.length) reportPath = args[i]; }
+                case "--jfr" -> { if (++i < args.length) jfrPath = args[i]; }
+                case "--checkpoint-dir" -> { if (++i < args.length) checkpointDir = args[i]; }
             }
         }
 
@@ -83,21 +173,61 @@ public class BpReorderTool {
             System.exit(1);
         }
 
-        bpReorder(vecFiles, faissFiles, spaceType, efSearch, efConstruction, m);
+        ReorderMetrics metrics = new ReorderMetrics("bp-reorder");
+        ReorderCheckpoint checkpoint = checkpointDir == null ? ReorderCheckpoint.disabled()
+            : ReorderCheckpoint.open(checkpointDir, "bp-reorder",
+                "space=" + spaceType + ",ef_search=" + efSearch + ",ef_construction=" + efConstruction + ",m=" + m);
+        Recording recording = jfrPath == null ? null : ReorderMetrics.startRecording(jfrPath);
+        try (recording) {
+            bpReorder(vecFiles, faissFiles, SpaceType.fromValue(spaceType), efSearch, efConstruction, m, metrics,
+                checkpoint, threads);
+        } finally {
+            if (reportPath != null) {
+                metrics.writeReport(reportPath);
+            }
+        }
     }
 
     public static void bpReorder(List<String> vecFiles, List<String> faissFiles,
-                                  String spaceType, int efSearch, int efConstruction, int m) throws Exception {
+                                  SpaceType spaceType, int efSearch, int efConstruction, int m) throws Exception {
+        bpReorder(vecFiles, faissFiles, spaceType, efSearch, efConstruction, m, new ReorderMetrics("bp-reorder"),
+            ReorderCheckpoint.disabled());
+    }
+
+    public static void bpReorder(List<String> vecFiles, List<String> faissFiles, SpaceType spaceType,
+                                  int efSearch, int efConstruction, int m, ReorderMetrics metrics,
+                                  ReorderCheckpoint checkpoint) throws Exception {
+        bpReorder(vecFiles, faissFiles, spaceType, efSearch, efConstruction, m, metrics, checkpoint,
+            Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * BP reorder each .vec file, recording every step as a phase of {@code metrics}. Segments that
+     * {@code checkpoint} records as finished are skipped, and cached permutations are reused.
+     * Segments are processed one at a time; BP and then the FAISS build each use up to
+     * {@code threads} threads, so a caller running several jobs can split its cores between them.
+     * An {@code efSearch}, {@code efConstruction} or {@code m} of 0 keeps the value of each source
+     * .faiss, whose storage type and metric are always kept. Binary and scalar quantized graphs are
+     * permuted instead of rebuilt unless one of these values differs from the source.
+     */
+    public static void bpReorder(List<String> vecFiles, List<String> faissFiles, SpaceType spaceType,
+                                  int efSearch, int efConstruction, int m, ReorderMetrics metrics,
+                                  ReorderCheckpoint checkpoint, int threads) throws Exception {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, got " + threads);
+        }
         if (!faissFiles.isEmpty() && faissFiles.size() != vecFiles.size()) {
             throw new IllegalArgumentException("Number of .faiss files (" + faissFiles.size() + 
                 ") must match number of .vec files (" + vecFiles.size() + ")");
         }
+        metrics.parameter("space", spaceType.getValue()).parameter("ef_search", efSearch)
+            .parameter("ef_construction", efConstruction).parameter("m", m).parameter("threads", threads);
 
         System.out.println("=== BP Vector Reorder Tool ===");
         System.out.println("Vec files: " + vecFiles);
         System.out.println("FAISS files: " + (faissFiles.isEmpty() ? "(none - skipping FAISS rebuild)" : faissFiles));
-        System.out.println("Parameters: space=" + spaceType + ", ef_search=" + efSearch + 
-                          ", ef_construction=" + efConstruction + ", m=" + m);
+        System.out.println("Parameters: space=" + spaceType.getValue() + ", ef_search=" + orSource(efSearch) + 
+                          ", ef_construction=" + orSource(efConstruction) + ", m=" + orSource(m) + ", threads=" + threads);
         System.out.println();
 
         // Process each vec/faiss pair independently
@@ -105,38 +235,104 @@ public class BpReorderTool {
             String vecFile = vecFiles.get(i);
             String faissFile = faissFiles.isEmpty() ? null : faissFiles.get(i);
 
+            String outputVec = vecFile.replace(".vec", "_reordered.vec");
+            String outputFaiss = faissFile == null ? null : faissFile.replace(".faiss", "_reordered.faiss");
+            if (checkpoint.isComplete(vecFile, outputVec, outputFaiss)) {
+                System.out.println("Skipping (already complete): " + vecFile);
+                continue;
+            }
+
             System.out.println("Processing: " + vecFile);
-            float[][] vectors = VecFileIO.loadVectors(vecFile);
-            int n = vectors.length;
-            int dim = vectors[0].length;
-            System.out.println("  Loaded " + n + " vectors (dim=" + dim + ")");
+            String outputVemf = outputVec.replace(".vec", ".vemf");
+            checkpoint.discardPartialOutputs(outputVec, outputFaiss, outputVemf, outputVemf.replace(".vemf", ".vord"));
+            ReorderMetrics.Segment segment = metrics.segment(vecFile);
+            int[] newOrder = checkpoint.loadPermutation(vecFile);
+            FaissFilePermuter.FaissStructure source = faissFile == null ? null
+                : FaissFilePermuter.parseStructure(faissFile);
+            // Binary and scalar quantized graphs are permuted as they are, so only BP itself needs the floats
+            boolean permuteFaiss = source != null && source.permutableWith(m, efConstruction, efSearch);
+            boolean rebuildFaiss = source != null && !permuteFaiss;
+            boolean rebuildBinary = rebuildFaiss && source.isBinary;
+            if (rebuildBinary) {
+                BinaryFaissIndexRebuilder.checkRebuildable(faissFile, vecFile);
+            }
+            // A float rebuild from a checkpointed permutation reads the vectors off-heap, unless they must
+            // be normalized; binary rebuilds quantize from the heap
+            float[][] vectors = null;
+            if (newOrder == null || (rebuildFaiss && (spaceType.isNormalized() || rebuildBinary))) {
+                try (ReorderMetrics.Phase phase = segment.phase("load-vectors")) {
+                    vectors = spaceType.prepare(VecFileIO.loadVectors(vecFile, threads));
+                    phase.bytesRead(new File(vecFile).length());
+                    segment.attribute("vectors", vectors.length).attribute("dimension", vectors[0].length);
+                    System.out.printf("  Loaded %d vectors (dim=%d) in %d ms (%.0f MB/s)%n", vectors.length,
+                        vectors[0].length, phase.elapsedNanos() / 1_000_000, phase.readMBPerSecond());
+                }
+            }
 
             // Compute BP reordering
-            System.out.println("  Computing BP reordering...");
-            long start = System.currentTimeMillis();
-            int[] newOrder = BpReorderer.computePermutation(vectors);
-            System.out.println("  BP reordering took " + (System.currentTimeMillis() - start) + " ms");
+            if (newOrder == null) {
+                System.out.println("  Computing BP reordering...");
+                try (ReorderMetrics.Phase phase = segment.phase("bp-permutation")) {
+                    newOrder = BpReorderer.computePermutation(vectors, spaceType.getSimilarityFunction(), threads);
+                    phase.items(newOrder.length);
+                    System.out.println("  BP reordering took " + phase.elapsedNanos() / 1_000_000 + " ms");
+                }
+                checkpoint.savePermutation(vecFile, newOrder);
+            }
 
             // Reorder .vec file
-            String outputVec = vecFile.replace(".vec", "_reordered.vec");
             System.out.println("  Writing: " + outputVec);
-            VecFileIO.writeReordered(vecFile, outputVec, newOrder);
+            try (ReorderMetrics.Phase phase = segment.phase("write-vec")) {
+                // Normalized cosine vectors are not the stored ones, so those are copied from the source
+                if (vectors != null && !spaceType.isNormalized()) {
+                    VecFileIO.writeReorderedFromArray(vecFile, vectors, newOrder, outputVec);
+                } else {
+                    VecFileIO.writeReordered(vecFile, outputVec, newOrder);
+                    phase.bytesRead(new File(vecFile).length());
+                }
+                phase.bytesWritten(new File(outputVec).length());
+            }
 
             // Rebuild FAISS if specified
-            if (faissFile != null) {
-                String outputFaiss = faissFile.replace(".faiss", "_reordered.faiss");
+            if (permuteFaiss) {
+                System.out.println("  Permuting quantized graph: " + outputFaiss);
+                try (ReorderMetrics.Phase phase = segment.phase("permute-faiss")) {
+                    FaissFilePermuter.permute(faissFile, newOrder, outputFaiss);
+                    phase.bytesRead(new File(faissFile).length()).bytesWritten(new File(outputFaiss).length());
+                }
+            } else if (rebuildFaiss) {
                 System.out.println("  Rebuilding: " + outputFaiss);
-                long[] oldIdMapping = FaissFilePermuter.readIdMapping(faissFile);
-                FaissIndexRebuilder.rebuild(vectors, newOrder, oldIdMapping, dim, outputFaiss, 
-                                            m, efConstruction, efSearch, spaceType);
+                long[] oldIdMapping;
+                try (ReorderMetrics.Phase phase = segment.phase("read-id-mapping")) {
+                    oldIdMapping = FaissFilePermuter.readIdMapping(faissFile);
+                    phase.bytesRead((long) oldIdMapping.length * Long.BYTES);
+                }
+                if (rebuildBinary) {
+                    BinaryFaissIndexRebuilder.rebuild(faissFile, vecFile, vectors, newOrder, oldIdMapping, outputFaiss,
+                        m, efConstruction, efSearch, segment, threads);
+                } else {
+                    FaissIndexRebuilder.BuildConfig config = FaissIndexRebuilder.BuildConfig.inferFrom(
+                        faissFile, spaceType, m, efConstruction, efSearch);
+                    System.out.println("  Index: " + config);
+                    segment.attribute("index", config.toString());
+                    if (vectors != null) {
+                        FaissIndexRebuilder.rebuild(vectors, newOrder, oldIdMapping, vectors[0].length, outputFaiss,
+                                                    config, segment, threads);
+                    } else {
+                        FaissIndexRebuilder.rebuild(vecFile, newOrder, oldIdMapping, outputFaiss, config, segment, threads);
+                    }
+                }
             }
 
             // Also reorder .vemf if present
             String vemfPath = vecFile.replace(".vec", ".vemf");
             if (new File(vemfPath).exists()) {
-                String outputVemfPath = outputVec.replace(".vec", ".vemf");
-                System.out.println("  Reordering .vemf: " + outputVemfPath);
-                VemfFileIO.writeReordered(vemfPath, outputVemfPath, outputVec, newOrder);
+                System.out.println("  Reordering .vemf: " + outputVemf);
+                try (ReorderMetrics.Phase phase = segment.phase("write-vemf")) {
+                    VemfFileIO.writeReordered(vemfPath, outputVemf, outputVec, newOrder);
+                    phase.bytesRead(new File(vemfPath).length()).bytesWritten(new File(outputVemf).length()
+                        + new File(outputVemf.replace(".vemf", ".vord")).length());
+                }
             }
 
             // Copy .osknnqstate if present
@@ -144,8 +340,13 @@ public class BpReorderTool {
             if (new File(qstatePath).exists()) {
                 String outputQstatePath = outputVec.replace(".vec", ".osknnqstate");
                 System.out.println("  Copying .osknnqstate: " + outputQstatePath);
-                Files.copy(Path.of(qstatePath), Path.of(outputQstatePath), StandardCopyOption.REPLACE_EXISTING);
+                try (ReorderMetrics.Phase phase = segment.phase("copy-qstate")) {
+                    Files.copy(Path.of(qstatePath), Path.of(outputQstatePath), StandardCopyOption.REPLACE_EXISTING);
+                    long bytes = new File(qstatePath).length();
+                    phase.bytesRead(bytes).bytesWritten(bytes);
+                }
             }
+            checkpoint.markComplete(vecFile);
         }
 
         System.out.println("\nBP reorder complete!");
@@ -195,10 +396,8 @@ public class BpReorderTool {
         long[] oldIdMapping = FaissFilePermuter.readIdMapping(inputFaissPath);
         System.out.println("Read " + oldIdMapping.length + " ID mappings");
         
-        int[] hnswParams = FaissFilePermuter.readHnswParams(inputFaissPath);
-        int efConstruction = hnswParams[0];
-        int efSearch = hnswParams[1];
-        System.out.println("Original HNSW params: efConstruction=" + efConstruction + ", efSearch=" + efSearch);
+        FaissFilePermuter.FaissStructure source = FaissFilePermuter.parseStructure(inputFaissPath);
+        System.out.println("Original index: " + source);
         
         System.out.println("Computing BP reordering...");
         start = System.currentTimeMillis();
@@ -208,20 +407,27 @@ public class BpReorderTool {
         System.out.println("Building FAISS index...");
         start = System.currentTimeMillis();
         
-        if (isQuantized) {
-            QuantizationStateIO.OneBitState qstate = readQuantizationState(inputQstatePath, dim);
-            System.out.println("  Quantization: 1-bit scalar, " + qstate.getBytesPerVector() + " bytes/vector");
-            BinaryFaissIndexRebuilder.rebuild(vectors, newOrder, oldIdMapping, qstate, 
-                                              outputFaissPath, 16, efConstruction, efSearch);
+        if (source.isBinary) {
+            // The packed codes and the graph are already in the input file; permuting them keeps the
+            // graph as built and skips re-quantization and the HNSW build
+            System.out.println("  Permuting binary graph in place of rebuild");
+            FaissFilePermuter.permute(inputFaissPath, newOrder, outputFaissPath);
+        } else if (source.isScalarQuantized()) {
+            // Rebuilding would re-train the quantizer on the same vectors; keep the source codes
+            System.out.println("  Permuting scalar quantized graph in place of rebuild");
+            FaissFilePermuter.permute(inputFaissPath, newOrder, outputFaissPath);
         } else {
-            FaissIndexRebuilder.rebuild(vectors, newOrder, oldIdMapping, dim, outputFaissPath, 
-                                        16, efConstruction, efSearch, FaissIndexRebuilder.SPACE_L2);
+            // Same M, storage, metric and ef values as the source; a .osknnqstate next to a float graph
+            // is copied through but does not turn the output into a binary index
+            FaissIndexRebuilder.BuildConfig config = FaissIndexRebuilder.BuildConfig.inferFrom(inputFaissPath, null, 0, 0, 0);
+            System.out.println("  Index: " + config);
+            FaissIndexRebuilder.rebuild(vectors, newOrder, oldIdMapping, dim, outputFaissPath, config, null, 0);
         }
         System.out.println("Index build took " + (System.currentTimeMillis() - start) + " ms");
         
         System.out.println("Writing reordered .vec file...");
         start = System.currentTimeMillis();
-        VecFileIO.writeReordered(vecPath, outputVecPath, newOrder);
+        VecFileIO.writeReorderedFromArray(vecPath, vectors, newOrder, outputVecPath);
         System.out.println("Vec file write took " + (System.currentTimeMillis() - start) + " ms");
         
         System.out.println("Writing reordered .vemf file...");
@@ -258,20 +464,7 @@ public class BpReorderTool {
         }
     }
 
-    private static QuantizationStateIO.OneBitState readQuantizationState(String qstatePath, int expectedDim) throws Exception {
-        Path path = Path.of(qstatePath);
-        String fileName = path.getFileName().toString();
-        String baseName = fileName.replace(".osknnqstate", "");
-        
-        int lastUnderscore = baseName.lastIndexOf('_');
-        if (lastUnderscore == -1) {
-            throw new IllegalArgumentException("Invalid .osknnqstate filename: " + fileName);
-        }
-        String segmentName = baseName.substring(0, lastUnderscore);
-        String segmentSuffix = baseName.substring(lastUnderscore + 1);
-        
-        try (FSDirectory dir = FSDirectory.open(path.getParent())) {
-            return QuantizationStateIO.readOneBitState(dir, segmentName, segmentSuffix, 0);
-        }
+    private static String orSource(int value) {
+        return value > 0 ? Integer.toString(value) : "source";
     }
 }
@@ -9,6 +9,11 @@ import org.apache.lucene.index.FloatVectorValues;
 import org.apache.lucene.index.Sorter;
 import org.apache.lucene.index.VectorSimilarityFunction;
 import org.apache.lucene.misc.index.BpVectorReorderer;
+import org.apache.lucene.search.TaskExecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * Bipartite graph partitioning reorderer for vectors.
@@ -34,15 +39,35 @@ public class BpReorderer {
      * @return newOrder where newOrder[newIdx] = oldIdx
      */
     public static int[] computePermutation(float[][] vectors, VectorSimilarityFunction similarity) {
+        return computePermutation(vectors, similarity, 1);
+    }
+
+    /**
+     * Compute reordering permutation using BP algorithm, recursing into both halves of each
+     * bisection in parallel.
+     * @param vectors input vectors
+     * @param similarity vector similarity function
+     * @param threads number of worker threads; 1 runs on the calling thread
+     * @return newOrder where newOrder[newIdx] = oldIdx
+     */
+    public static int[] computePermutation(float[][] vectors, VectorSimilarityFunction similarity, int threads) {
         int n = vectors.length;
         int dim = vectors[0].length;
         
         BpVectorReorderer reorderer = new BpVectorReorderer(DUMMY_FIELD);
         reorderer.setMinPartitionSize(1);
         
-        FloatVectorValues fvv = FloatVectorValues.fromFloats(java.util.Arrays.asList(vectors), dim);
-        // ComputeValueMap is going to call into the lucene 
-        Sorter.DocMap map = reorderer.computeValueMap(fvv, similarity, null);
+        FloatVectorValues fvv = FloatVectorValues.fromFloats(Arrays.asList(vectors), dim);
+        // Same pool setup as BpVectorReorderer.main
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads, p -> new ForkJoinWorkerThread(p) {}, null, false) : null;
+        Sorter.DocMap map;
+        try {
+            map = reorderer.computeValueMap(fvv, similarity, pool == null ? null : new TaskExecutor(pool));
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
         
         int[] newOrder = new int[n];
         for (int i = 0; i < n; i++) {
@@ -39,6 +39,61 @@ public class ClusterSorter {
         return newOrder;
     }
 
+    /**
+     * Sort indices by (cluster_id, distance_to_centroid) so that every cluster starts on a page
+     * boundary of the vector data region.
+     *
+     * Each cluster's closest members are laid out in a block that is a whole number of pages (a
+     * multiple of {@link #pageGranule} vectors). The remaining farthest members of each cluster,
+     * fewer than one granule per cluster, are moved to a tail section after all aligned blocks,
+     * still grouped by cluster. Alignment is relative to the start of the vector data region.
+     *
+     * @param vectorBytes size of one vector in bytes
+     * @param pageBytes   page or readahead size in bytes
+     * @return newOrder where newOrder[newIdx] = oldIdx
+     */
+    public static int[] sortByClusterPageAligned(int[] assignments, float[] distances, int metricType,
+                                                 int vectorBytes, int pageBytes) {
+        int[] sorted = sortByCluster(assignments, distances, metricType);
+        int n = sorted.length;
+        int granule = pageGranule(vectorBytes, pageBytes);
+
+        int[] newOrder = new int[n];
+        int[] tail = new int[n];
+        int head = 0;
+        int tailSize = 0;
+        for (int start = 0; start < n; ) {
+            int cluster = assignments[sorted[start]];
+            int end = start;
+            while (end < n && assignments[sorted[end]] == cluster) end++;
+
+            int alignedSize = (end - start) / granule * granule;
+            System.arraycopy(sorted, start, newOrder, head, alignedSize);
+            head += alignedSize;
+            System.arraycopy(sorted, start + alignedSize, tail, tailSize, end - start - alignedSize);
+            tailSize += end - start - alignedSize;
+            start = end;
+        }
+        System.arraycopy(tail, 0, newOrder, head, tailSize);
+        return newOrder;
+    }
+
+    /**
+     * Smallest number of vectors whose total size is a whole number of pages.
+     */
+    public static int pageGranule(int vectorBytes, int pageBytes) {
+        return pageBytes / gcd(vectorBytes, pageBytes);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
     /**
      * Cluster vectors and return sorted order.
      * @return newOrder where newOrder[newIdx] = oldIdx
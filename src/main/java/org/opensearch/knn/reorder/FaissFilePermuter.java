@@ -5,6 +5,7 @@
 
 package org.opensearch.knn.reorder;
 
+import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
@@ -18,12 +19,17 @@ import java.nio.file.Paths;
  * Permutes a .faiss file to match reordered vectors from clustering.
  * 
  * FAISS file structure (for HNSW with ID mapping):
- * - IxMp header (ID mapping wrapper)
- * - IHNf/IHNs (HNSW index with flat storage)
+ * - IxMp/IBMp header (ID mapping wrapper)
+ * - IHNf/IHNs/IBHf (HNSW index with flat storage)
  *   - Common header (dimension, ntotal, metric)
- *   - HNSW graph (neighbors, levels, offsets)
- *   - Flat vector storage (IxF2/IxFI)
+ *   - HNSW graph (levels, offsets, neighbors)
+ *   - Flat vector storage (IxF2/IxFI float vectors, IxSQ scalar quantized codes, IBxF packed binary codes)
  * - ID mapping array
+ *
+ * Permuting moves every per-node record (level, neighbor block, stored vector or code, ID mapping
+ * entry) to its new position and renumbers neighbor ids, so the graph is unchanged apart from node
+ * numbering. For binary and scalar quantized indices this replaces re-quantizing and rebuilding the
+ * graph, and keeps the trained quantizer ranges of the source.
  */
 public class FaissFilePermuter {
 
@@ -35,6 +41,12 @@ public class FaissFilePermuter {
     private static final String IBHF = "IBHf";  // HNSW binary flat
     private static final String IXF2 = "IxF2";  // Flat L2
     private static final String IXFI = "IxFI";  // Flat inner product
+    private static final String IBXF = "IBxF";  // Flat binary
+    private static final String IXSQ = "IxSQ";  // Scalar quantizer storage of IHNs
+
+    // faiss::MetricType as stored in index headers (differs from FaissKMeansService.METRIC_*)
+    public static final int FAISS_METRIC_INNER_PRODUCT = 0;
+    public static final int FAISS_METRIC_L2 = 1;
 
     /**
      * Parsed structure of a FAISS file for permutation.
@@ -61,20 +73,93 @@ public class FaissFilePermuter {
         public boolean isBinary;         // True if binary index (IBMp)
         public String indexType;         // IxMp, IHNf, etc.
         public String hnswType;          // IHNf or IHNs
-        public String flatType;          // IxF2 or IxFI or IBxF
+        public String flatType;          // IxF2, IxFI, IxSQ or IBxF
         public int dimension;
         public int numVectors;
+        public int codeSize;             // Bytes per stored vector in the flat section
+        public int metricType;           // FAISS_METRIC_L2 or FAISS_METRIC_INNER_PRODUCT (float indices)
+        public int m;                    // HNSW M: level 0 holds 2 * M neighbors, upper levels M
+        public int sqType = -1;          // faiss::ScalarQuantizer::QuantizerType of IxSQ storage, else -1
         public int[] cumNeighborsPerLevel;
         public int maxLevel;
         public int entryPoint;
         public int efConstruction;
         public int efSearch;
 
+        /**
+         * index_factory description that rebuilds a float index with the same graph and storage,
+         * e.g. "HNSW16,Flat" or "HNSW32,SQfp16".
+         */
+        public String indexDescription() {
+            return indexDescription(m);
+        }
+
+        /**
+         * Same as {@link #indexDescription()} with a different M.
+         */
+        public String indexDescription(int m) {
+            return "HNSW" + m + "," + storageDescription();
+        }
+
+        private String storageDescription() {
+            if (IXF2.equals(flatType) || IXFI.equals(flatType)) {
+                return "Flat";
+            }
+            if (IXSQ.equals(flatType)) {
+                return switch (sqType) {
+                    case 0 -> "SQ8";
+                    case 1 -> "SQ4";
+                    case 4 -> "SQfp16";
+                    case 5 -> "SQ8_direct";
+                    case 6 -> "SQ6";
+                    case 7 -> "SQbf16";
+                    case 8 -> "SQ8_direct_signed";
+                    default -> throw new IllegalStateException("No index_factory name for scalar quantizer type " + sqType);
+                };
+            }
+            throw new IllegalStateException("Flat storage " + flatType + " has no float index_factory description");
+        }
+
+        /**
+         * Whether vectors are stored as scalar quantizer codes (IHNs with IxSQ storage).
+         */
+        public boolean isScalarQuantized() {
+            return IXSQ.equals(flatType);
+        }
+
+        /**
+         * Whether {@link #permute} should replace a rebuild with the given overrides: quantized storage,
+         * whose rebuild would re-train or re-quantize the codes, and no HNSW parameter that differs
+         * from this file (0 keeps the source value).
+         */
+        public boolean permutableWith(int newM, int newEfConstruction, int newEfSearch) {
+            return (isBinary || isScalarQuantized()) && keepsParameters(newM, newEfConstruction, newEfSearch);
+        }
+
+        /**
+         * Whether none of the given overrides differs from the HNSW parameters of this file (0 keeps
+         * the source value), so {@link #permute} produces the index a rebuild would be asked for.
+         */
+        public boolean keepsParameters(int newM, int newEfConstruction, int newEfSearch) {
+            return (newM == 0 || newM == m)
+                && (newEfConstruction == 0 || newEfConstruction == efConstruction)
+                && (newEfSearch == 0 || newEfSearch == efSearch);
+        }
+
+        /**
+         * Whether the index compares vectors by inner product; k-NN stores cosinesimil that way too.
+         */
+        public boolean isInnerProduct() {
+            return !isBinary && metricType == FAISS_METRIC_INNER_PRODUCT;
+        }
+
         @Override
         public String toString() {
             return String.format(
-                "FaissStructure{type=%s, hnsw=%s, flat=%s, dim=%d, n=%d, maxLevel=%d, entry=%d, efC=%d, efS=%d}",
-                indexType, hnswType, flatType, dimension, numVectors, maxLevel, entryPoint, efConstruction, efSearch
+                "FaissStructure{type=%s, hnsw=%s, flat=%s, dim=%d, n=%d, metric=%s, M=%d, maxLevel=%d, entry=%d, efC=%d, efS=%d}",
+                indexType, hnswType, flatType, dimension, numVectors,
+                isBinary ? "hamming" : isInnerProduct() ? "inner_product" : "l2", m, maxLevel, entryPoint,
+                efConstruction, efSearch
             );
         }
     }
@@ -131,7 +216,10 @@ public class FaissFilePermuter {
                 readLongLE(input); // dummy
                 readLongLE(input); // dummy
                 input.readByte(); // is_trained
-                readIntLE(input);  // metric_type
+                s.metricType = readIntLE(input);
+                if (s.metricType > FAISS_METRIC_L2) {
+                    throw new IOException("Unsupported FAISS metric type " + s.metricType);
+                }
             }
             s.headerEnd = input.getFilePointer();
 
@@ -175,6 +263,9 @@ public class FaissFilePermuter {
                 input.readInts(s.cumNeighborsPerLevel, 0, (int) cumNeighborsSize);
             }
             s.cumNeighborsEnd = input.getFilePointer();
+            if (cumNeighborsSize > 1) {
+                s.m = (s.cumNeighborsPerLevel[1] - s.cumNeighborsPerLevel[0]) / 2;
+            }
 
             // levels section (int per vector)
             s.levelsStart = input.getFilePointer();
@@ -208,7 +299,7 @@ public class FaissFilePermuter {
             if (s.isBinary) {
                 // IBxF (IndexBinaryFlat): dimension(4) + code_size(4) + ntotal(8) + is_trained(1) + metric(4)
                 readIntLE(input);  // dimension
-                int codeSize = readIntLE(input);  // code_size
+                s.codeSize = readIntLE(input);  // code_size
                 readLongLE(input); // ntotal
                 input.readByte(); // is_trained
                 readIntLE(input);  // metric_type
@@ -216,7 +307,28 @@ public class FaissFilePermuter {
                 // Binary vector data: size(8) + data
                 long vectorDataSize = readLongLE(input);
                 input.skipBytes(vectorDataSize);  // Already in bytes
-            } else {
+            } else if (IXSQ.equals(s.flatType)) {
+                // IxSQ (IndexScalarQuantizer): same common header as IndexFlat
+                readIntLE(input);  // dimension
+                readLongLE(input); // ntotal
+                readLongLE(input); // dummy
+                readLongLE(input); // dummy
+                input.readByte(); // is_trained
+                readIntLE(input);  // metric_type
+
+                // ScalarQuantizer: qtype(4) + rangestat(4) + rangestat_arg(4) + d(8) + code_size(8) + trained
+                s.sqType = readIntLE(input);
+                readIntLE(input);  // rangestat
+                readIntLE(input);  // rangestat_arg (float)
+                readLongLE(input); // d
+                s.codeSize = Math.toIntExact(readLongLE(input));
+                long trainedSize = readLongLE(input);
+                input.skipBytes(trainedSize * Float.BYTES);
+
+                // Codes: size in bytes + data
+                long codesSize = readLongLE(input);
+                input.skipBytes(codesSize);
+            } else if (IXF2.equals(s.flatType) || IXFI.equals(s.flatType)) {
                 // IxF2/IxFI (IndexFlat): dimension(4) + ntotal(8) + dummy(8) + dummy(8) + is_trained(1) + metric(4)
                 readIntLE(input);  // dimension
                 readLongLE(input); // ntotal
@@ -224,10 +336,13 @@ public class FaissFilePermuter {
                 readLongLE(input); // dummy
                 input.readByte(); // is_trained
                 readIntLE(input);  // metric_type
+                s.codeSize = s.dimension * Float.BYTES;
 
                 // Float vector data
                 long vectorDataSize = readLongLE(input);
                 input.skipBytes(vectorDataSize * Float.BYTES);
+            } else {
+                throw new IOException("Unsupported flat storage type: " + s.flatType);
             }
             s.flatVectorsEnd = input.getFilePointer();
 
@@ -263,28 +378,27 @@ public class FaissFilePermuter {
              IndexInput input = inDir.openInput(inPath.getFileName().toString(), IOContext.DEFAULT);
              IndexOutput output = outDir.createOutput(outPath.getFileName().toString(), IOContext.DEFAULT)) {
 
-            // Copy header unchanged (IxMp header + IHNf header + assignProbas + cumNeighbors)
+            // Copy header unchanged (IxMp/IBMp header + HNSW header + assignProbas + cumNeighbors)
             copyBytes(input, output, 0, s.cumNeighborsEnd);
 
             // Permute levels section
             permuteLevels(input, output, s, newOrder);
 
-            // Rewrite offsets (need to recompute based on permuted levels)
-            // For now, copy unchanged - TODO: proper recomputation
-            copyBytes(input, output, s.offsetsStart, s.offsetsEnd - s.offsetsStart);
-
-            // Remap neighbor IDs in neighbor lists
-            remapNeighbors(input, output, s, inverse);
+            // Node i owns neighbors[offsets[i], offsets[i + 1]); its block size depends on its level,
+            // so blocks move with their node and offsets are rebuilt from the permuted block sizes
+            long[] offsets = readOffsets(input, s);
+            writePermutedOffsets(output, offsets, newOrder);
+            permuteNeighbors(input, output, s, offsets, newOrder, inverse);
 
             // Copy HNSW params (entryPoint needs remapping)
             output.writeInt(inverse[s.entryPoint]);  // Remap entry point
             input.seek(s.neighborsEnd + 4);  // Skip original entryPoint
             copyBytes(input, output, input.getFilePointer(), s.flatVectorsStart - input.getFilePointer());
 
-            // Permute flat vectors
+            // Permute flat vectors or binary codes
             permuteVectors(input, output, s, newOrder);
 
-            // Copy ID mapping (permute if needed)
+            // Permute ID mapping and write a fresh footer
             permuteIdMapping(input, output, s, newOrder);
         }
     }
@@ -305,48 +419,84 @@ public class FaissFilePermuter {
         }
     }
 
-    private static void remapNeighbors(IndexInput input, IndexOutput output, FaissStructure s, int[] inverse) 
-            throws IOException {
+    static long[] readOffsets(IndexInput input, FaissStructure s) throws IOException {
+        input.seek(s.offsetsStart);
+        long[] offsets = new long[Math.toIntExact(readLongLE(input))];
+        input.readLongs(offsets, 0, offsets.length);
+        return offsets;
+    }
+
+    static void writePermutedOffsets(IndexOutput output, long[] offsets, int[] newOrder) throws IOException {
+        output.writeLong(offsets.length);
+        long offset = 0;
+        output.writeLong(offset);
+        for (int oldIdx : newOrder) {
+            offset += offsets[oldIdx + 1] - offsets[oldIdx];
+            output.writeLong(offset);
+        }
+    }
+
+    /**
+     * Write each node's neighbor block in new order, renumbering neighbor ids with {@code inverse}.
+     *
+     * @param offsets original offsets, from {@link #readOffsets}
+     */
+    static void permuteNeighbors(IndexInput input, IndexOutput output, FaissStructure s, long[] offsets,
+                                 int[] newOrder, int[] inverse) throws IOException {
         input.seek(s.neighborsStart);
         long count = readLongLE(input);
+        long dataStart = input.getFilePointer();
         output.writeLong(count);
 
-        // Read, remap, and write each neighbor ID
-        for (long i = 0; i < count; i++) {
-            int neighborId = readIntLE(input);
-            if (neighborId >= 0 && neighborId < inverse.length) {
-                output.writeInt(inverse[neighborId]);
-            } else {
-                output.writeInt(neighborId);  // Keep -1 terminators unchanged
+        int[] block = new int[0];
+        for (int oldIdx : newOrder) {
+            int size = Math.toIntExact(offsets[oldIdx + 1] - offsets[oldIdx]);
+            if (block.length < size) {
+                block = new int[size];
+            }
+            input.seek(dataStart + offsets[oldIdx] * Integer.BYTES);
+            input.readInts(block, 0, size);
+            for (int j = 0; j < size; j++) {
+                int neighborId = block[j];
+                // Keep -1 padding unchanged
+                output.writeInt(neighborId >= 0 ? inverse[neighborId] : neighborId);
             }
         }
     }
 
     private static void permuteVectors(IndexInput input, IndexOutput output, FaissStructure s, int[] newOrder) 
             throws IOException {
+        boolean binary = IBXF.equals(s.flatType);
+        boolean sq = IXSQ.equals(s.flatType);
+        if (!binary && !sq && !IXF2.equals(s.flatType) && !IXFI.equals(s.flatType)) {
+            throw new IOException("Cannot permute flat storage of type " + s.flatType);
+        }
         input.seek(s.flatVectorsStart);
-        
-        // Copy flat index header
-        byte[] header = new byte[4 + 4 + 8 + 8 + 8 + 1 + 4];  // type + common header
-        input.readBytes(header, 0, header.length);
-        output.writeBytes(header, header.length);
-
-        // Read vector count and data
-        long vectorCount = readLongLE(input);
-        output.writeLong(vectorCount);
-
-        int bytesPerVector = s.dimension * Float.BYTES;
-        long dataStart = input.getFilePointer();
 
-        // Read all vectors
-        byte[][] vectors = new byte[(int) vectorCount][bytesPerVector];
-        for (int i = 0; i < vectorCount; i++) {
-            input.readBytes(vectors[i], 0, bytesPerVector);
+        // Copy flat index header: type + common header
+        long headerLength = binary ? 4 + 4 + 4 + 8 + 1 + 4 : 4 + 4 + 8 + 8 + 8 + 1 + 4;
+        if (sq) {
+            // Scalar quantizer parameters and trained ranges are per dimension, not per vector
+            input.seek(s.flatVectorsStart + headerLength + 4 + 4 + 4 + 8 + 8);
+            headerLength = input.getFilePointer() - s.flatVectorsStart + Long.BYTES + readLongLE(input) * Float.BYTES;
+        }
+        copyBytes(input, output, s.flatVectorsStart, headerLength);
+
+        // Vector data size: bytes for IBxF and IxSQ, floats for IxF2/IxFI
+        long dataSize = readLongLE(input);
+        output.writeLong(dataSize);
+        long dataBytes = binary || sq ? dataSize : dataSize * Float.BYTES;
+        if (dataBytes != (long) s.numVectors * s.codeSize) {
+            throw new IOException("Flat storage holds " + dataBytes + " bytes, expected " + s.numVectors + " x "
+                + s.codeSize);
         }
 
-        // Write in new order
-        for (int newIdx = 0; newIdx < newOrder.length; newIdx++) {
-            output.writeBytes(vectors[newOrder[newIdx]], bytesPerVector);
+        long dataStart = input.getFilePointer();
+        byte[] vector = new byte[s.codeSize];
+        for (int oldIdx : newOrder) {
+            input.seek(dataStart + (long) oldIdx * s.codeSize);
+            input.readBytes(vector, 0, vector.length);
+            output.writeBytes(vector, vector.length);
         }
     }
 
@@ -367,13 +517,19 @@ public class FaissFilePermuter {
             output.writeLong(mapping[newOrder[newIdx]]);
         }
 
-        // Copy any remaining bytes (Lucene footer)
         long remaining = s.fileEnd - input.getFilePointer();
-        if (remaining > 0) {
-            copyBytes(input, output, input.getFilePointer(), remaining);
+        if (remaining == CodecUtil.footerLength() && readBEInt(input) == CodecUtil.FOOTER_MAGIC) {
+            // The old checksum covers the old byte order
+            CodecUtil.writeFooter(output);
+        } else if (remaining > 0) {
+            copyBytes(input, output, s.fileEnd - remaining, remaining);
         }
     }
 
+    private static int readBEInt(IndexInput input) throws IOException {
+        return Integer.reverseBytes(input.readInt());
+    }
+
     private static String readIndexType(IndexInput input) throws IOException {
         byte[] bytes = new byte[4];
         input.readBytes(bytes, 0, 4);
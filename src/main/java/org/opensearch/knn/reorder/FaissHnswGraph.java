@@ -0,0 +1,131 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Level-0 adjacency of a FAISS HNSW graph, read directly from a .faiss file.
+ *
+ * FAISS stores every node's neighbors in one flat int array: node i's level-l neighbors are
+ * {@code neighbors[offsets[i] + cum[l] .. offsets[i] + cum[l + 1])}, padded with -1. Level 0 is
+ * where HNSW search spends nearly all of its time, so it is the only level loaded here. The
+ * adjacency is compacted into CSR form with the -1 padding removed, together with the reverse
+ * (in-neighbor) adjacency, since HNSW edges are not guaranteed to be symmetric.
+ */
+public class FaissHnswGraph {
+
+    private final int numNodes;
+    private final int entryPoint;
+    private final int[] outStart;
+    private final int[] outNeighbors;
+    private final int[] inStart;
+    private final int[] inNeighbors;
+
+    FaissHnswGraph(int numNodes, int entryPoint, int[] outStart, int[] outNeighbors) {
+        this.numNodes = numNodes;
+        this.entryPoint = entryPoint;
+        this.outStart = outStart;
+        this.outNeighbors = outNeighbors;
+
+        this.inStart = new int[numNodes + 1];
+        for (int neighbor : outNeighbors) {
+            inStart[neighbor + 1]++;
+        }
+        for (int i = 0; i < numNodes; i++) {
+            inStart[i + 1] += inStart[i];
+        }
+        int[] fill = new int[numNodes];
+        this.inNeighbors = new int[outNeighbors.length];
+        for (int node = 0; node < numNodes; node++) {
+            for (int j = outStart[node]; j < outStart[node + 1]; j++) {
+                int neighbor = outNeighbors[j];
+                inNeighbors[inStart[neighbor] + fill[neighbor]++] = node;
+            }
+        }
+    }
+
+    /**
+     * Load the level-0 graph of a .faiss file (IxMp/IBMp wrapping IHNf/IHNs/IBHf).
+     */
+    public static FaissHnswGraph load(String faissPath) throws IOException {
+        FaissFilePermuter.FaissStructure s = FaissFilePermuter.parseStructure(faissPath);
+        Path path = Paths.get(faissPath);
+        int n = s.numVectors;
+
+        try (FSDirectory directory = FSDirectory.open(path.getParent());
+             IndexInput input = directory.openInput(path.getFileName().toString(), IOContext.READONCE)) {
+
+            // offsets: size_t count + count size_t values (little-endian, like the rest of FAISS)
+            input.seek(s.offsetsStart);
+            int offsetsCount = Math.toIntExact(input.readLong());
+            long[] offsets = new long[offsetsCount];
+            input.readLongs(offsets, 0, offsetsCount);
+
+            input.seek(s.neighborsStart);
+            int neighborsCount = Math.toIntExact(input.readLong());
+            int[] neighbors = new int[neighborsCount];
+            input.readInts(neighbors, 0, neighborsCount);
+
+            int level0Begin = s.cumNeighborsPerLevel[0];
+            int level0End = s.cumNeighborsPerLevel[1];
+
+            int[] outStart = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                int degree = 0;
+                for (long j = offsets[i] + level0Begin; j < offsets[i] + level0End && neighbors[(int) j] >= 0; j++) {
+                    degree++;
+                }
+                outStart[i + 1] = outStart[i] + degree;
+            }
+            int[] outNeighbors = new int[outStart[n]];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(neighbors, (int) (offsets[i] + level0Begin), outNeighbors, outStart[i], outStart[i + 1] - outStart[i]);
+            }
+            return new FaissHnswGraph(n, s.entryPoint, outStart, outNeighbors);
+        }
+    }
+
+    public int numNodes() {
+        return numNodes;
+    }
+
+    public int entryPoint() {
+        return entryPoint;
+    }
+
+    public int numEdges() {
+        return outNeighbors.length;
+    }
+
+    public int outDegree(int node) {
+        return outStart[node + 1] - outStart[node];
+    }
+
+    /**
+     * Out-neighbor {@code i} of {@code node}, for {@code 0 <= i < outDegree(node)}.
+     */
+    public int outNeighbor(int node, int i) {
+        return outNeighbors[outStart[node] + i];
+    }
+
+    public int inDegree(int node) {
+        return inStart[node + 1] - inStart[node];
+    }
+
+    /**
+     * In-neighbor {@code i} of {@code node}, for {@code 0 <= i < inDegree(node)}.
+     */
+    public int inNeighbor(int node, int i) {
+        return inNeighbors[inStart[node] + i];
+    }
+}
@@ -5,6 +5,7 @@
 
 package org.opensearch.knn.reorder;
 
+import java.io.File;
 import java.io.IOException;
 
 /**
@@ -17,6 +18,55 @@ public class FaissIndexRebuilder {
     public static final String SPACE_L2 = "l2";
     public static final String SPACE_INNER_PRODUCT = "innerproduct";
 
+    /**
+     * HNSW configuration of a rebuilt index.
+     *
+     * @param indexDescription index_factory string, e.g. "HNSW16,Flat" or "HNSW32,SQfp16"
+     * @param spaceType        "l2", "innerproduct" or "cosinesimil"
+     */
+    public record BuildConfig(String indexDescription, int m, int efConstruction, int efSearch, String spaceType) {
+
+        /**
+         * Flat float storage with the given HNSW parameters.
+         */
+        public static BuildConfig flat(int m, int efConstruction, int efSearch, String spaceType) {
+            return new BuildConfig("HNSW" + m + ",Flat", m, efConstruction, efSearch, spaceType);
+        }
+
+        /**
+         * Configuration of the float index {@code sourceFaiss}: M, storage (Flat or SQ type) and ef
+         * values are read from the file. Positive {@code m}, {@code efConstruction} or
+         * {@code efSearch} override the source; 0 keeps it.
+         *
+         * @param spaceType space of the vectors being indexed, or null to use the source metric
+         * @throws IllegalArgumentException if {@code spaceType} disagrees with the source metric,
+         *         since the rebuilt index would silently rank differently
+         */
+        public static BuildConfig inferFrom(String sourceFaiss, SpaceType spaceType, int m, int efConstruction,
+                                            int efSearch) throws IOException {
+            FaissFilePermuter.FaissStructure source = FaissFilePermuter.parseStructure(sourceFaiss);
+            if (source.isBinary) {
+                throw new IllegalArgumentException(sourceFaiss + " is a binary index, not a float index");
+            }
+            boolean innerProduct = source.isInnerProduct();
+            if (spaceType != null
+                    && (spaceType.getMetricType() == FaissKMeansService.METRIC_INNER_PRODUCT) != innerProduct) {
+                throw new IllegalArgumentException(sourceFaiss + " uses " + (innerProduct ? "inner product" : "l2")
+                    + " but space is " + spaceType.getValue());
+            }
+            String space = spaceType != null ? spaceType.getValue() : innerProduct ? SPACE_INNER_PRODUCT : SPACE_L2;
+            int resolvedM = m > 0 ? m : source.m;
+            return new BuildConfig(source.indexDescription(resolvedM), resolvedM,
+                efConstruction > 0 ? efConstruction : source.efConstruction,
+                efSearch > 0 ? efSearch : source.efSearch, space);
+        }
+
+        @Override
+        public String toString() {
+            return indexDescription + " " + spaceType + " efConstruction=" + efConstruction + " efSearch=" + efSearch;
+        }
+    }
+
     /**
      * Build a new FAISS index with vectors in the specified order, composing with existing ID mapping.
      *
@@ -28,7 +78,7 @@ public class FaissIndexRebuilder {
      * @param m            HNSW M parameter (neighbors per node)
      * @param efConstruction ef_construction parameter
      * @param efSearch     ef_search parameter (stored in index for search)
-     * @param spaceType    "l2" or "innerproduct"
+     * @param spaceType    "l2", "innerproduct" or "cosinesimil" (vectors must already be normalized)
      */
     public static void rebuild(
         float[][] vectors,
@@ -40,6 +90,66 @@ public class FaissIndexRebuilder {
         int efConstruction,
         int efSearch,
         String spaceType
+    ) throws IOException {
+        rebuild(vectors, newOrder, oldIdMapping, dim, outputPath, m, efConstruction, efSearch, spaceType, null);
+    }
+
+    /**
+     * Same as above, recording the JNI copy and the index build as phases of {@code metrics}.
+     *
+     * @param metrics segment to record phases in, or null
+     */
+    public static void rebuild(
+        float[][] vectors,
+        int[] newOrder,
+        long[] oldIdMapping,
+        int dim,
+        String outputPath,
+        int m,
+        int efConstruction,
+        int efSearch,
+        String spaceType,
+        ReorderMetrics.Segment metrics
+    ) throws IOException {
+        rebuild(vectors, newOrder, oldIdMapping, dim, outputPath, m, efConstruction, efSearch, spaceType, metrics, 0);
+    }
+
+    /**
+     * Same as above, building the graph with {@code threads} OpenMP threads instead of the
+     * process-wide default, and printing the achieved build throughput.
+     *
+     * @param threads OpenMP threads for the HNSW build, or 0 for the calling thread's setting
+     */
+    public static void rebuild(
+        float[][] vectors,
+        int[] newOrder,
+        long[] oldIdMapping,
+        int dim,
+        String outputPath,
+        int m,
+        int efConstruction,
+        int efSearch,
+        String spaceType,
+        ReorderMetrics.Segment metrics,
+        int threads
+    ) throws IOException {
+        rebuild(vectors, newOrder, oldIdMapping, dim, outputPath,
+            BuildConfig.flat(m, efConstruction, efSearch, spaceType), metrics, threads);
+    }
+
+    /**
+     * Same as above with the index description, metric and ef values of {@code config}, e.g. those
+     * of the source index from {@link BuildConfig#inferFrom}.
+     */
+    public static void rebuild(
+        float[][] vectors,
+        int[] newOrder,
+        long[] oldIdMapping,
+        int dim,
+        String outputPath,
+        BuildConfig config,
+        ReorderMetrics.Segment metrics,
+        int threads
     ) throws IOException {
         int n = vectors.length;
         
@@ -49,28 +159,107 @@ public class FaissIndexRebuilder {
             reordered[newIdx] = vectors[newOrder[newIdx]];
         }
         
+        // Transfer reordered vectors to native memory
+        long vectorsAddr;
+        try (ReorderMetrics.Phase phase = ReorderMetrics.phase(metrics, "jni-copy")) {
+            vectorsAddr = FaissKMeansService.storeVectors(reordered);
+            if (phase != null) {
+                phase.bytesWritten((long) n * dim * Float.BYTES).items(n);
+            }
+        }
+        try {
+            rebuild(vectorsAddr, n, dim, newOrder, oldIdMapping, outputPath, config, metrics, threads);
+        } finally {
+            FaissKMeansService.freeVectors(vectorsAddr);
+        }
+    }
+
+    /**
+     * Same as above from vectors already in native memory in their new order, e.g. from
+     * {@link VecFileIO#loadVectorsOffHeap}, so the segment does not have to be on the heap. The
+     * memory stays owned by the caller.
+     *
+     * @param reorderedVectors pointer to numVectors * dim floats, vector newOrder[i] at position i
+     */
+    public static void rebuild(
+        long reorderedVectors,
+        int numVectors,
+        int dim,
+        int[] newOrder,
+        long[] oldIdMapping,
+        String outputPath,
+        BuildConfig config,
+        ReorderMetrics.Segment metrics,
+        int threads
+    ) throws IOException {
         // Compose ID mapping: newIdMapping[newIdx] = oldIdMapping[oldIdx] = docID
-        int[] newIdMapping = new int[n];
-        for (int newIdx = 0; newIdx < n; newIdx++) {
+        int[] newIdMapping = new int[numVectors];
+        for (int newIdx = 0; newIdx < numVectors; newIdx++) {
             int oldIdx = newOrder[newIdx];
             newIdMapping[newIdx] = (int) oldIdMapping[oldIdx];
         }
-        
-        // Transfer reordered vectors to native memory
-        long vectorsAddr = FaissKMeansService.storeVectors(reordered);
-        
-        try {
-            String indexDescription = "HNSW" + m + ",Flat";
+
+        try (ReorderMetrics.Phase phase = ReorderMetrics.phase(metrics, "faiss-build")) {
+            long start = System.nanoTime();
             FaissIndexService.buildAndWriteIndex(
-                vectorsAddr, n, dim, newIdMapping,
-                indexDescription, spaceType, efConstruction, efSearch,
-                outputPath
+                reorderedVectors, numVectors, dim, newIdMapping,
+                config.indexDescription(), config.spaceType(), config.efConstruction(), config.efSearch(),
+                outputPath, threads
             );
+            printThroughput(numVectors, System.nanoTime() - start, threads);
+            if (phase != null) {
+                phase.bytesWritten(new File(outputPath).length()).items(numVectors);
+            }
+        }
+    }
+
+    /**
+     * Same as above reading the vectors of {@code vecFile} straight into native memory in their new
+     * order with {@code threads} readers ({@link VecFileIO#DEFAULT_LOAD_THREADS} for 0), for a caller
+     * that does not have them on the heap. The vectors are indexed as stored, so this does not suit
+     * spaces that need normalized vectors.
+     */
+    public static void rebuild(
+        String vecFile,
+        int[] newOrder,
+        long[] oldIdMapping,
+        String outputPath,
+        BuildConfig config,
+        ReorderMetrics.Segment metrics,
+        int threads
+    ) throws IOException {
+        VecFileIO.VecFileMeta meta = VecFileIO.readMetadata(vecFile);
+        long vectorsAddr;
+        try (ReorderMetrics.Phase phase = ReorderMetrics.phase(metrics, "load-vectors-off-heap")) {
+            long start = System.nanoTime();
+            vectorsAddr = VecFileIO.loadVectorsOffHeap(vecFile, newOrder,
+                threads > 0 ? threads : VecFileIO.DEFAULT_LOAD_THREADS);
+            long nanos = System.nanoTime() - start;
+            System.out.printf("  Loaded %d vectors off-heap in %d ms (%.0f MB/s)%n", meta.size(), nanos / 1_000_000,
+                ReorderMetrics.mbPerSecond(meta.dataLength(), nanos));
+            if (phase != null) {
+                phase.bytesRead(meta.dataLength()).items(meta.size());
+            }
+        }
+        try {
+            rebuild(vectorsAddr, meta.size(), meta.dimension(), newOrder, oldIdMapping, outputPath, config, metrics,
+                threads);
         } finally {
             FaissKMeansService.freeVectors(vectorsAddr);
         }
     }
 
+    /**
+     * Print HNSW build throughput in vectors per second.
+     *
+     * @param threads threads passed to the build, or 0 if it used the calling thread's setting
+     */
+    static void printThroughput(int numVectors, long nanos, int threads) {
+        int effectiveThreads = threads > 0 ? threads : FaissIndexService.getThreads();
+        System.out.printf("  HNSW build: %d vectors in %d ms (%.0f vectors/s, %d threads)%n",
+            numVectors, nanos / 1_000_000, nanos == 0 ? 0.0 : numVectors * 1e9 / nanos, effectiveThreads);
+    }
+
     /**
      * Build a new FAISS index without existing ID mapping (uses ordinal as docID).
      */
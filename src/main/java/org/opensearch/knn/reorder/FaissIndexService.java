@@ -5,6 +5,8 @@
 
 package org.opensearch.knn.reorder;
 
+import java.nio.ByteBuffer;
+
 /**
  * JNI service for building FAISS HNSW indices.
  * 
@@ -27,11 +29,13 @@ public class FaissIndexService {
      * @param numVectors number of vectors
      * @param dimension dimension of each vector
      * @param ids array of IDs for each vector (becomes the ID mapping in IxMp wrapper)
-     * @param indexDescription FAISS index description (e.g., "HNSW16,Flat")
-     * @param spaceType "l2" or "innerproduct" 
+     * @param indexDescription FAISS index description (e.g., "HNSW16,Flat" or "HNSW16,SQfp16"); storage that
+     *                         needs training (SQ8, SQ6, SQ4) is trained on the given vectors
+     * @param spaceType "l2", "innerproduct" or "cosinesimil" (vectors must already be normalized)
      * @param efConstruction ef_construction parameter for HNSW graph building
      * @param efSearch ef_search parameter for HNSW search (stored in index)
      * @param outputPath path to write the .faiss file
+     * @param numThreads OpenMP threads for this build, or 0 for the calling thread's setting (see {@link #setThreads})
      */
     public static native void buildAndWriteIndex(
         long vectorsAddress, 
@@ -42,13 +46,16 @@ public class FaissIndexService {
         String spaceType,
         int efConstruction,
         int efSearch,
-        String outputPath
+        String outputPath,
+        int numThreads
     );
 
     /**
      * Build a FAISS binary HNSW index from quantized vectors and write to file.
      * 
-     * @param vectors byte array of quantized vectors (n * bytesPerVector)
+     * @param codesAddress pointer to native memory from {@link #allocateCodes} holding the packed codes
+     *                     (numVectors * dimension / 8 bytes, in insertion order)
+     * @param codesLength number of bytes at {@code codesAddress}; must equal numVectors * dimension / 8
      * @param numVectors number of vectors
      * @param dimension dimension in bits (original dim aligned to 8)
      * @param ids array of IDs for each vector
@@ -56,15 +63,60 @@ public class FaissIndexService {
      * @param efConstruction ef_construction parameter
      * @param efSearch ef_search parameter
      * @param outputPath path to write the .faiss file
+     * @param numThreads OpenMP threads for this build, or 0 for the calling thread's setting (see {@link #setThreads})
      */
     public static native void buildAndWriteBinaryIndex(
-        byte[] vectors,
+        long codesAddress,
+        long codesLength,
         int numVectors,
         int dimension,
         int[] ids,
         int hnswM,
         int efConstruction,
         int efSearch,
-        String outputPath
+        String outputPath,
+        int numThreads
     );
+
+    /**
+     * Set the number of OpenMP threads FAISS uses (omp_set_num_threads). OpenMP keeps this per native
+     * thread, so it applies to later calls from the calling Java thread only; jobs that build on
+     * other threads should pass their budget as the per-call {@code numThreads} instead.
+     *
+     * @param numThreads number of threads, at least 1
+     */
+    public static native void setThreads(int numThreads);
+
+    /**
+     * Number of OpenMP threads FAISS calls from the calling Java thread will use (omp_get_max_threads).
+     */
+    public static native int getThreads();
+
+    /**
+     * Allocate uninitialized native memory for packed binary codes, to be filled through
+     * {@link #codesView} and released with {@link #freeCodes}. The size is a long, so the codes of a
+     * segment are not limited to 2 GB like a Java byte[].
+     *
+     * @param numBytes number of bytes
+     * @return pointer to native memory
+     */
+    public static native long allocateCodes(long numBytes);
+
+    /**
+     * Direct {@link ByteBuffer} over {@code length} bytes of memory from {@link #allocateCodes},
+     * starting at {@code offset}. Writes go straight to native memory; the view must not be used
+     * after {@link #freeCodes}.
+     *
+     * @param address pointer to native memory
+     * @param offset byte offset into the allocation
+     * @param length number of bytes in the view
+     */
+    public static native ByteBuffer codesView(long address, long offset, int length);
+
+    /**
+     * Free native memory from {@link #allocateCodes}
+     *
+     * @param address pointer to native memory
+     */
+    public static native void freeCodes(long address);
 }
@@ -12,6 +12,10 @@ public class FaissKMeansService {
     
     public static final int METRIC_L2 = 0;
     public static final int METRIC_INNER_PRODUCT = 1;
+
+    public static final int DEFAULT_CENTROID_HNSW_M = 32;
+    public static final int DEFAULT_CENTROID_EF_SEARCH = 64;
+    public static final int DEFAULT_ASSIGN_BATCH_SIZE = 65536;
     
     static {
         System.loadLibrary("vectorreorder_faiss");
@@ -43,6 +47,40 @@ public class FaissKMeansService {
     public static native KMeansResult kmeansWithDistances(long vectorsAddress, int numVectors, int dimension, 
                                                           int numClusters, int numIterations, int metricType);
 
+    /**
+     * Run k-means clustering with approximate nearest-centroid assignment. Centroids are indexed
+     * with HNSW rather than searched exhaustively, so each assignment pass costs O(n log k) instead
+     * of O(n * k); this is what makes k in the thousands practical on large segments.
+     *
+     * @param vectorsAddress pointer to native memory where vectors are stored
+     * @param numVectors number of vectors
+     * @param dimension dimension of each vector
+     * @param numClusters number of clusters (k)
+     * @param numIterations number of k-means iterations
+     * @param metricType METRIC_L2 or METRIC_INNER_PRODUCT
+     * @param hnswM M of the centroid HNSW graph
+     * @param efSearch ef_search of the centroid HNSW graph; higher values trade speed for assignment recall
+     * @param batchSize number of vectors searched per batch in the final assignment pass
+     * @return KMeansResult containing assignments and distances
+     */
+    public static native KMeansResult kmeansWithDistancesApprox(long vectorsAddress, int numVectors, int dimension,
+                                                                int numClusters, int numIterations, int metricType,
+                                                                int hnswM, int efSearch, int batchSize);
+
+    /**
+     * Run k-means clustering and return the trained centroids
+     *
+     * @param vectorsAddress pointer to native memory where vectors are stored
+     * @param numVectors number of vectors
+     * @param dimension dimension of each vector
+     * @param numClusters number of clusters (k)
+     * @param numIterations number of k-means iterations
+     * @param metricType METRIC_L2 or METRIC_INNER_PRODUCT
+     * @return centroids, row-major (numClusters * dimension floats)
+     */
+    public static native float[] trainCentroids(long vectorsAddress, int numVectors, int dimension,
+                                                int numClusters, int numIterations, int metricType);
+
     /**
      * Allocate native memory and copy vectors into it
      *
@@ -51,6 +89,28 @@ public class FaissKMeansService {
      */
     public static native long storeVectors(float[][] vectors);
 
+    /**
+     * Allocate uninitialized native memory for {@code numVectors * dimension} floats, to be filled
+     * with {@link #copyVectors} and released with {@link #freeVectors}. Unlike {@link #storeVectors},
+     * the vectors never have to be on the heap all at once.
+     *
+     * @param numVectors number of vectors
+     * @param dimension dimension of each vector
+     * @return pointer to native memory
+     */
+    public static native long allocateVectors(long numVectors, int dimension);
+
+    /**
+     * Copy a row-major batch of vectors into memory from {@link #allocateVectors}.
+     *
+     * @param address pointer to native memory
+     * @param startVector ordinal of the first vector in the batch
+     * @param batch row-major vectors
+     * @param numVectors number of vectors in the batch
+     * @param dimension dimension of each vector
+     */
+    public static native void copyVectors(long address, long startVector, float[] batch, int numVectors, int dimension);
+
     /**
      * Free native memory
      *
@@ -0,0 +1,328 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Computes a vector order from the HNSW graph itself rather than from vector geometry, so that
+ * nodes visited together during a graph traversal end up close together on disk.
+ *
+ * <ul>
+ *   <li>{@link Method#GORDER}: Gorder's windowed greedy (Wei et al., "Speedup Graph Processing by
+ *       Graph Ordering", SIGMOD 2016). Each next node maximizes its score against the last
+ *       {@code window} placed nodes, where the score of a pair counts direct edges between them
+ *       plus in-neighbors they share.</li>
+ *   <li>{@link Method#RCM}: Reverse Cuthill-McKee over the symmetrized graph, which minimizes
+ *       bandwidth (the largest ordinal gap of any edge).</li>
+ *   <li>{@link Method#DEGREE}: nodes sorted by descending total degree, so hubs are packed
+ *       together at the front.</li>
+ * </ul>
+ *
+ * Gorder is sequential by nature. It is parallelized by cutting the RCM order into contiguous
+ * partitions, which keeps most edges inside a partition, and running the greedy on each
+ * partition independently, ignoring cut edges.
+ */
+public class GraphReorderer {
+
+    public static final int DEFAULT_WINDOW = 5;
+    public static final int DEFAULT_PARTITION_SIZE = 1 << 18;
+
+    public enum Method {
+        GORDER,
+        RCM,
+        DEGREE;
+
+        public static Method fromName(String name) {
+            return Method.valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Compute a graph order with default parameters.
+     * @return newOrder where newOrder[newIdx] = oldIdx
+     */
+    public static int[] computePermutation(FaissHnswGraph graph, Method method) {
+        return computePermutation(graph, method, DEFAULT_WINDOW, DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * Compute a graph order.
+     *
+     * @param graph         level-0 HNSW adjacency
+     * @param method        ordering algorithm
+     * @param window        Gorder window size
+     * @param partitionSize Gorder partition size; each partition is ordered on its own thread
+     * @return newOrder where newOrder[newIdx] = oldIdx
+     */
+    public static int[] computePermutation(FaissHnswGraph graph, Method method, int window, int partitionSize) {
+        return switch (method) {
+            case GORDER -> gorder(graph, window, partitionSize);
+            case RCM -> reverseCuthillMcKee(graph);
+            case DEGREE -> degreeSort(graph);
+        };
+    }
+
+    /**
+     * Nodes by descending in+out degree, ties broken by original ordinal.
+     */
+    static int[] degreeSort(FaissHnswGraph graph) {
+        int n = graph.numNodes();
+        long[] keys = new long[n];
+        IntStream.range(0, n).parallel().forEach(node -> {
+            int degree = graph.outDegree(node) + graph.inDegree(node);
+            keys[node] = ((long) -degree << 32) | node;
+        });
+        Arrays.parallelSort(keys);
+        int[] newOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            newOrder[i] = (int) keys[i];
+        }
+        return newOrder;
+    }
+
+    /**
+     * Reverse Cuthill-McKee: BFS from a minimum-degree node of each component, visiting neighbors
+     * in increasing degree order, then reverse the whole sequence.
+     */
+    static int[] reverseCuthillMcKee(FaissHnswGraph graph) {
+        int n = graph.numNodes();
+        int[] degree = new int[n];
+        IntStream.range(0, n).parallel().forEach(node -> degree[node] = graph.outDegree(node) + graph.inDegree(node));
+
+        // Component start candidates, lowest degree first
+        long[] byDegree = new long[n];
+        for (int node = 0; node < n; node++) {
+            byDegree[node] = ((long) degree[node] << 32) | node;
+        }
+        Arrays.parallelSort(byDegree);
+
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        long[] frontier = new long[0];
+        int head = 0;
+        int tail = 0;
+        for (long startKey : byDegree) {
+            int start = (int) startKey;
+            if (visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            order[tail++] = start;
+            while (head < tail) {
+                int node = order[head++];
+                int outDegree = graph.outDegree(node);
+                int inDegree = graph.inDegree(node);
+                if (frontier.length < outDegree + inDegree) {
+                    frontier = new long[outDegree + inDegree];
+                }
+                int count = 0;
+                for (int i = 0; i < outDegree; i++) {
+                    int neighbor = graph.outNeighbor(node, i);
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        frontier[count++] = ((long) degree[neighbor] << 32) | neighbor;
+                    }
+                }
+                for (int i = 0; i < inDegree; i++) {
+                    int neighbor = graph.inNeighbor(node, i);
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        frontier[count++] = ((long) degree[neighbor] << 32) | neighbor;
+                    }
+                }
+                Arrays.sort(frontier, 0, count);
+                for (int i = 0; i < count; i++) {
+                    order[tail++] = (int) frontier[i];
+                }
+            }
+        }
+
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Gorder over RCM partitions, one partition per task.
+     */
+    static int[] gorder(FaissHnswGraph graph, int window, int partitionSize) {
+        int n = graph.numNodes();
+        int[] base = n > partitionSize ? reverseCuthillMcKee(graph) : identity(n);
+        // Partitions are disjoint, so one array holds every node's partition and local index
+        int[] partitionOf = new int[n];
+        int[] localIndex = new int[n];
+        int numPartitions = (n + partitionSize - 1) / partitionSize;
+        for (int i = 0; i < n; i++) {
+            partitionOf[base[i]] = i / partitionSize;
+            localIndex[base[i]] = i % partitionSize;
+        }
+
+        int[] newOrder = new int[n];
+        IntStream.range(0, numPartitions).parallel().forEach(p -> {
+            int from = p * partitionSize;
+            int to = Math.min(n, from + partitionSize);
+            int[] nodes = Arrays.copyOfRange(base, from, to);
+            int[] ordered = gorderPartition(graph, nodes, p, partitionOf, localIndex, window);
+            System.arraycopy(ordered, 0, newOrder, from, ordered.length);
+        });
+        return newOrder;
+    }
+
+    /**
+     * Windowed greedy over one partition. Scores are maintained incrementally: when a node enters
+     * the window, its unplaced out-neighbors, its in-neighbors, and the other out-neighbors of its
+     * in-neighbors (its siblings) each gain one point; when it leaves the window they lose it.
+     */
+    private static int[] gorderPartition(FaissHnswGraph graph, int[] nodes, int partition, int[] partitionOf,
+                                         int[] localIndex, int window) {
+        int size = nodes.length;
+        UnitHeap heap = new UnitHeap(size);
+
+        // Start from the node with the highest in-degree, as in the reference implementation
+        int start = 0;
+        for (int i = 1; i < size; i++) {
+            if (graph.inDegree(nodes[i]) > graph.inDegree(nodes[start])) {
+                start = i;
+            }
+        }
+
+        int[] placed = new int[size];
+        heap.remove(start);
+        placed[0] = start;
+        updateScores(graph, nodes[start], partition, partitionOf, localIndex, heap, true);
+        for (int i = 1; i < size; i++) {
+            if (i > window) {
+                updateScores(graph, nodes[placed[i - window - 1]], partition, partitionOf, localIndex, heap, false);
+            }
+            int next = heap.extractMax();
+            placed[i] = next;
+            updateScores(graph, nodes[next], partition, partitionOf, localIndex, heap, true);
+        }
+
+        int[] ordered = new int[size];
+        for (int i = 0; i < size; i++) {
+            ordered[i] = nodes[placed[i]];
+        }
+        return ordered;
+    }
+
+    private static void updateScores(FaissHnswGraph graph, int node, int partition, int[] partitionOf,
+                                     int[] localIndex, UnitHeap heap, boolean increment) {
+        int outDegree = graph.outDegree(node);
+        for (int i = 0; i < outDegree; i++) {
+            int neighbor = graph.outNeighbor(node, i);
+            if (partitionOf[neighbor] == partition) {
+                heap.update(localIndex[neighbor], increment);
+            }
+        }
+        int inDegree = graph.inDegree(node);
+        for (int i = 0; i < inDegree; i++) {
+            int parent = graph.inNeighbor(node, i);
+            if (partitionOf[parent] == partition) {
+                heap.update(localIndex[parent], increment);
+            }
+            int siblings = graph.outDegree(parent);
+            for (int j = 0; j < siblings; j++) {
+                int sibling = graph.outNeighbor(parent, j);
+                if (sibling != node && partitionOf[sibling] == partition) {
+                    heap.update(localIndex[sibling], increment);
+                }
+            }
+        }
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * Max-priority queue over integer keys that only ever change by one, as in Gorder. Nodes with
+     * equal keys share a doubly-linked bucket, so update and extract-max are O(1) amortized.
+     */
+    static final class UnitHeap {
+        private final int[] key;
+        private final int[] prev;
+        private final int[] next;
+        private final boolean[] removed;
+        private int[] bucketHead;
+        private int maxKey;
+
+        UnitHeap(int size) {
+            key = new int[size];
+            prev = new int[size];
+            next = new int[size];
+            removed = new boolean[size];
+            bucketHead = new int[16];
+            Arrays.fill(bucketHead, -1);
+            // Every node starts in bucket 0, in index order
+            for (int i = 0; i < size; i++) {
+                prev[i] = i - 1;
+                next[i] = i + 1 < size ? i + 1 : -1;
+            }
+            bucketHead[0] = size > 0 ? 0 : -1;
+        }
+
+        void update(int i, boolean increment) {
+            if (removed[i]) {
+                return;
+            }
+            unlink(i);
+            key[i] += increment ? 1 : -1;
+            link(i);
+        }
+
+        void remove(int i) {
+            unlink(i);
+            removed[i] = true;
+        }
+
+        int extractMax() {
+            while (bucketHead[maxKey] == -1) {
+                maxKey--;
+            }
+            int i = bucketHead[maxKey];
+            remove(i);
+            return i;
+        }
+
+        private void unlink(int i) {
+            if (prev[i] >= 0) {
+                next[prev[i]] = next[i];
+            } else {
+                bucketHead[key[i]] = next[i];
+            }
+            if (next[i] >= 0) {
+                prev[next[i]] = prev[i];
+            }
+        }
+
+        private void link(int i) {
+            int k = key[i];
+            if (k >= bucketHead.length) {
+                int oldLength = bucketHead.length;
+                bucketHead = Arrays.copyOf(bucketHead, Math.max(k + 1, oldLength * 2));
+                Arrays.fill(bucketHead, oldLength, bucketHead.length, -1);
+            }
+            prev[i] = -1;
+            next[i] = bucketHead[k];
+            if (next[i] >= 0) {
+                prev[next[i]] = i;
+            }
+            bucketHead[k] = i;
+            maxKey = Math.max(maxKey, k);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RandomAccessInput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LongHeap;
+import org.apache.lucene.util.VectorUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Offline HNSW searcher over a .faiss file, used to predict how much a permutation would reduce
+ * page faults before rebuilding anything.
+ *
+ * Queries run once against the graph as stored, following FAISS's search: a greedy descent through
+ * the upper levels, then a best-first search of level 0 with {@code efSearch} results. Every read a
+ * search makes is recorded in order: the offsets entry and neighbor list of each expanded node and
+ * the vector of each visited node. Traversal does not depend on storage order, so one trace serves
+ * every candidate order. {@link #replay} maps the trace onto the file layout the permutation would
+ * produce and runs it through an LRU page cache sized to a RAM budget.
+ *
+ * Latency is modelled as the measured CPU time of each query plus a fixed cost per page fault.
+ * Recall is measured against exact search over the same vectors.
+ *
+ * Only flat float storage (IxF2/IxFI) is supported, since vectors are read from the .faiss file.
+ */
+public class HnswSearchSimulator {
+
+    public static final int DEFAULT_NUM_QUERIES = 1000;
+    public static final int DEFAULT_EF_SEARCH = 100;
+    public static final int DEFAULT_K = 10;
+    public static final int DEFAULT_PAGE_BYTES = 4096;
+    public static final double DEFAULT_FAULT_MICROS = 100;
+
+    // Trace event kinds, stored in the upper 32 bits of each event
+    private static final long VECTOR_READ = 0;
+    private static final long NEIGHBOR_READ_LEVEL0 = 1;
+
+    /**
+     * An HNSW graph and its flat vectors, read in place from a .faiss file.
+     */
+    public static class Index implements Closeable {
+        final FaissFilePermuter.FaissStructure structure;
+        final int[] levels;
+        final int[] cumNeighborsPerLevel;
+        final long offsetsDataStart;
+        final long neighborsDataStart;
+        final long vectorsDataStart;
+        final int vectorBytes;
+        final VecFileVectorValues vectors;
+        private final IndexInput input;
+        private final RandomAccessInput offsets;
+        private final RandomAccessInput neighbors;
+        private final FSDirectory directory;
+
+        private Index(FaissFilePermuter.FaissStructure structure, int[] levels, FSDirectory directory, IndexInput input,
+                      VecFileVectorValues vectors) throws IOException {
+            this.structure = structure;
+            this.levels = levels;
+            this.cumNeighborsPerLevel = structure.cumNeighborsPerLevel;
+            this.directory = directory;
+            this.input = input;
+            this.vectors = vectors;
+            this.vectorBytes = structure.dimension * Float.BYTES;
+            // Each section is a size_t count followed by the data
+            this.offsetsDataStart = structure.offsetsStart + Long.BYTES;
+            this.neighborsDataStart = structure.neighborsStart + Long.BYTES;
+            // IxF2/IxFI: fourcc + common header (4 + 8 + 8 + 8 + 1 + 4) + size_t count
+            this.vectorsDataStart = structure.flatVectorsStart + 4 + 33 + Long.BYTES;
+            this.offsets = input.randomAccessSlice(offsetsDataStart, structure.offsetsEnd - offsetsDataStart);
+            this.neighbors = input.randomAccessSlice(neighborsDataStart, structure.neighborsEnd - neighborsDataStart);
+        }
+
+        public static Index open(String faissPath, SpaceType spaceType) throws IOException {
+            FaissFilePermuter.FaissStructure s = FaissFilePermuter.parseStructure(faissPath);
+            if (s.isBinary || !("IxF2".equals(s.flatType) || "IxFI".equals(s.flatType))) {
+                throw new IOException("Only flat float storage is supported, got: " + s.flatType);
+            }
+            Path path = Paths.get(faissPath);
+            FSDirectory directory = FSDirectory.open(path.getParent());
+            IndexInput input = null;
+            VecFileVectorValues vectors = null;
+            boolean success = false;
+            try {
+                input = directory.openInput(path.getFileName().toString(), IOContext.DEFAULT);
+                input.seek(s.levelsStart);
+                int[] levels = new int[Math.toIntExact(input.readLong())];
+                input.readInts(levels, 0, levels.length);
+
+                long vectorsStart = s.flatVectorsStart + 4 + 33 + Long.BYTES;
+                vectors = VecFileVectorValues.open(path, vectorsStart, (long) s.numVectors * s.dimension * Float.BYTES,
+                    s.dimension, s.numVectors, spaceType.isNormalized());
+                Index index = new Index(s, levels, directory, input, vectors);
+                success = true;
+                return index;
+            } finally {
+                if (!success) {
+                    IOUtils.closeWhileHandlingException(vectors, input, directory);
+                }
+            }
+        }
+
+        public int size() {
+            return structure.numVectors;
+        }
+
+        long offset(int node) throws IOException {
+            return offsets.readLong((long) node * Long.BYTES);
+        }
+
+        int neighbor(long position) throws IOException {
+            return neighbors.readInt(position * Integer.BYTES);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(vectors, input, directory);
+        }
+    }
+
+    /**
+     * Reads made by one query, its top-k result and the CPU time it took.
+     *
+     * Each event packs a kind in the upper 32 bits and a node in the lower 32: kind 0 reads the
+     * node's vector, kind l + 1 reads its offsets entry and level-l neighbor list.
+     */
+    public record QueryTrace(long[] events, int[] topK, long cpuNanos) {}
+
+    /**
+     * Simulation outcome for one order.
+     */
+    public record Result(long faults, long accesses, double recall, double p50Millis, double p90Millis,
+                         double p99Millis, double averageVectorsRead, int measuredQueries) {
+
+        public void print(String label) {
+            System.out.println("=== " + label + " ===");
+            System.out.printf("  Page faults: %d (%.1f per query, hit rate %.2f%%)%n",
+                faults, (double) faults / measuredQueries, 100.0 * (accesses - faults) / Math.max(1, accesses));
+            System.out.printf("  Recall: %.4f%n", recall);
+            System.out.printf("  Latency: p50=%.3f ms, p90=%.3f ms, p99=%.3f ms%n", p50Millis, p90Millis, p99Millis);
+            System.out.printf("  Vectors read per query: %.1f%n", averageVectorsRead);
+        }
+    }
+
+    /**
+     * Run every query against the index and record its trace. Query time is the CPU time of the
+     * calling thread, or wall time on a JVM that cannot measure thread CPU time.
+     */
+    public static QueryTrace[] run(Index index, float[][] queries, SpaceType spaceType, int efSearch, int k)
+            throws IOException {
+        QueryTrace[] traces = new QueryTrace[queries.length];
+        int[] visitedEpoch = new int[index.size()];
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean threadCpu = threads.isCurrentThreadCpuTimeSupported();
+        for (int q = 0; q < queries.length; q++) {
+            long start = threadCpu ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+            TraceBuilder trace = new TraceBuilder();
+            int[] topK = search(index, queries[q], spaceType, Math.max(efSearch, k), k, visitedEpoch, q + 1, trace);
+            long end = threadCpu ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+            traces[q] = new QueryTrace(trace.toArray(), topK, end - start);
+        }
+        return traces;
+    }
+
+    /**
+     * Exact top-k ordinals of each query, computed in parallel over queries.
+     */
+    public static int[][] groundTruth(Index index, float[][] queries, SpaceType spaceType, int k) {
+        int n = index.size();
+        int[][] truth = new int[queries.length][];
+        IntStream.range(0, queries.length).parallel().forEach(q -> {
+            FloatVectorValues vectors = index.vectors.copy();
+            // Keep the k closest: the heap top is the farthest kept, stored as a negated distance
+            LongHeap heap = new LongHeap(k);
+            try {
+                for (int i = 0; i < n; i++) {
+                    heap.insertWithOverflow(LocalityAnalyzer.encode(-LocalityAnalyzer.distance(vectors.vectorValue(i), queries[q], spaceType), i));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            truth[q] = drain(heap, k);
+        });
+        return truth;
+    }
+
+    /**
+     * Replay traces against the layout a permutation would produce.
+     *
+     * @param newOrder       newOrder[newIdx] = oldIdx, in the ordinals of the simulated file
+     * @param pageBytes      page size
+     * @param cacheBytes     page cache budget
+     * @param faultMicros    latency added per page fault
+     * @param warmupQueries  leading queries that only warm the cache and are not measured
+     * @param groundTruth    exact top-k per query, or null to skip recall
+     */
+    public static Result replay(Index index, QueryTrace[] traces, int[] newOrder, int pageBytes, long cacheBytes,
+                                double faultMicros, int warmupQueries, int[][] groundTruth) {
+        int n = index.size();
+        int[] position = new int[n];
+        for (int newIdx = 0; newIdx < n; newIdx++) {
+            position[newOrder[newIdx]] = newIdx;
+        }
+        // Neighbor blocks move with their node; offsets are prefix sums of block sizes in new order
+        long[] newOffsets = new long[n];
+        long running = 0;
+        for (int newIdx = 0; newIdx < n; newIdx++) {
+            newOffsets[newIdx] = running;
+            running += index.cumNeighborsPerLevel[index.levels[newOrder[newIdx]]];
+        }
+
+        LruPageCache cache = new LruPageCache(Math.max(1, cacheBytes / pageBytes));
+        int measured = traces.length - warmupQueries;
+        if (measured <= 0) {
+            throw new IllegalArgumentException("warmupQueries must be smaller than the number of queries");
+        }
+        double[] latencies = new double[measured];
+        long faults = 0;
+        long accesses = 0;
+        long vectorsRead = 0;
+        double recallSum = 0;
+
+        for (int q = 0; q < traces.length; q++) {
+            long queryFaults = 0;
+            long queryAccesses = 0;
+            long queryVectors = 0;
+            for (long event : traces[q].events()) {
+                int node = (int) event;
+                int kind = (int) (event >>> 32);
+                int pos = position[node];
+                long from;
+                long length;
+                if (kind == VECTOR_READ) {
+                    from = index.vectorsDataStart + (long) pos * index.vectorBytes;
+                    length = index.vectorBytes;
+                    queryVectors++;
+                } else {
+                    int level = kind - 1;
+                    long offsetEntry = index.offsetsDataStart + (long) pos * Long.BYTES;
+                    queryFaults += cache.touch(offsetEntry / pageBytes, (offsetEntry + Long.BYTES - 1) / pageBytes);
+                    queryAccesses++;
+                    from = index.neighborsDataStart + (newOffsets[pos] + index.cumNeighborsPerLevel[level]) * Integer.BYTES;
+                    length = (long) (index.cumNeighborsPerLevel[level + 1] - index.cumNeighborsPerLevel[level]) * Integer.BYTES;
+                }
+                queryFaults += cache.touch(from / pageBytes, (from + length - 1) / pageBytes);
+                queryAccesses++;
+            }
+            if (q < warmupQueries) {
+                continue;
+            }
+            faults += queryFaults;
+            accesses += queryAccesses;
+            vectorsRead += queryVectors;
+            latencies[q - warmupQueries] = traces[q].cpuNanos() / 1e6 + queryFaults * faultMicros / 1e3;
+            if (groundTruth != null) {
+                recallSum += recall(traces[q].topK(), groundTruth[q]);
+            }
+        }
+
+        Arrays.sort(latencies);
+        return new Result(faults, accesses, groundTruth == null ? Double.NaN : recallSum / measured,
+            percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+            (double) vectorsRead / measured, measured);
+    }
+
+    private static int[] search(Index index, float[] query, SpaceType spaceType, int ef, int k,
+                                int[] visitedEpoch, int epoch, TraceBuilder trace) throws IOException {
+        FaissFilePermuter.FaissStructure s = index.structure;
+        int nearest = s.entryPoint;
+        trace.add(VECTOR_READ, nearest);
+        float nearestDistance = LocalityAnalyzer.distance(index.vectors.vectorValue(nearest), query, spaceType);
+
+        // Greedy descent through the upper levels, as in FAISS's greedy_update_nearest
+        for (int level = s.maxLevel; level >= 1; level--) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                trace.add(NEIGHBOR_READ_LEVEL0 + level, nearest);
+                long begin = index.offset(nearest) + index.cumNeighborsPerLevel[level];
+                long end = index.offset(nearest) + index.cumNeighborsPerLevel[level + 1];
+                for (long j = begin; j < end; j++) {
+                    int neighbor = index.neighbor(j);
+                    if (neighbor < 0) {
+                        break;
+                    }
+                    trace.add(VECTOR_READ, neighbor);
+                    float d = LocalityAnalyzer.distance(index.vectors.vectorValue(neighbor), query, spaceType);
+                    if (d < nearestDistance) {
+                        nearest = neighbor;
+                        nearestDistance = d;
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        // Best-first search of level 0
+        LongHeap candidates = new LongHeap(ef);
+        LongHeap results = new LongHeap(ef);
+        visitedEpoch[nearest] = epoch;
+        candidates.push(LocalityAnalyzer.encode(nearestDistance, nearest));
+        results.push(LocalityAnalyzer.encode(-nearestDistance, nearest));
+        while (candidates.size() > 0) {
+            long current = candidates.pop();
+            if (results.size() >= ef
+                && LocalityAnalyzer.decodeDistance(current) > -LocalityAnalyzer.decodeDistance(results.top())) {
+                break;
+            }
+            int node = (int) current;
+            trace.add(NEIGHBOR_READ_LEVEL0, node);
+            long begin = index.offset(node) + index.cumNeighborsPerLevel[0];
+            long end = index.offset(node) + index.cumNeighborsPerLevel[1];
+            for (long j = begin; j < end; j++) {
+                int neighbor = index.neighbor(j);
+                if (neighbor < 0) {
+                    break;
+                }
+                if (visitedEpoch[neighbor] == epoch) {
+                    continue;
+                }
+                visitedEpoch[neighbor] = epoch;
+                trace.add(VECTOR_READ, neighbor);
+                float d = LocalityAnalyzer.distance(index.vectors.vectorValue(neighbor), query, spaceType);
+                if (results.size() < ef || d < -LocalityAnalyzer.decodeDistance(results.top())) {
+                    candidates.push(LocalityAnalyzer.encode(d, neighbor));
+                    results.insertWithOverflow(LocalityAnalyzer.encode(-d, neighbor));
+                }
+            }
+        }
+        return drain(results, k);
+    }
+
+    /**
+     * Pop a heap of negated-distance entries and return the k closest nodes, closest first.
+     */
+    private static int[] drain(LongHeap heap, int k) {
+        int size = heap.size();
+        int[] nodes = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            nodes[i] = (int) heap.pop();
+        }
+        return Arrays.copyOf(nodes, Math.min(k, size));
+    }
+
+    private static double recall(int[] found, int[] truth) {
+        int hits = 0;
+        for (int t : truth) {
+            for (int f : found) {
+                if (f == t) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return truth.length == 0 ? 1 : (double) hits / truth.length;
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static final class TraceBuilder {
+        private long[] events = new long[256];
+        private int size;
+
+        void add(long kind, int node) {
+            events = ArrayUtil.grow(events, size + 1);
+            events[size++] = (kind << 32) | node;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(events, size);
+        }
+    }
+
+    /**
+     * LRU set of page ids, modelling the OS page cache under a fixed memory budget.
+     */
+    static final class LruPageCache {
+        private final LinkedHashMap<Long, Boolean> pages;
+
+        LruPageCache(long capacityPages) {
+            this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > capacityPages;
+                }
+            };
+        }
+
+        /**
+         * Access pages {@code first..last} inclusive and return how many were not cached.
+         */
+        int touch(long first, long last) {
+            int faults = 0;
+            for (long page = first; page <= last; page++) {
+                if (pages.get(page) == null) {
+                    pages.put(page, Boolean.TRUE);
+                    faults++;
+                }
+            }
+            return faults;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String faissPath = null;
+        String queryVecPath = null;
+        List<String> orders = new ArrayList<>();
+        String spaceName = "l2";
+        int numQueries = DEFAULT_NUM_QUERIES;
+        int efSearch = DEFAULT_EF_SEARCH;
+        int k = DEFAULT_K;
+        int pageBytes = DEFAULT_PAGE_BYTES;
+        long cacheMb = -1;
+        double faultMicros = DEFAULT_FAULT_MICROS;
+        int warmup = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--faiss" -> { if (++i < args.length) faissPath = args[i]; }
+                case "--query-vec" -> { if (++i < args.length) queryVecPath = args[i]; }
+                case "--order" -> { if (++i < args.length) orders.add(args[i]); }
+                case "--space" -> { if (++i < args.length) spaceName = args[i]; }
+                case "--queries" -> { if (++i < args.length) numQueries = Integer.parseInt(args[i]); }
+                case "--ef-search" -> { if (++i < args.length) efSearch = Integer.parseInt(args[i]); }
+                case "--k" -> { if (++i < args.length) k = Integer.parseInt(args[i]); }
+                case "--page-size" -> { if (++i < args.length) pageBytes = Integer.parseInt(args[i]); }
+                case "--cache-mb" -> { if (++i < args.length) cacheMb = Long.parseLong(args[i]); }
+                case "--fault-us" -> { if (++i < args.length) faultMicros = Double.parseDouble(args[i]); }
+                case "--warmup" -> { if (++i < args.length) warmup = Integer.parseInt(args[i]); }
+            }
+        }
+        if (faissPath == null) {
+            System.err.println("Usage: HnswSearchSimulator --faiss <file.faiss> [--query-vec <queries.vec>] [--queries <n>]");
+            System.err.println("                           [--order identity|gorder|rcm|degree|bp|kmeans ...] [--space <l2|innerproduct|cosinesimil>]");
+            System.err.println("                           [--ef-search <n>] [--k <n>] [--page-size <n>] [--cache-mb <n>] [--fault-us <n>] [--warmup <n>]");
+            System.err.println("Without --query-vec, queries are dataset vectors with small Gaussian noise.");
+            System.err.println("The default cache is a quarter of the .faiss file.");
+            System.exit(1);
+        }
+        if (orders.isEmpty()) {
+            orders.add("identity");
+        }
+        SpaceType spaceType = SpaceType.fromValue(spaceName);
+
+        try (Index index = Index.open(faissPath, spaceType)) {
+            long cacheBytes = cacheMb >= 0 ? cacheMb << 20 : index.structure.fileEnd / 4;
+            float[][] queries = queryVecPath != null
+                ? spaceType.prepare(VecFileIO.loadVectors(queryVecPath))
+                : sampleQueries(index.vectors, spaceType, numQueries, 42L);
+            System.out.println("Index: " + index.structure);
+            System.out.println("Queries: " + queries.length + ", ef_search=" + efSearch + ", k=" + k
+                + ", page=" + pageBytes + " B, cache=" + (cacheBytes >> 20) + " MB, fault=" + faultMicros + " us");
+
+            long start = System.currentTimeMillis();
+            QueryTrace[] traces = run(index, queries, spaceType, efSearch, k);
+            System.out.println("Traced searches in " + (System.currentTimeMillis() - start) + " ms");
+            start = System.currentTimeMillis();
+            int[][] truth = groundTruth(index, queries, spaceType, k);
+            System.out.println("Computed exact top-" + k + " in " + (System.currentTimeMillis() - start) + " ms");
+            System.out.println();
+
+            FaissHnswGraph graph = FaissHnswGraph.load(faissPath);
+            for (String order : orders) {
+                int[] newOrder = LocalityAnalyzer.computeOrder(order, graph, index.vectors, spaceType);
+                replay(index, traces, newOrder, pageBytes, cacheBytes, faultMicros, warmup, truth).print(order);
+            }
+        }
+    }
+
+    private static float[][] sampleQueries(FloatVectorValues vectors, SpaceType spaceType, int numQueries, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        float[][] queries = new float[numQueries][];
+        for (int q = 0; q < numQueries; q++) {
+            float[] v = vectors.vectorValue(random.nextInt(vectors.size())).clone();
+            double norm = Math.sqrt(VectorUtil.dotProduct(v, v) / v.length);
+            for (int j = 0; j < v.length; j++) {
+                v[j] += (float) (random.nextGaussian() * 0.05 * norm);
+            }
+            queries[q] = v;
+        }
+        return spaceType.prepare(queries);
+    }
+}
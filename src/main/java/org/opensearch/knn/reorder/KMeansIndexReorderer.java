@@ -0,0 +1,181 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.Sorter;
+import org.apache.lucene.index.VectorEncoding;
+import org.apache.lucene.misc.index.BpVectorReorderer;
+import org.apache.lucene.misc.index.IndexReorderer;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.VectorUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link IndexReorderer} that orders docs by k-means cluster of a vector field, the merge-time
+ * counterpart of {@code VectorReorder kmeans}. Training and assignment use {@link StreamingKMeans}
+ * over the merged reader's vectors, so only centroids and per-vector assignments are held on heap.
+ *
+ * Assignment runs on parallel streams. When the executor is a {@link ForkJoinPool} the work is
+ * submitted to it, so it stays within that pool's threads instead of the common pool.
+ */
+public class KMeansIndexReorderer implements IndexReorderer {
+
+    private final String field;
+    private int numClusters = 0;
+    private int batchSize = StreamingKMeans.DEFAULT_BATCH_SIZE;
+    private int trainPasses = StreamingKMeans.DEFAULT_TRAIN_PASSES;
+    private long seed = 42;
+
+    public KMeansIndexReorderer(String field) {
+        this.field = field;
+    }
+
+    /**
+     * Number of clusters; 0 (the default) picks min(100, vectors / 10) like {@code kmeans-reorder}.
+     */
+    public void setNumClusters(int numClusters) {
+        if (numClusters < 0) {
+            throw new IllegalArgumentException("numClusters must be >= 0, got " + numClusters);
+        }
+        this.numClusters = numClusters;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1, got " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public void setTrainPasses(int trainPasses) {
+        if (trainPasses < 1) {
+            throw new IllegalArgumentException("trainPasses must be >= 1, got " + trainPasses);
+        }
+        this.trainPasses = trainPasses;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public Sorter.DocMap computeDocMap(CodecReader reader, Directory tempDir, Executor executor) throws IOException {
+        FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null || fieldInfo.getVectorDimension() == 0
+                || fieldInfo.getVectorEncoding() != VectorEncoding.FLOAT32) {
+            return null;
+        }
+        FloatVectorValues vectors = reader.getFloatVectorValues(field);
+        if (vectors == null || vectors.size() < 2) {
+            return null;
+        }
+        SpaceType spaceType = SpaceType.fromSimilarity(fieldInfo.getVectorSimilarityFunction());
+        FloatVectorValues values = spaceType.isNormalized() ? new NormalizedVectorValues(vectors) : vectors;
+        int[] newOrder;
+        if (executor instanceof ForkJoinPool pool) {
+            try {
+                newOrder = pool.submit(() -> clusterOrder(values, spaceType)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while clustering " + field, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw new IOException("Clustering " + field + " failed", e.getCause());
+            }
+        } else {
+            newOrder = clusterOrder(values, spaceType);
+        }
+        return BpVectorReorderer.valueMapToDocMap(new OrdMap(newOrder), reader.getFloatVectorValues(field),
+            reader.maxDoc());
+    }
+
+    /**
+     * @return newOrder where newOrder[newOrd] = oldOrd
+     */
+    private int[] clusterOrder(FloatVectorValues vectors, SpaceType spaceType) {
+        int n = vectors.size();
+        int k = StreamingKMeans.numClusters(n, numClusters);
+        try {
+            float[][] centroids = StreamingKMeans.trainCentroids(vectors, spaceType, k, batchSize, trainPasses, seed);
+            KMeansResult result = StreamingKMeans.assign(vectors, centroids, batchSize, spaceType.getMetricType());
+            return ClusterSorter.sortByCluster(result.assignments(), result.distances(), spaceType.getMetricType());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class OrdMap extends Sorter.DocMap {
+        private final int[] newToOld;
+        private final int[] oldToNew;
+
+        OrdMap(int[] newToOld) {
+            this.newToOld = newToOld;
+            this.oldToNew = new int[newToOld.length];
+            for (int i = 0; i < newToOld.length; i++) {
+                oldToNew[newToOld[i]] = i;
+            }
+        }
+
+        @Override
+        public int size() {
+            return newToOld.length;
+        }
+
+        @Override
+        public int oldToNew(int ord) {
+            return oldToNew[ord];
+        }
+
+        @Override
+        public int newToOld(int ord) {
+            return newToOld[ord];
+        }
+    }
+
+    /**
+     * Unit-length view of cosine vectors, so clustering does not favour vectors with a larger norm.
+     */
+    private static class NormalizedVectorValues extends FloatVectorValues {
+        private final FloatVectorValues in;
+        private final float[] value;
+
+        NormalizedVectorValues(FloatVectorValues in) {
+            this.in = in;
+            this.value = new float[in.dimension()];
+        }
+
+        @Override
+        public float[] vectorValue(int ord) throws IOException {
+            System.arraycopy(in.vectorValue(ord), 0, value, 0, value.length);
+            return VectorUtil.l2normalize(value, false);
+        }
+
+        @Override
+        public int dimension() {
+            return in.dimension();
+        }
+
+        @Override
+        public int size() {
+            return in.size();
+        }
+
+        @Override
+        public NormalizedVectorValues copy() throws IOException {
+            return new NormalizedVectorValues(in.copy());
+        }
+    }
+}
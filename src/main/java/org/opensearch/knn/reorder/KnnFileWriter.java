@@ -6,11 +6,18 @@
 package org.opensearch.knn.reorder;
 
 import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.lucene95.OrdToDocDISIReaderConfiguration;
+import org.apache.lucene.index.DocsWithFieldSet;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.IOUtils;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -21,32 +28,50 @@ public class KnnFileWriter {
 
     private static final String VEC_CODEC = "Lucene99FlatVectorsFormatData";
     private static final String VEMF_CODEC = "Lucene99FlatVectorsFormatMeta";
+    // Lucene99FlatVectorsFormat.DIRECT_MONOTONIC_BLOCK_SHIFT, which is package-private
+    private static final int DIRECT_MONOTONIC_BLOCK_SHIFT = 16;
+    private static final int VECTOR_ENCODING_FLOAT32 = 1;
+    private static final int STREAM_BUFFER_BYTES = 1 << 20;
 
     /**
-     * Write .vec file with vectors in reordered order.
+     * Write .vec file with vectors in reordered order. Vector data starts at the first 4-byte
+     * aligned offset after the header, as in Lucene99FlatVectorsWriter and {@link #writeVemfFile}.
      */
     public static void writeVecFile(float[][] vectors, int[] newOrder, byte[] segmentId, 
                                     String segmentSuffix, String outputPath) throws IOException {
         Path path = Paths.get(outputPath);
-        int n = vectors.length;
-        int dim = vectors[0].length;
         
         try (FSDirectory dir = FSDirectory.open(path.getParent());
              IndexOutput out = dir.createOutput(path.getFileName().toString(), IOContext.DEFAULT)) {
             
             CodecUtil.writeIndexHeader(out, VEC_CODEC, 0, segmentId, segmentSuffix);
-            
-            // Write vectors in new order
-            for (int newIdx = 0; newIdx < n; newIdx++) {
-                int oldIdx = newOrder[newIdx];
-                float[] vec = vectors[oldIdx];
-                for (float v : vec) {
-                    out.writeInt(Float.floatToIntBits(v));
+            out.alignFilePointer(Float.BYTES);
+            writeVectors(out, vectors, newOrder);
+            CodecUtil.writeFooter(out);
+        }
+    }
+
+    /**
+     * Write {@code vectors[newOrder[0]], vectors[newOrder[1]], ...} as little-endian floats. Vectors
+     * are packed into a 1 MB buffer through a float view and written with one writeBytes call per
+     * buffer, instead of one writeInt call per float.
+     */
+    static void writeVectors(IndexOutput out, float[][] vectors, int[] newOrder) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_BYTES];
+        FloatBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        for (int oldIdx : newOrder) {
+            float[] vector = vectors[oldIdx];
+            for (int from = 0; from < vector.length; ) {
+                if (!view.hasRemaining()) {
+                    out.writeBytes(buffer, view.position() * Float.BYTES);
+                    view.clear();
                 }
+                int length = Math.min(view.remaining(), vector.length - from);
+                view.put(vector, from, length);
+                from += length;
             }
-            
-            CodecUtil.writeFooter(out);
         }
+        out.writeBytes(buffer, view.position() * Float.BYTES);
     }
 
     /**
@@ -67,9 +92,9 @@ public class KnnFileWriter {
             out.writeInt(vectorEncoding);
             out.writeInt(similarityFunction);
             
-            // Vector data location - header size
-            int headerSize = CodecUtil.headerLength(VEC_CODEC) + segmentSuffix.length();
-            out.writeVLong(headerSize);  // vectorDataOffset
+            // Vector data location - header size, including segment ID and suffix, aligned to a float
+            int headerSize = CodecUtil.indexHeaderLength(VEC_CODEC, segmentSuffix);
+            out.writeVLong(IndexOutput.alignOffset(headerSize, Float.BYTES));  // vectorDataOffset
             out.writeVLong((long) vectorCount * dimension * Float.BYTES);  // vectorDataLength
             out.writeVInt(dimension);
             out.writeInt(vectorCount);
@@ -85,4 +110,127 @@ public class KnnFileWriter {
             CodecUtil.writeFooter(out);
         }
     }
+
+    /**
+     * Open a writer that streams float vectors into a .vec/.vemf pair batch by batch.
+     */
+    public static VectorStreamWriter openVectorStream(String vecPath, String vemfPath, byte[] segmentId,
+                                                      String segmentSuffix, int dimension) throws IOException {
+        return new VectorStreamWriter(vecPath, vemfPath, segmentId, segmentSuffix, dimension);
+    }
+
+    /**
+     * Writes a .vec/.vemf pair without holding the vectors on the heap. Vectors are appended in
+     * ordinal order with {@link #add}; {@link #finish} then writes the metadata. Sparse fields
+     * (fewer vectors than documents) store docsWithField and the ordToDoc mapping after the
+     * vectors, as Lucene99FlatVectorsWriter does.
+     */
+    public static class VectorStreamWriter implements Closeable {
+        private final FSDirectory vecDir;
+        private final FSDirectory vemfDir;
+        private final IndexOutput vecOut;
+        private final IndexOutput vemfOut;
+        private final int dimension;
+        private final long vectorDataOffset;
+        private final byte[] buffer = new byte[STREAM_BUFFER_BYTES];
+        private int count;
+        private boolean finished;
+
+        private VectorStreamWriter(String vecPath, String vemfPath, byte[] segmentId, String segmentSuffix,
+                                   int dimension) throws IOException {
+            Path vec = Paths.get(vecPath);
+            Path vemf = Paths.get(vemfPath);
+            this.dimension = dimension;
+            boolean success = false;
+            FSDirectory vecDirectory = null;
+            FSDirectory vemfDirectory = null;
+            IndexOutput vecOutput = null;
+            IndexOutput vemfOutput = null;
+            try {
+                vecDirectory = FSDirectory.open(vec.getParent());
+                vemfDirectory = FSDirectory.open(vemf.getParent());
+                vecOutput = vecDirectory.createOutput(vec.getFileName().toString(), IOContext.DEFAULT);
+                vemfOutput = vemfDirectory.createOutput(vemf.getFileName().toString(), IOContext.DEFAULT);
+                CodecUtil.writeIndexHeader(vecOutput, VEC_CODEC, 0, segmentId, segmentSuffix);
+                CodecUtil.writeIndexHeader(vemfOutput, VEMF_CODEC, 0, segmentId, segmentSuffix);
+                this.vectorDataOffset = vecOutput.alignFilePointer(Float.BYTES);
+                success = true;
+            } finally {
+                if (!success) {
+                    IOUtils.closeWhileHandlingException(vecOutput, vemfOutput, vecDirectory, vemfDirectory);
+                }
+            }
+            this.vecDir = vecDirectory;
+            this.vemfDir = vemfDirectory;
+            this.vecOut = vecOutput;
+            this.vemfOut = vemfOutput;
+        }
+
+        /**
+         * Append {@code numVectors} vectors stored row-major in {@code batch}.
+         */
+        public void add(float[] batch, int numVectors) throws IOException {
+            int floats = numVectors * dimension;
+            FloatBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            for (int from = 0; from < floats; from += view.capacity()) {
+                int length = Math.min(view.capacity(), floats - from);
+                view.clear();
+                view.put(batch, from, length);
+                vecOut.writeBytes(buffer, length * Float.BYTES);
+            }
+            count += numVectors;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Write the field metadata and footers.
+         *
+         * @param fieldNumber        field number recorded in the .vemf
+         * @param similarityFunction VectorSimilarityFunction ordinal
+         * @param maxDoc             number of documents in the segment
+         * @param docsWithField      documents that have a vector, in ordinal order; null when dense
+         */
+        public void finish(int fieldNumber, int similarityFunction, int maxDoc, DocsWithFieldSet docsWithField)
+                throws IOException {
+            if (docsWithField == null) {
+                if (maxDoc != count) {
+                    throw new IllegalArgumentException("A dense field needs maxDoc == " + count + ", got " + maxDoc);
+                }
+                docsWithField = new DocsWithFieldSet();
+                for (int doc = 0; doc < count; doc++) {
+                    docsWithField.add(doc);
+                }
+            } else if (docsWithField.cardinality() != count) {
+                throw new IllegalArgumentException("docsWithField has " + docsWithField.cardinality()
+                    + " documents but " + count + " vectors were written");
+            }
+
+            vemfOut.writeInt(fieldNumber);
+            vemfOut.writeInt(VECTOR_ENCODING_FLOAT32);
+            vemfOut.writeInt(similarityFunction);
+            vemfOut.writeVLong(vectorDataOffset);
+            vemfOut.writeVLong((long) count * dimension * Float.BYTES);
+            vemfOut.writeVInt(dimension);
+            vemfOut.writeInt(count);
+            OrdToDocDISIReaderConfiguration.writeStoredMeta(DIRECT_MONOTONIC_BLOCK_SHIFT, vemfOut, vecOut, count, maxDoc,
+                docsWithField);
+            vemfOut.writeInt(-1);  // end marker
+
+            CodecUtil.writeFooter(vemfOut);
+            CodecUtil.writeFooter(vecOut);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                IOUtils.closeWhileHandlingException(vecOut, vemfOut, vecDir, vemfDir);
+                return;
+            }
+            IOUtils.close(vecOut, vemfOut, vecDir, vemfDir);
+        }
+    }
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.LongHeap;
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Offline locality scoring for a vector permutation against an HNSW graph.
+ *
+ * Reports three measures for each permutation:
+ * <ul>
+ *   <li>The average log2 gap between each node and its level-0 neighbors, i.e. the BP objective.</li>
+ *   <li>A histogram of neighbor ordinal distances in power-of-two buckets.</li>
+ *   <li>The number of distinct pages of the .vec data touched per simulated greedy search.</li>
+ * </ul>
+ *
+ * The set of nodes a search visits depends only on the graph and the query, not on the storage
+ * order. Searches are therefore simulated once into a {@link SearchTrace}, and each permutation only
+ * changes which pages those nodes fall on. That makes comparing algorithms a matter of seconds.
+ * The graph and the trace both use the ordinals of the .faiss file that was analyzed.
+ *
+ * Usage: LocalityAnalyzer --faiss <file.faiss> [--vec <file.vec>] [--order identity|gorder|rcm|degree|bp|kmeans ...]
+ *                         [--space <l2|innerproduct|cosinesimil>] [--queries <n>] [--ef-search <n>] [--page-size <n>]
+ */
+public class LocalityAnalyzer {
+
+    public static final int DEFAULT_NUM_QUERIES = 200;
+    public static final int DEFAULT_EF_SEARCH = 100;
+    public static final int DEFAULT_PAGE_BYTES = 4096;
+
+    /** Histogram bucket b counts gaps in [2^(b-1), 2^b), with bucket 0 counting gap 0. */
+    public static final int HISTOGRAM_BUCKETS = 33;
+
+    /**
+     * Nodes whose vectors were read by each simulated query, in visit order.
+     */
+    public record SearchTrace(int[][] visited, int vectorBytes) {
+        public double averageVisited() {
+            return Arrays.stream(visited).mapToInt(v -> v.length).average().orElse(0);
+        }
+    }
+
+    /**
+     * Locality measures of one permutation.
+     *
+     * @param averageLog2Gap   mean of log2(1 + |pos(u) - pos(v)|) over level-0 edges
+     * @param gapHistogram     edge counts per power-of-two gap bucket
+     * @param averagePages     distinct pages touched per search, or NaN without a trace
+     * @param averageVisited   vectors read per search, or NaN without a trace
+     */
+    public record Report(double averageLog2Gap, long[] gapHistogram, double averagePages, double averageVisited) {
+
+        public void print(String label) {
+            System.out.println("=== " + label + " ===");
+            System.out.printf("  Average log2 gap: %.3f%n", averageLog2Gap);
+            if (!Double.isNaN(averagePages)) {
+                System.out.printf("  Pages per search: %.1f (%.1f vectors read)%n", averagePages, averageVisited);
+            }
+            long total = Arrays.stream(gapHistogram).sum();
+            System.out.println("  Neighbor gap histogram:");
+            for (int b = 0; b < gapHistogram.length; b++) {
+                if (gapHistogram[b] == 0) {
+                    continue;
+                }
+                String range = b <= 1 ? String.valueOf(b) : (1L << (b - 1)) + "-" + ((1L << b) - 1);
+                System.out.printf("    %-24s %6.2f%%%n", range, 100.0 * gapHistogram[b] / total);
+            }
+        }
+    }
+
+    /**
+     * Score a permutation.
+     *
+     * @param graph     level-0 HNSW graph in .faiss ordinals
+     * @param newOrder  newOrder[newIdx] = oldIdx
+     * @param trace     simulated searches, or null to skip page scoring
+     * @param pageBytes page size for page scoring
+     */
+    public static Report analyze(FaissHnswGraph graph, int[] newOrder, SearchTrace trace, int pageBytes) {
+        int n = graph.numNodes();
+        int[] position = new int[n];
+        for (int newIdx = 0; newIdx < n; newIdx++) {
+            position[newOrder[newIdx]] = newIdx;
+        }
+
+        double log2GapSum = 0;
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int node = 0; node < n; node++) {
+            int degree = graph.outDegree(node);
+            for (int i = 0; i < degree; i++) {
+                long gap = Math.abs((long) position[node] - position[graph.outNeighbor(node, i)]);
+                log2GapSum += log2(1 + gap);
+                histogram[64 - Long.numberOfLeadingZeros(gap)]++;
+            }
+        }
+        double averageLog2Gap = graph.numEdges() == 0 ? 0 : log2GapSum / graph.numEdges();
+
+        if (trace == null) {
+            return new Report(averageLog2Gap, histogram, Double.NaN, Double.NaN);
+        }
+        long pageSum = 0;
+        long[] pages = new long[0];
+        for (int[] visited : trace.visited()) {
+            if (pages.length < visited.length) {
+                pages = new long[visited.length];
+            }
+            for (int i = 0; i < visited.length; i++) {
+                pages[i] = (long) position[visited[i]] * trace.vectorBytes() / pageBytes;
+            }
+            Arrays.sort(pages, 0, visited.length);
+            for (int i = 0; i < visited.length; i++) {
+                if (i == 0 || pages[i] != pages[i - 1]) {
+                    pageSum++;
+                }
+            }
+        }
+        return new Report(averageLog2Gap, histogram, (double) pageSum / trace.visited().length, trace.averageVisited());
+    }
+
+    /**
+     * Run greedy level-0 searches from the graph's entry point, using randomly chosen dataset
+     * vectors as queries, and record every node whose vector each search reads.
+     */
+    public static SearchTrace simulateSearches(FaissHnswGraph graph, FloatVectorValues vectors, SpaceType spaceType,
+                                               int numQueries, int efSearch, long seed) throws IOException {
+        Random random = new Random(seed);
+        int n = graph.numNodes();
+        int[][] visited = new int[numQueries][];
+        int[] visitedEpoch = new int[n];
+        for (int q = 0; q < numQueries; q++) {
+            float[] query = vectors.vectorValue(random.nextInt(n)).clone();
+            visited[q] = greedySearch(graph, vectors, spaceType, query, efSearch, visitedEpoch, q + 1);
+        }
+        return new SearchTrace(visited, vectors.dimension() * Float.BYTES);
+    }
+
+    /**
+     * Best-first search over level 0 with a result list of size {@code efSearch}, as in HNSW's
+     * search_layer.
+     */
+    static int[] greedySearch(FaissHnswGraph graph, FloatVectorValues vectors, SpaceType spaceType, float[] query,
+                              int efSearch, int[] visitedEpoch, int epoch) throws IOException {
+        int[] reads = new int[64];
+        int numReads = 0;
+        // Heap entries pack (distance, node) into a long; lower distance is closer for every space.
+        // Results hold negated distances so that their top is the farthest result.
+        LongHeap candidates = new LongHeap(efSearch);
+        LongHeap results = new LongHeap(efSearch);
+
+        int entry = graph.entryPoint();
+        visitedEpoch[entry] = epoch;
+        reads[numReads++] = entry;
+        float entryDistance = distance(vectors.vectorValue(entry), query, spaceType);
+        candidates.push(encode(entryDistance, entry));
+        results.push(encode(-entryDistance, entry));
+
+        while (candidates.size() > 0) {
+            long current = candidates.pop();
+            if (results.size() >= efSearch && decodeDistance(current) > -decodeDistance(results.top())) {
+                break;
+            }
+            int node = (int) current;
+            int degree = graph.outDegree(node);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = graph.outNeighbor(node, i);
+                if (visitedEpoch[neighbor] == epoch) {
+                    continue;
+                }
+                visitedEpoch[neighbor] = epoch;
+                reads = ArrayUtil.grow(reads, numReads + 1);
+                reads[numReads++] = neighbor;
+                float d = distance(vectors.vectorValue(neighbor), query, spaceType);
+                if (results.size() < efSearch || d < -decodeDistance(results.top())) {
+                    candidates.push(encode(d, neighbor));
+                    results.insertWithOverflow(encode(-d, neighbor));
+                }
+            }
+        }
+        return Arrays.copyOf(reads, numReads);
+    }
+
+    static long encode(float distance, int node) {
+        return ((long) NumericUtils.floatToSortableInt(distance) << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    static float decodeDistance(long encoded) {
+        return NumericUtils.sortableIntToFloat((int) (encoded >> 32));
+    }
+
+    /**
+     * Distance where lower is closer for every space: squared L2, or negated inner product.
+     */
+    static float distance(float[] v, float[] query, SpaceType spaceType) {
+        float d = StreamingKMeans.distance(v, query, spaceType.getMetricType());
+        return spaceType.getMetricType() == FaissKMeansService.METRIC_INNER_PRODUCT ? -d : d;
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String faissPath = null;
+        String vecPath = null;
+        List<String> orders = new ArrayList<>();
+        String spaceName = "l2";
+        int numQueries = DEFAULT_NUM_QUERIES;
+        int efSearch = DEFAULT_EF_SEARCH;
+        int pageBytes = DEFAULT_PAGE_BYTES;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--faiss" -> { if (++i < args.length) faissPath = args[i]; }
+                case "--vec" -> { if (++i < args.length) vecPath = args[i]; }
+                case "--order" -> { if (++i < args.length) orders.add(args[i]); }
+                case "--space" -> { if (++i < args.length) spaceName = args[i]; }
+                case "--queries" -> { if (++i < args.length) numQueries = Integer.parseInt(args[i]); }
+                case "--ef-search" -> { if (++i < args.length) efSearch = Integer.parseInt(args[i]); }
+                case "--page-size" -> { if (++i < args.length) pageBytes = Integer.parseInt(args[i]); }
+            }
+        }
+        if (faissPath == null) {
+            System.err.println("Usage: LocalityAnalyzer --faiss <file.faiss> [--vec <file.vec>]");
+            System.err.println("                        [--order identity|gorder|rcm|degree|bp|kmeans ...]");
+            System.err.println("                        [--space <l2|innerproduct|cosinesimil>] [--queries <n>] [--ef-search <n>] [--page-size <n>]");
+            System.err.println("Without --vec only graph measures are reported; bp and kmeans orders need --vec.");
+            System.exit(1);
+        }
+        if (orders.isEmpty()) {
+            orders.add("identity");
+        }
+        SpaceType spaceType = SpaceType.fromValue(spaceName);
+
+        long start = System.currentTimeMillis();
+        FaissHnswGraph graph = FaissHnswGraph.load(faissPath);
+        System.out.println("Loaded graph: " + graph.numNodes() + " nodes, " + graph.numEdges() + " level-0 edges in "
+            + (System.currentTimeMillis() - start) + " ms");
+
+        VecFileVectorValues vectors = vecPath == null ? null : VecFileVectorValues.open(vecPath, spaceType.isNormalized());
+        try {
+            SearchTrace trace = null;
+            if (vectors != null) {
+                start = System.currentTimeMillis();
+                trace = simulateSearches(graph, vectors, spaceType, numQueries, efSearch, 42L);
+                System.out.println("Simulated " + numQueries + " searches (ef_search=" + efSearch + ") in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            }
+            System.out.println();
+
+            for (String order : orders) {
+                start = System.currentTimeMillis();
+                int[] newOrder = computeOrder(order, graph, vectors, spaceType);
+                long orderMs = System.currentTimeMillis() - start;
+                analyze(graph, newOrder, trace, pageBytes).print(order + " (" + orderMs + " ms to compute)");
+            }
+        } finally {
+            if (vectors != null) {
+                vectors.close();
+            }
+        }
+    }
+
+    /**
+     * Compute a named order: identity, a {@link GraphReorderer.Method} name, bp or kmeans. The
+     * last two need the vectors.
+     */
+    static int[] computeOrder(String order, FaissHnswGraph graph, FloatVectorValues vectors, SpaceType spaceType)
+            throws IOException {
+        int n = graph.numNodes();
+        switch (order) {
+            case "identity" -> {
+                int[] identity = new int[n];
+                for (int i = 0; i < n; i++) identity[i] = i;
+                return identity;
+            }
+            case "bp", "kmeans" -> {
+                if (vectors == null) {
+                    throw new IllegalArgumentException("Order '" + order + "' needs --vec");
+                }
+                if ("kmeans".equals(order)) {
+                    float[][] centroids = StreamingKMeans.trainCentroids(vectors, spaceType, StreamingKMeans.numClusters(n, 0),
+                        StreamingKMeans.DEFAULT_BATCH_SIZE, StreamingKMeans.DEFAULT_TRAIN_PASSES, 42L);
+                    KMeansResult result = StreamingKMeans.assign(vectors, centroids, StreamingKMeans.DEFAULT_BATCH_SIZE,
+                        spaceType.getMetricType());
+                    return ClusterSorter.sortByCluster(result.assignments(), result.distances(), spaceType.getMetricType());
+                }
+                float[][] loaded = new float[n][];
+                for (int i = 0; i < n; i++) {
+                    loaded[i] = vectors.vectorValue(i).clone();
+                }
+                return BpReorderer.computePermutation(loaded, spaceType.getSimilarityFunction());
+            }
+            default -> {
+                return GraphReorderer.computePermutation(graph, GraphReorderer.Method.fromName(order));
+            }
+        }
+    }
+}
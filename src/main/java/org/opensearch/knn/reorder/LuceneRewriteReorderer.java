@@ -0,0 +1,276 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterMergePolicy;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Sorter;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.misc.index.BpVectorReorderer;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Lucene-native alternative to the hotswap tools: rewrites a whole shard with
+ * {@link IndexWriter#addIndexes(CodecReader...)}, renumbering doc ids by BP order of a vector
+ * field. Because Lucene applies the doc map during the merge, stored fields, doc values, postings
+ * and vectors are all reordered consistently and no .vord sidecar is needed.
+ *
+ * Every leaf becomes its own merge; a ConcurrentMergeScheduler runs up to {@code leafConcurrency}
+ * of them at once, and all of them share one BP ForkJoinPool of {@code threads} workers. The doc
+ * map of a leaf needs roughly 8 bytes per vector plus 8 bytes per doc on heap; leaves wait until
+ * their share of {@code ramBudgetMB} is free, and a leaf that needs more than the whole budget is
+ * copied in its original order.
+ *
+ * Lucene resolves every codec and per-field format of the index by SPI name, and this tool only
+ * ships the Lucene and OpenSearch codecs. A shard written by the k-NN codec can only be rewritten with the
+ * opensearch-knn plugin jar and its native library on the classpath; otherwise the rewrite fails
+ * before anything is written.
+ */
+public class LuceneRewriteReorderer {
+
+    /** Diagnostic added to every rewritten segment, like Lucene's {@code bp.reordered}. */
+    public static final String REORDERED_DIAGNOSTIC = "knn.reordered";
+
+    public record Options(String field, int threads, int leafConcurrency, int ramBudgetMB, int maxIters,
+                          int minPartitionSize) {
+
+        public static Options of(String field) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            return new Options(field, processors, Math.max(1, Math.min(4, processors / 2)),
+                (int) Math.max(1, Runtime.getRuntime().maxMemory() / 2 / (1024 * 1024)), 20, 32);
+        }
+    }
+
+    /**
+     * Rewrite the index in {@code srcIndex} into the empty directory {@code dstIndex}. The source is
+     * only read. Commit user data (translog and sequence number markers) is carried over, so the
+     * result can replace the shard's index directory.
+     */
+    public static void rewrite(String srcIndex, String dstIndex, Options options, ReorderMetrics metrics)
+            throws IOException {
+        metrics.parameter("field", options.field()).parameter("threads", options.threads())
+            .parameter("leaf_concurrency", options.leafConcurrency()).parameter("ram_budget_mb", options.ramBudgetMB())
+            .parameter("max_iters", options.maxIters()).parameter("min_partition_size", options.minPartitionSize());
+
+        System.out.println("=== Lucene Rewrite Reorder ===");
+        System.out.println("Source: " + srcIndex);
+        System.out.println("Target: " + dstIndex);
+        System.out.println("Parameters: field=" + options.field() + ", threads=" + options.threads()
+            + ", leaf_concurrency=" + options.leafConcurrency() + ", ram_budget_mb=" + options.ramBudgetMB());
+        System.out.println();
+
+        Path dstPath = Paths.get(dstIndex);
+        if (Files.isDirectory(dstPath)) {
+            try (Stream<Path> files = Files.list(dstPath)) {
+                if (files.findAny().isPresent()) {
+                    throw new IllegalArgumentException("Target directory is not empty: " + dstIndex);
+                }
+            }
+        }
+
+        BpVectorReorderer reorderer = new BpVectorReorderer(options.field());
+        reorderer.setMaxIters(options.maxIters());
+        reorderer.setMinPartitionSize(options.minPartitionSize());
+        reorderer.setRAMBudgetMB(options.ramBudgetMB());
+        ForkJoinPool pool = new ForkJoinPool(options.threads(), p -> new ForkJoinWorkerThread(p) {}, null, false);
+        ReorderMetrics.Segment index = metrics.segment(srcIndex);
+
+        try (Directory src = FSDirectory.open(Paths.get(srcIndex));
+             Directory dst = FSDirectory.open(dstPath)) {
+            SegmentInfos commit;
+            try {
+                commit = SegmentInfos.readLatestCommit(src);
+            } catch (IllegalArgumentException e) {
+                throw missingFormat(srcIndex, e);
+            }
+            if (commit.size() == 0) {
+                throw new IllegalArgumentException("Index has no segments: " + srcIndex);
+            }
+            Codec codec = commit.info(0).info.getCodec();
+            long srcBytes = 0;
+            for (SegmentCommitInfo info : commit) {
+                srcBytes += info.sizeInBytes();
+            }
+
+            try (DirectoryReader reader = openReader(src, srcIndex)) {
+                List<CodecReader> leaves = new ArrayList<>();
+                for (LeafReaderContext ctx : reader.leaves()) {
+                    if (ctx.reader().getMetaData().sort() != null) {
+                        throw new IllegalArgumentException("Index is sorted; reordering would break the index sort");
+                    }
+                    leaves.add((CodecReader) ctx.reader());
+                }
+                index.attribute("leaves", leaves.size()).attribute("docs", reader.numDocs())
+                    .attribute("codec", codec.getName());
+                System.out.println("Leaves: " + leaves.size() + ", docs: " + reader.numDocs() + ", codec: " + codec.getName());
+
+                ConcurrentMergeScheduler scheduler = new ConcurrentMergeScheduler();
+                scheduler.setMaxMergesAndThreads(options.leafConcurrency(), options.leafConcurrency());
+                scheduler.disableAutoIOThrottle();
+                IndexWriterConfig iwc = new IndexWriterConfig()
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+                    .setCodec(codec)
+                    .setIndexCreatedVersionMajor(commit.getIndexCreatedVersionMajor())
+                    .setMergeScheduler(scheduler)
+                    .setMergePolicy(new PerLeafReorderPolicy(options.field(), reorderer, pool, options.ramBudgetMB(), metrics, leaves));
+
+                try (IndexWriter writer = new IndexWriter(dst, iwc)) {
+                    try (ReorderMetrics.Phase phase = index.phase("add-indexes")) {
+                        writer.addIndexes(leaves.toArray(new CodecReader[0]));
+                        phase.bytesRead(srcBytes);
+                        System.out.println("Rewrote " + leaves.size() + " leaves in " + phase.elapsedNanos() / 1_000_000 + " ms");
+                    }
+                    try (ReorderMetrics.Phase phase = index.phase("commit")) {
+                        writer.setLiveCommitData(commit.getUserData().entrySet());
+                        writer.commit();
+                        phase.bytesWritten(directorySize(dst));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("\nLucene rewrite complete!");
+    }
+
+    private static DirectoryReader openReader(Directory src, String srcIndex) throws IOException {
+        try {
+            return DirectoryReader.open(src);
+        } catch (IllegalArgumentException e) {
+            throw missingFormat(srcIndex, e);
+        }
+    }
+
+    /**
+     * Explain an SPI lookup failure: the index uses a codec or per-field format, typically the
+     * k-NN codec, that is not on this tool's classpath. Other failures are returned unchanged.
+     */
+    private static IllegalArgumentException missingFormat(String srcIndex, IllegalArgumentException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().startsWith("An SPI class of type")) {
+                return new IllegalArgumentException("Cannot open " + srcIndex + ": it uses a codec or format that is not"
+                    + " on the classpath (available codecs: " + Codec.availableCodecs() + "). k-NN shards need the opensearch-knn"
+                    + " plugin jar in libs/ and its native library on java.library.path", e);
+            }
+        }
+        return e;
+    }
+
+    private static long directorySize(Directory dir) throws IOException {
+        long bytes = 0;
+        for (String file : dir.listAll()) {
+            bytes += dir.fileLength(file);
+        }
+        return bytes;
+    }
+
+    /**
+     * Turns addIndexes into one merge per leaf and renumbers each merged leaf with BP. The
+     * executor Lucene offers is ignored in favour of the shared pool, so the thread budget holds
+     * across concurrent merges.
+     */
+    private static class PerLeafReorderPolicy extends FilterMergePolicy {
+        private final String field;
+        private final BpVectorReorderer reorderer;
+        private final Executor executor;
+        private final int ramBudgetMB;
+        private final Semaphore ramBudget;
+        private final ReorderMetrics metrics;
+        private final List<CodecReader> leaves;
+
+        PerLeafReorderPolicy(String field, BpVectorReorderer reorderer, Executor executor, int ramBudgetMB, ReorderMetrics metrics,
+                             List<CodecReader> leaves) {
+            super(new TieredMergePolicy());
+            this.field = field;
+            this.reorderer = reorderer;
+            this.executor = executor;
+            this.ramBudgetMB = ramBudgetMB;
+            this.ramBudget = new Semaphore(ramBudgetMB);
+            this.metrics = metrics;
+            this.leaves = leaves;
+        }
+
+        @Override
+        public MergeSpecification findMerges(CodecReader... readers) {
+            MergeSpecification spec = new MergeSpecification();
+            for (int i = 0; i < readers.length; i++) {
+                ReorderMetrics.Segment leaf = metrics.segment("leaf-" + leaves.indexOf(readers[i]))
+                    .attribute("max_doc", readers[i].maxDoc()).attribute("docs", readers[i].numDocs());
+                spec.add(new LeafMerge(readers[i], leaf));
+            }
+            return spec;
+        }
+
+        private class LeafMerge extends OneMerge {
+            private final ReorderMetrics.Segment leaf;
+            private volatile boolean reordered;
+
+            LeafMerge(CodecReader reader, ReorderMetrics.Segment leaf) {
+                super(reader);
+                this.leaf = leaf;
+            }
+
+            @Override
+            public Sorter.DocMap reorder(CodecReader reader, Directory dir, Executor ignored) throws IOException {
+                FloatVectorValues vectors = reader.getFloatVectorValues(field);
+                if (vectors == null) {
+                    leaf.attribute("reordered", false);
+                    return null;
+                }
+                long bytes = 2L * Integer.BYTES * vectors.size() + 2L * Integer.BYTES * reader.maxDoc();
+                int permits = (int) Math.max(1, (bytes + (1 << 20) - 1) >> 20);
+                leaf.attribute("vectors", vectors.size()).attribute("ram_mb", permits);
+                if (permits > ramBudgetMB) {
+                    System.out.println("  Leaf needs " + permits + " MB, over the " + ramBudgetMB
+                        + " MB budget; copying in original order");
+                    leaf.attribute("reordered", false);
+                    return null;
+                }
+                ramBudget.acquireUninterruptibly(permits);
+                try {
+                    long start = System.nanoTime();
+                    Sorter.DocMap docMap = reorderer.computeDocMap(reader, dir, executor);
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+                    reordered = docMap != null;
+                    leaf.attribute("doc_map_ms", millis).attribute("reordered", reordered);
+                    System.out.println("  Computed doc map for " + vectors.size() + " vectors in " + millis + " ms");
+                    return docMap;
+                } finally {
+                    ramBudget.release(permits);
+                }
+            }
+
+            @Override
+            public void setMergeInfo(SegmentCommitInfo info) {
+                info.info.addDiagnostics(Collections.singletonMap(REORDERED_DIAGNOSTIC, Boolean.toString(reordered)));
+                super.setMergeInfo(info);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels for {@link QuantizationStateIO}: tiled rotation with FMA and threshold packing
+ * with compare-to-mask. Only loaded when the jdk.incubator.vector module is readable, see
+ * {@link QuantizationStateIO#VECTORIZED}.
+ */
+final class PanamaQuantizer {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private PanamaQuantizer() {}
+
+    /**
+     * y[t * d + i] = dot(rotation row i, x[t * d ..]) for t in [0, tile). Each row is loaded once per
+     * group of four vectors and feeds four FMA accumulators, so a tile streams the matrix once
+     * instead of once per vector.
+     *
+     * @param rotation row-major d x d matrix
+     */
+    static void rotate(float[] rotation, int d, float[] x, int tile, float[] y) {
+        int lanes = SPECIES.length();
+        int bound = d & -lanes;
+        for (int i = 0; i < d; i++) {
+            int row = i * d;
+            int t = 0;
+            for (; t + 4 <= tile; t += 4) {
+                int x0 = t * d, x1 = x0 + d, x2 = x1 + d, x3 = x2 + d;
+                FloatVector acc0 = FloatVector.zero(SPECIES);
+                FloatVector acc1 = FloatVector.zero(SPECIES);
+                FloatVector acc2 = FloatVector.zero(SPECIES);
+                FloatVector acc3 = FloatVector.zero(SPECIES);
+                for (int j = 0; j < bound; j += lanes) {
+                    FloatVector r = FloatVector.fromArray(SPECIES, rotation, row + j);
+                    acc0 = r.fma(FloatVector.fromArray(SPECIES, x, x0 + j), acc0);
+                    acc1 = r.fma(FloatVector.fromArray(SPECIES, x, x1 + j), acc1);
+                    acc2 = r.fma(FloatVector.fromArray(SPECIES, x, x2 + j), acc2);
+                    acc3 = r.fma(FloatVector.fromArray(SPECIES, x, x3 + j), acc3);
+                }
+                float s0 = acc0.reduceLanes(VectorOperators.ADD);
+                float s1 = acc1.reduceLanes(VectorOperators.ADD);
+                float s2 = acc2.reduceLanes(VectorOperators.ADD);
+                float s3 = acc3.reduceLanes(VectorOperators.ADD);
+                for (int j = bound; j < d; j++) {
+                    float r = rotation[row + j];
+                    s0 = Math.fma(r, x[x0 + j], s0);
+                    s1 = Math.fma(r, x[x1 + j], s1);
+                    s2 = Math.fma(r, x[x2 + j], s2);
+                    s3 = Math.fma(r, x[x3 + j], s3);
+                }
+                y[x0 + i] = s0;
+                y[x1 + i] = s1;
+                y[x2 + i] = s2;
+                y[x3 + i] = s3;
+            }
+            for (; t < tile; t++) {
+                int x0 = t * d;
+                FloatVector acc = FloatVector.zero(SPECIES);
+                for (int j = 0; j < bound; j += lanes) {
+                    acc = FloatVector.fromArray(SPECIES, rotation, row + j)
+                        .fma(FloatVector.fromArray(SPECIES, x, x0 + j), acc);
+                }
+                float s = acc.reduceLanes(VectorOperators.ADD);
+                for (int j = bound; j < d; j++) {
+                    s = Math.fma(rotation[row + j], x[x0 + j], s);
+                }
+                y[x0 + i] = s;
+            }
+        }
+    }
+
+    /**
+     * Set bit j (MSB-first within each byte) of {@code dst[dstOffset..]} when v[vOffset + j] >
+     * thresholds[j]. Writes exactly (dim + 7) / 8 bytes.
+     */
+    static void pack(float[] v, int vOffset, float[] thresholds, byte[] dst, int dstOffset) {
+        int dim = thresholds.length;
+        int lanes = SPECIES.length();
+        int bytes = (dim + 7) >> 3;
+        for (int word = 0; word < dim; word += Long.SIZE) {
+            int end = Math.min(word + Long.SIZE, dim);
+            long bits = 0;
+            int j = word;
+            for (int bound = word + ((end - word) & -lanes); j < bound; j += lanes) {
+                long mask = FloatVector.fromArray(SPECIES, v, vOffset + j)
+                    .compare(VectorOperators.GT, FloatVector.fromArray(SPECIES, thresholds, j))
+                    .toLong();
+                bits |= mask << (j - word);
+            }
+            for (; j < end; j++) {
+                bits |= (v[vOffset + j] > thresholds[j] ? 1L : 0L) << (j - word);
+            }
+            int wordBytes = Math.min(Long.BYTES, bytes - (word >> 3));
+            int out = dstOffset + (word >> 3);
+            for (int b = 0; b < wordBytes; b++) {
+                // Lane order is LSB-first; .faiss binary codes are MSB-first within each byte
+                dst[out + b] = (byte) (Integer.reverse((int) (bits >>> (b << 3)) & 0xFF) >>> 24);
+            }
+        }
+    }
+}
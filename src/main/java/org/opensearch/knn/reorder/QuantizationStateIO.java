@@ -9,38 +9,141 @@ import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.opensearch.core.common.io.stream.StreamInput;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Reads quantization state from .osknnqstate files.
- * Supports OneBitScalarQuantizationState format.
+ * Supports OneBitScalarQuantizationState and the 2-bit and 4-bit MultiBitScalarQuantizationState
+ * formats.
  */
 public class QuantizationStateIO {
 
+    /** OpenSearch 3.2.0, which added random rotation and ADC to the state. */
+    private static final int VERSION_3_2_0 = 137237827;
+
     /**
-     * Parsed quantization state for 1-bit scalar quantization.
+     * Parsed quantization state for n-bit scalar quantization: one threshold plane per bit. A vector
+     * of dimension d becomes n * d bits, plane p holding bits [p * d, (p + 1) * d) MSB-first, as
+     * k-NN's BitPacker lays them out for the binary FAISS index.
      */
-    public static class OneBitState {
-        public final float[] meanThresholds;
+    public static class MultiBitState {
+        public final float[][] thresholds; // [bitsPerCoordinate][dimension]
         public final float[][] rotationMatrix; // may be null
+        // rotationMatrix as one row-major d x d array, for the tiled multiply
+        final float[] rotation;
 
-        public OneBitState(float[] meanThresholds, float[][] rotationMatrix) {
-            this.meanThresholds = meanThresholds;
+        public MultiBitState(float[][] thresholds, float[][] rotationMatrix) {
+            if (thresholds.length == 0) {
+                throw new IllegalArgumentException("At least one threshold plane is required");
+            }
+            for (float[] plane : thresholds) {
+                if (plane.length != thresholds[0].length) {
+                    throw new IllegalArgumentException("Threshold planes differ in length");
+                }
+            }
+            this.thresholds = thresholds;
             this.rotationMatrix = rotationMatrix;
+            this.rotation = rotationMatrix == null ? null : flatten(rotationMatrix, thresholds[0].length);
+        }
+
+        private static float[] flatten(float[][] matrix, int d) {
+            if (matrix.length != d) {
+                throw new IllegalArgumentException("Rotation matrix has " + matrix.length + " rows, expected " + d);
+            }
+            float[] flat = new float[Math.multiplyExact(d, d)];
+            for (int i = 0; i < d; i++) {
+                if (matrix[i].length != d) {
+                    throw new IllegalArgumentException("Rotation row " + i + " has " + matrix[i].length + " columns, expected " + d);
+                }
+                System.arraycopy(matrix[i], 0, flat, i * d, d);
+            }
+            return flat;
+        }
+
+        public int getBitsPerCoordinate() {
+            return thresholds.length;
+        }
+
+        public int getDimension() {
+            return thresholds[0].length;
+        }
+
+        /**
+         * Dimension of the binary FAISS index: bits per coordinate times the vector dimension.
+         */
+        public int getBinaryDimension() {
+            return thresholds.length * thresholds[0].length;
         }
 
         public int getBytesPerVector() {
-            return (meanThresholds.length + 7) / 8;
+            return (getBinaryDimension() + 7) / 8;
+        }
+    }
+
+    /**
+     * Parsed quantization state for 1-bit scalar quantization.
+     */
+    public static class OneBitState extends MultiBitState {
+        public final float[] meanThresholds;
+
+        public OneBitState(float[] meanThresholds, float[][] rotationMatrix) {
+            super(new float[][] {meanThresholds}, rotationMatrix);
+            this.meanThresholds = meanThresholds;
         }
     }
 
     /**
-     * Read quantization state for a field from .osknnqstate file.
+     * Read 1-bit quantization state for a field from .osknnqstate file.
      */
     public static OneBitState readOneBitState(Directory dir, String segmentName, String segmentSuffix, int fieldNumber) throws IOException {
+        MultiBitState state = readState(dir, segmentName, segmentSuffix, fieldNumber);
+        if (state instanceof OneBitState oneBit) {
+            return oneBit;
+        }
+        throw new IllegalArgumentException("Field " + fieldNumber + " uses " + state.getBitsPerCoordinate()
+            + "-bit quantization, expected 1-bit");
+    }
+
+    /**
+     * Read the state of field 0 from {@code qstatePath}, named {segment}_{suffix}.osknnqstate like
+     * the .vec file it belongs to.
+     *
+     * @throws IllegalArgumentException if the name cannot be parsed or the dimension differs
+     */
+    public static MultiBitState readState(String qstatePath, int expectedDim) throws IOException {
+        Path path = Path.of(qstatePath);
+        String fileName = path.getFileName().toString();
+        String baseName = fileName.replace(".osknnqstate", "");
+
+        int lastUnderscore = baseName.lastIndexOf('_');
+        if (lastUnderscore == -1) {
+            throw new IllegalArgumentException("Invalid .osknnqstate filename: " + fileName);
+        }
+        String segmentName = baseName.substring(0, lastUnderscore);
+        String segmentSuffix = baseName.substring(lastUnderscore + 1);
+
+        try (FSDirectory dir = FSDirectory.open(path.getParent())) {
+            MultiBitState state = readState(dir, segmentName, segmentSuffix, 0);
+            if (state.getDimension() != expectedDim) {
+                throw new IllegalArgumentException("Quantization state has dimension " + state.getDimension()
+                    + ", vectors have " + expectedDim);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Read quantization state for a field from .osknnqstate file: a {@link OneBitState} for 1-bit
+     * fields, a {@link MultiBitState} for 2-bit and 4-bit fields.
+     */
+    public static MultiBitState readState(Directory dir, String segmentName, String segmentSuffix, int fieldNumber) throws IOException {
         String fileName = segmentName + "_" + segmentSuffix + ".osknnqstate";
         
         try (IndexInput input = dir.openInput(fileName, IOContext.READONCE)) {
@@ -78,72 +181,247 @@ public class QuantizationStateIO {
             byte[] stateBytes = new byte[length];
             input.readBytes(stateBytes, 0, length);
             
-            return parseOneBitState(stateBytes);
+            return parseState(stateBytes);
         }
     }
 
-    private static OneBitState parseOneBitState(byte[] bytes) throws IOException {
+    static MultiBitState parseState(byte[] bytes) throws IOException {
         try (StreamInput in = StreamInput.wrap(bytes)) {
             int version = in.readVInt(); // version
             
             // Read ScalarQuantizationParams
-            in.readVInt(); // sqType ordinal
+            int sqType = in.readVInt(); // sqType id: bits per coordinate
             // For versions >= 3.2.0 (id=137237827), read enableRandomRotation and enableADC
-            if (version >= 137237827) {
+            if (version >= VERSION_3_2_0) {
                 in.readBoolean(); // enableRandomRotation
                 in.readBoolean(); // enableADC
             }
             
-            // Read meanThresholds
-            float[] meanThresholds = in.readFloatArray();
-            
-            // Read rotation matrix (if present, for versions >= 3.2.0)
-            float[][] rotationMatrix = null;
-            if (version >= 137237827 && in.readBoolean()) {
-                int dims = in.readVInt();
-                rotationMatrix = new float[dims][];
-                for (int i = 0; i < dims; i++) {
-                    rotationMatrix[i] = in.readFloatArray();
+            if (sqType == 2 || sqType == 4) {
+                // MultiBitScalarQuantizationState: rows, columns, then one threshold array per bit
+                int rows = in.readVInt();
+                int cols = in.readVInt();
+                if (rows != sqType) {
+                    throw new IOException(sqType + "-bit state has " + rows + " threshold planes");
                 }
+                float[][] thresholds = new float[rows][];
+                for (int i = 0; i < rows; i++) {
+                    thresholds[i] = in.readFloatArray();
+                    if (thresholds[i].length != cols) {
+                        throw new IOException("Threshold plane " + i + " has " + thresholds[i].length + " values, expected " + cols);
+                    }
+                }
+                return new MultiBitState(thresholds, readRotation(in, version));
             }
             
+            // Read meanThresholds
+            float[] meanThresholds = in.readFloatArray();
+            float[][] rotationMatrix = readRotation(in, version);
+            
             // Skip belowThresholdMeans and aboveThresholdMeans (not needed for quantization)
             
             return new OneBitState(meanThresholds, rotationMatrix);
         }
     }
 
+    private static float[][] readRotation(StreamInput in, int version) throws IOException {
+        // Read rotation matrix (if present, for versions >= 3.2.0)
+        float[][] rotationMatrix = null;
+        if (version >= VERSION_3_2_0 && in.readBoolean()) {
+            int dims = in.readVInt();
+            rotationMatrix = new float[dims][];
+            for (int i = 0; i < dims; i++) {
+                rotationMatrix[i] = in.readFloatArray();
+            }
+        }
+        return rotationMatrix;
+    }
+
     /**
-     * Quantize a float vector to bytes using 1-bit scalar quantization.
+     * Whether {@link PanamaQuantizer} can be used, i.e. the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}. Otherwise scalar loops rotate and pack.
      */
-    public static byte[] quantize(float[] vector, OneBitState state) {
-        float[] v = vector;
-        if (state.rotationMatrix != null) {
-            v = applyRotation(vector, state.rotationMatrix);
-        }
-        
+    static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /** Vectors per parallel task in {@link #quantizeAll}. */
+    private static final int PARALLEL_CHUNK = 4096;
+
+    /** Vectors rotated together, so each rotation row is read once per tile instead of per vector. */
+    static final int ROTATION_TILE = 16;
+
+    /**
+     * Quantize a float vector to bytes using n-bit scalar quantization.
+     */
+    public static byte[] quantize(float[] vector, MultiBitState state) {
         byte[] result = new byte[state.getBytesPerVector()];
-        float[] thresholds = state.meanThresholds;
-        
-        for (int j = 0; j < v.length; j++) {
-            if (v[j] > thresholds[j]) {
-                int byteIndex = j >> 3;
-                int bitIndex = 7 - (j & 7);
-                result[byteIndex] |= (1 << bitIndex);
+        quantizeBatch(new float[][] {vector}, 0, 1, null, result, 0, state);
+        return result;
+    }
+
+    /**
+     * Quantize {@code src[permutation[fromOrd + i]]} for i in [0, count) straight into the packed
+     * buffer {@code dst}, vector i starting at {@code dstOffset + i * bytesPerVector}. Allocates
+     * nothing per vector; with a rotation matrix, vectors are rotated {@value #ROTATION_TILE} at a
+     * time through two tile buffers allocated per call.
+     *
+     * @param permutation newOrder[newIdx] = oldIdx, or null to read {@code src} in order
+     */
+    public static void quantizeBatch(float[][] src, int fromOrd, int count, int[] permutation, byte[] dst,
+                                     int dstOffset, MultiBitState state) {
+        int bytesPerVector = state.getBytesPerVector();
+        if (state.rotation == null) {
+            for (int i = 0; i < count; i++) {
+                int ord = fromOrd + i;
+                packPlanes(src[permutation == null ? ord : permutation[ord]], 0, state, dst, dstOffset + i * bytesPerVector);
             }
+            return;
         }
-        return result;
+        int d = state.getDimension();
+        int tileSize = Math.min(ROTATION_TILE, count);
+        float[] x = new float[tileSize * d];
+        float[] y = new float[tileSize * d];
+        for (int from = 0; from < count; from += tileSize) {
+            int tile = Math.min(tileSize, count - from);
+            for (int t = 0; t < tile; t++) {
+                int ord = fromOrd + from + t;
+                System.arraycopy(src[permutation == null ? ord : permutation[ord]], 0, x, t * d, d);
+            }
+            rotate(state.rotation, d, x, tile, y);
+            for (int t = 0; t < tile; t++) {
+                packPlanes(y, t * d, state, dst, dstOffset + (from + t) * bytesPerVector);
+            }
+        }
+    }
+
+    /**
+     * Quantize all of {@code src} in {@code permutation} order into one packed buffer, in parallel
+     * over ranges of {@value #PARALLEL_CHUNK} vectors.
+     *
+     * @param permutation newOrder[newIdx] = oldIdx, or null to keep the order of {@code src}
+     */
+    public static byte[] quantizeAll(float[][] src, int[] permutation, MultiBitState state) {
+        int n = permutation == null ? src.length : permutation.length;
+        int bytesPerVector = state.getBytesPerVector();
+        byte[] dst = new byte[Math.multiplyExact(n, bytesPerVector)];
+        int chunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * PARALLEL_CHUNK;
+            int count = Math.min(PARALLEL_CHUNK, n - from);
+            quantizeBatch(src, from, count, permutation, dst, from * bytesPerVector, state);
+        });
+        return dst;
+    }
+
+    /**
+     * Destination of {@link #quantizeAll(float[][], int[], MultiBitState, CodeSink)}, typically
+     * native memory from {@link FaissIndexService#allocateCodes}.
+     */
+    @FunctionalInterface
+    public interface CodeSink {
+        /**
+         * Writable view of {@code length} bytes starting at byte {@code offset}. Called concurrently
+         * for disjoint ranges.
+         */
+        ByteBuffer view(long offset, int length);
     }
 
-    private static float[] applyRotation(float[] vector, float[][] matrix) {
-        float[] result = new float[vector.length];
-        for (int i = 0; i < vector.length; i++) {
-            float sum = 0;
-            for (int j = 0; j < vector.length; j++) {
-                sum += matrix[i][j] * vector[j];
+    /**
+     * Quantize all of {@code src} in {@code permutation} order into {@code sink}, in parallel over
+     * ranges of {@value #PARALLEL_CHUNK} vectors. Each range is packed into a chunk-sized buffer
+     * and copied into its view with one bulk put, so no array of the whole output is ever
+     * allocated and the total size may exceed 2 GB.
+     *
+     * @param permutation newOrder[newIdx] = oldIdx, or null to keep the order of {@code src}
+     */
+    public static void quantizeAll(float[][] src, int[] permutation, MultiBitState state, CodeSink sink) {
+        int n = permutation == null ? src.length : permutation.length;
+        int bytesPerVector = state.getBytesPerVector();
+        int chunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * PARALLEL_CHUNK;
+            int count = Math.min(PARALLEL_CHUNK, n - from);
+            byte[] chunk = new byte[count * bytesPerVector];
+            quantizeBatch(src, from, count, permutation, chunk, 0, state);
+            sink.view((long) from * bytesPerVector, chunk.length).put(chunk);
+        });
+    }
+
+    private static void rotate(float[] rotation, int d, float[] x, int tile, float[] y) {
+        if (VECTORIZED) {
+            PanamaQuantizer.rotate(rotation, d, x, tile, y);
+            return;
+        }
+        // Scalar fallback keeps the sequential sum of the ingest-time quantizer, four vectors per row load
+        for (int i = 0; i < d; i++) {
+            int row = i * d;
+            int t = 0;
+            for (; t + 4 <= tile; t += 4) {
+                int x0 = t * d, x1 = x0 + d, x2 = x1 + d, x3 = x2 + d;
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int j = 0; j < d; j++) {
+                    float r = rotation[row + j];
+                    s0 += r * x[x0 + j];
+                    s1 += r * x[x1 + j];
+                    s2 += r * x[x2 + j];
+                    s3 += r * x[x3 + j];
+                }
+                y[x0 + i] = s0;
+                y[x1 + i] = s1;
+                y[x2 + i] = s2;
+                y[x3 + i] = s3;
+            }
+            for (; t < tile; t++) {
+                int x0 = t * d;
+                float sum = 0;
+                for (int j = 0; j < d; j++) {
+                    sum += rotation[row + j] * x[x0 + j];
+                }
+                y[x0 + i] = sum;
             }
-            result[i] = sum;
         }
-        return result;
+    }
+
+    /**
+     * Write the n * d code bits of one vector. Planes start on byte boundaries whenever d is a
+     * multiple of 8, so each is packed on its own; otherwise bits are placed one at a time.
+     */
+    private static void packPlanes(float[] v, int vOffset, MultiBitState state, byte[] dst, int dstOffset) {
+        float[][] planes = state.thresholds;
+        int d = state.getDimension();
+        if (planes.length == 1 || (d & 7) == 0) {
+            for (int p = 0; p < planes.length; p++) {
+                pack(v, vOffset, planes[p], dst, dstOffset + p * (d >> 3));
+            }
+            return;
+        }
+        Arrays.fill(dst, dstOffset, dstOffset + state.getBytesPerVector(), (byte) 0);
+        for (int p = 0; p < planes.length; p++) {
+            float[] thresholds = planes[p];
+            for (int j = 0; j < d; j++) {
+                if (v[vOffset + j] > thresholds[j]) {
+                    int bit = p * d + j;
+                    dst[dstOffset + (bit >> 3)] |= (byte) (0x80 >>> (bit & 7));
+                }
+            }
+        }
+    }
+
+    /**
+     * Set bit j, MSB-first within each byte, when v[vOffset + j] > thresholds[j].
+     */
+    private static void pack(float[] v, int vOffset, float[] thresholds, byte[] dst, int dstOffset) {
+        if (VECTORIZED) {
+            PanamaQuantizer.pack(v, vOffset, thresholds, dst, dstOffset);
+            return;
+        }
+        int dim = thresholds.length;
+        for (int base = 0, out = dstOffset; base < dim; base += 8, out++) {
+            int end = Math.min(base + 8, dim);
+            int bits = 0;
+            for (int j = base; j < end; j++) {
+                bits |= (v[vOffset + j] > thresholds[j] ? 0x80 : 0) >>> (j - base);
+            }
+            dst[out] = (byte) bits;
+        }
     }
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Persists per-segment reorder progress so a multi-segment job can be rerun after a crash without
+ * redoing finished work.
+ *
+ * Each computed permutation is written to a .perm sidecar in the checkpoint directory:
+ *   - Header (CodecUtil)
+ *   - string source .vec path (absolute)
+ *   - long   source .vec length
+ *   - long   source .vec footer checksum
+ *   - string configuration (job parameters the permutation depends on)
+ *   - int    count
+ *   - int[count] newOrder
+ *   - Footer (CodecUtil)
+ *
+ * Finished segments are recorded in {@code <job>.manifest}, keyed by absolute .vec path with the
+ * source fingerprint and configuration as value. A permutation or manifest entry is only reused when
+ * the source .vec and the configuration are unchanged, so a segment that was rewritten or a rerun
+ * with different parameters is recomputed.
+ */
+public class ReorderCheckpoint {
+
+    private static final String PERM_CODEC_NAME = "OpenSearchReorderPermutation";
+    private static final int PERM_VERSION = 0;
+    private static final ReorderCheckpoint DISABLED = new ReorderCheckpoint(null, null, null);
+
+    private final Path dir;
+    private final String job;
+    private final String configuration;
+    private final Properties manifest = new Properties();
+
+    private ReorderCheckpoint(Path dir, String job, String configuration) {
+        this.dir = dir;
+        this.job = job;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Open (or create) the checkpoint directory for {@code job}.
+     *
+     * @param configuration every parameter that affects the outputs; entries written with a
+     *                      different configuration are ignored
+     */
+    public static ReorderCheckpoint open(String dir, String job, String configuration) throws IOException {
+        ReorderCheckpoint checkpoint = new ReorderCheckpoint(Paths.get(dir).toAbsolutePath(), job, configuration);
+        Files.createDirectories(checkpoint.dir);
+        Path manifestPath = checkpoint.manifestPath();
+        if (Files.exists(manifestPath)) {
+            try (InputStream in = Files.newInputStream(manifestPath)) {
+                checkpoint.manifest.load(in);
+            }
+        }
+        System.out.println("Checkpoint dir: " + checkpoint.dir + " (" + checkpoint.manifest.size() + " segments complete)");
+        return checkpoint;
+    }
+
+    /**
+     * A checkpoint that never skips work and stores nothing.
+     */
+    public static ReorderCheckpoint disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * True when the manifest records {@code vecFile} as finished for the current source and
+     * configuration and all of {@code outputs} still exist.
+     */
+    public boolean isComplete(String vecFile, String... outputs) throws IOException {
+        if (!isEnabled()) {
+            return false;
+        }
+        String entry = manifest.getProperty(key(vecFile));
+        if (entry == null || !entry.equals(manifestEntry(vecFile))) {
+            return false;
+        }
+        for (String output : outputs) {
+            if (output != null && !Files.exists(Paths.get(output))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Delete outputs a crashed run left behind for a segment that is about to be redone; the Lucene
+     * writers refuse to overwrite existing files.
+     */
+    public void discardPartialOutputs(String... outputs) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        for (String output : outputs) {
+            if (output != null && Files.deleteIfExists(Paths.get(output))) {
+                System.out.println("  Removed partial output: " + output);
+            }
+        }
+    }
+
+    /**
+     * Record {@code vecFile} as finished and rewrite the manifest atomically.
+     */
+    public void markComplete(String vecFile) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        manifest.setProperty(key(vecFile), manifestEntry(vecFile));
+        Path tmp = dir.resolve(job + ".manifest.tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            manifest.store(out, "Completed " + job + " segments");
+        }
+        Files.move(tmp, manifestPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load the cached permutation for {@code vecFile}.
+     *
+     * @return newOrder, or null if there is none, it is corrupt, or it was computed from a different
+     *         source or configuration
+     */
+    public int[] loadPermutation(String vecFile) throws IOException {
+        if (!isEnabled()) {
+            return null;
+        }
+        Path permPath = permPath(vecFile);
+        if (!Files.exists(permPath)) {
+            return null;
+        }
+        long[] fingerprint = fingerprint(vecFile);
+        try (FSDirectory directory = FSDirectory.open(dir);
+             ChecksumIndexInput input = directory.openChecksumInput(permPath.getFileName().toString())) {
+            int[] newOrder = null;
+            Throwable priorException = null;
+            try {
+                CodecUtil.checkHeader(input, PERM_CODEC_NAME, PERM_VERSION, PERM_VERSION);
+                String source = input.readString();
+                long length = input.readLong();
+                long checksum = input.readLong();
+                String storedConfiguration = input.readString();
+                int count = input.readInt();
+                if (source.equals(absolute(vecFile)) && length == fingerprint[0] && checksum == fingerprint[1]
+                        && storedConfiguration.equals(configuration)) {
+                    newOrder = new int[count];
+                    input.readInts(newOrder, 0, count);
+                } else {
+                    input.skipBytes((long) count * Integer.BYTES);
+                }
+            } catch (Throwable t) {
+                priorException = t;
+            } finally {
+                CodecUtil.checkFooter(input, priorException);
+            }
+            if (newOrder == null) {
+                System.out.println("  Ignoring stale permutation: " + permPath);
+            } else {
+                System.out.println("  Reusing cached permutation: " + permPath);
+            }
+            return newOrder;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("  Ignoring unreadable permutation " + permPath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Persist {@code newOrder} for {@code vecFile}. Written to a temporary file first so a crash never
+     * leaves a truncated .perm behind.
+     */
+    public void savePermutation(String vecFile, int[] newOrder) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        long[] fingerprint = fingerprint(vecFile);
+        Path permPath = permPath(vecFile);
+        String tmpName = permPath.getFileName() + ".tmp";
+        Files.deleteIfExists(dir.resolve(tmpName));
+        try (FSDirectory directory = FSDirectory.open(dir)) {
+            try (IndexOutput out = directory.createOutput(tmpName, IOContext.DEFAULT)) {
+                CodecUtil.writeHeader(out, PERM_CODEC_NAME, PERM_VERSION);
+                out.writeString(absolute(vecFile));
+                out.writeLong(fingerprint[0]);
+                out.writeLong(fingerprint[1]);
+                out.writeString(configuration);
+                out.writeInt(newOrder.length);
+                for (int ord : newOrder) {
+                    out.writeInt(ord);
+                }
+                CodecUtil.writeFooter(out);
+            }
+            directory.sync(List.of(tmpName));
+        }
+        Files.move(dir.resolve(tmpName), permPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path manifestPath() {
+        return dir.resolve(job + ".manifest");
+    }
+
+    /**
+     * Segment files in different shards share names, so the sidecar is keyed by a hash of the
+     * absolute path as well; the path itself is stored in the file and checked on load.
+     */
+    Path permPath(String vecFile) {
+        Path source = Paths.get(absolute(vecFile));
+        String name = source.getFileName().toString().replace(".vec", "");
+        return dir.resolve(String.format("%08x_%s.%s.perm", source.toString().hashCode(), name, job));
+    }
+
+    private String manifestEntry(String vecFile) throws IOException {
+        long[] fingerprint = fingerprint(vecFile);
+        return fingerprint[0] + ":" + Long.toHexString(fingerprint[1]) + ":" + configuration;
+    }
+
+    private static String key(String vecFile) {
+        return absolute(vecFile);
+    }
+
+    private static String absolute(String file) {
+        return Paths.get(file).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Length and footer checksum of the source .vec. Reading the stored checksum is O(1), unlike
+     * verifying it.
+     */
+    private static long[] fingerprint(String vecFile) throws IOException {
+        Path path = Paths.get(absolute(vecFile));
+        try (FSDirectory directory = FSDirectory.open(path.getParent());
+             IndexInput input = directory.openInput(path.getFileName().toString(), IOContext.READONCE)) {
+            return new long[] {input.length(), CodecUtil.retrieveChecksum(input)};
+        }
+    }
+}
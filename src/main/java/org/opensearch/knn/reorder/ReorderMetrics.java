@@ -0,0 +1,548 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import org.opensearch.common.xcontent.XContentFactory;
+import org.opensearch.core.xcontent.ToXContent;
+import org.opensearch.core.xcontent.ToXContentObject;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Per-phase resource accounting for reorder jobs, written as a JSON run report.
+ *
+ * A job is split into segments (one per .vec file) and each segment into phases, opened with
+ * try-with-resources around one step of the pipeline. For every phase this records:
+ * <ul>
+ *   <li>wall time and process CPU time (CPU includes all threads, so parallel phases show it)</li>
+ *   <li>logical bytes read and written, as reported by the caller, and the process's storage
+ *       I/O from /proc/self/io</li>
+ *   <li>peak heap, reset at phase start, and peak resident set size, which covers native
+ *       allocations made through JNI</li>
+ *   <li>GC pause count, total and longest pause</li>
+ * </ul>
+ *
+ * Every phase is also emitted as a {@value #JFR_EVENT_NAME} JFR event, which is only recorded
+ * when a recording is running, e.g. one started with {@link #startRecording}.
+ *
+ * /proc measurements are Linux-only and are reported as -1 elsewhere. Phases are expected to run
+ * one at a time; a phase started inside another sees the outer phase's resets.
+ */
+public class ReorderMetrics implements ToXContentObject {
+
+    public static final String JFR_EVENT_NAME = "org.opensearch.knn.reorder.Phase";
+
+    private static final Path PROC_SELF_IO = Paths.get("/proc/self/io");
+    private static final Path PROC_SELF_STATUS = Paths.get("/proc/self/status");
+    private static final Path PROC_SELF_CLEAR_REFS = Paths.get("/proc/self/clear_refs");
+
+    // Phases currently open, fed by the GC notification listener
+    private static final List<Phase> OPEN_PHASES = new CopyOnWriteArrayList<>();
+    private static volatile boolean gcListenerInstalled;
+
+    private final String job;
+    private final Instant started = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+
+    public ReorderMetrics(String job) {
+        this.job = job;
+        installGcListener();
+    }
+
+    /**
+     * Record a job parameter, reported as given.
+     */
+    public ReorderMetrics parameter(String name, Object value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Start accounting for a segment, usually named after its .vec file.
+     */
+    public Segment segment(String name) {
+        Segment segment = new Segment(name);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Start a phase of {@code segment}, or return null when there is no segment. Null resources
+     * are skipped by try-with-resources, so optional instrumentation needs no branches.
+     */
+    public static Phase phase(Segment segment, String name) {
+        return segment == null ? null : segment.phase(name);
+    }
+
+    /**
+     * Throughput in MB/s (2^20 bytes), or 0 if no time elapsed.
+     */
+    public static double mbPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : bytes * 1e9 / nanos / (1 << 20);
+    }
+
+    public List<Segment> segments() {
+        return segments;
+    }
+
+    /**
+     * Write the report as pretty-printed JSON.
+     */
+    public void writeReport(String reportPath) throws IOException {
+        Path path = Paths.get(reportPath).toAbsolutePath();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(path);
+             XContentBuilder builder = XContentFactory.jsonBuilder(out).prettyPrint()) {
+            toXContent(builder, ToXContent.EMPTY_PARAMS);
+        }
+        System.out.println("Wrote run report: " + path);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field("job", job);
+        builder.field("started", started.toString());
+        builder.field("wall_ms", (System.nanoTime() - startNanos) / 1_000_000);
+        builder.startObject("jvm");
+        builder.field("version", Runtime.version().toString());
+        builder.field("available_processors", Runtime.getRuntime().availableProcessors());
+        builder.field("max_heap_bytes", Runtime.getRuntime().maxMemory());
+        builder.endObject();
+        builder.field("parameters", parameters);
+        builder.startArray("segments");
+        for (Segment segment : segments) {
+            segment.toXContent(builder, params);
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    /**
+     * Start a JFR recording with the default settings that is written to {@code jfrPath} when
+     * closed. Phase events are included.
+     */
+    public static Recording startRecording(String jfrPath) throws IOException {
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.enable(JFR_EVENT_NAME);
+            recording.setDestination(Paths.get(jfrPath));
+            recording.start();
+            return recording;
+        } catch (ParseException e) {
+            throw new IOException("Cannot load the default JFR configuration", e);
+        }
+    }
+
+    /**
+     * Phases and attributes of one segment.
+     */
+    public static class Segment implements ToXContentObject {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private final List<Phase> phases = new ArrayList<>();
+        private long endNanos;
+
+        private Segment(String name) {
+            this.name = name;
+        }
+
+        public Segment attribute(String key, Object value) {
+            attributes.put(key, value);
+            return this;
+        }
+
+        public Phase phase(String phaseName) {
+            Phase phase = new Phase(this, phaseName);
+            phases.add(phase);
+            return phase;
+        }
+
+        public List<Phase> phases() {
+            return phases;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("name", name);
+            // From the segment's start to the end of its last phase
+            builder.field("wall_ms", ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1_000_000);
+            builder.field("attributes", attributes);
+            builder.startArray("phases");
+            for (Phase phase : phases) {
+                phase.toXContent(builder, params);
+            }
+            builder.endArray();
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    /**
+     * One timed step. Measurements are taken when the phase is closed.
+     */
+    public static class Phase implements AutoCloseable, ToXContentObject {
+        private final Segment segment;
+        private final String name;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final long[] startIo;
+        private final long startGcCount;
+        private final long startGcMillis;
+        private long wallNanos;
+        private long cpuNanos;
+        private long bytesRead;
+        private long bytesWritten;
+        private long items;
+        private long[] io;
+        private long peakHeapBytes;
+        private long peakRssBytes;
+        private long directBytes;
+        private long gcCount;
+        private long gcMillis;
+        private volatile int gcPauses;
+        private volatile long gcPauseMillis;
+        private volatile long maxGcPauseMillis;
+        private boolean closed;
+
+        private Phase(Segment segment, String name) {
+            this.segment = segment;
+            this.name = name;
+            event.segment = segment.name;
+            event.phase = name;
+            resetPeaks();
+            this.startIo = readProcIo();
+            this.startGcCount = gcCount();
+            this.startGcMillis = gcMillis();
+            this.startCpuNanos = processCpuNanos();
+            this.startNanos = System.nanoTime();
+            OPEN_PHASES.add(this);
+            event.begin();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Add to the logical bytes this phase read, e.g. the size of a file it loaded.
+         */
+        public Phase bytesRead(long bytes) {
+            bytesRead += bytes;
+            return this;
+        }
+
+        /**
+         * Add to the logical bytes this phase wrote.
+         */
+        public Phase bytesWritten(long bytes) {
+            bytesWritten += bytes;
+            return this;
+        }
+
+        /**
+         * Add to the number of items (e.g. vectors) this phase processed; the report derives a
+         * per-second rate from it.
+         */
+        public Phase items(long count) {
+            items += count;
+            return this;
+        }
+
+        public long wallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * Wall time since the phase started, or its total once closed; lets callers print timings
+         * from inside the try-with-resources block that closes the phase.
+         */
+        public long elapsedNanos() {
+            return closed ? wallNanos : System.nanoTime() - startNanos;
+        }
+
+        /**
+         * Logical read throughput of the phase so far in MB/s (2^20 bytes).
+         */
+        public double readMBPerSecond() {
+            return mbPerSecond(bytesRead, elapsedNanos());
+        }
+
+        public long cpuNanos() {
+            return cpuNanos;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long now = System.nanoTime();
+            wallNanos = now - startNanos;
+            segment.endNanos = now;
+            cpuNanos = processCpuNanos() - startCpuNanos;
+            OPEN_PHASES.remove(this);
+            long[] endIo = readProcIo();
+            io = new long[endIo.length];
+            for (int i = 0; i < io.length; i++) {
+                io[i] = endIo[i] < 0 || startIo[i] < 0 ? -1 : endIo[i] - startIo[i];
+            }
+            gcCount = gcCount() - startGcCount;
+            gcMillis = gcMillis() - startGcMillis;
+            peakHeapBytes = peakHeapBytes();
+            peakRssBytes = readProcStatusBytes("VmHWM:");
+            directBytes = bufferPoolBytes();
+
+            event.bytesRead = bytesRead;
+            event.bytesWritten = bytesWritten;
+            event.cpuNanos = cpuNanos;
+            event.peakHeapBytes = peakHeapBytes;
+            event.peakRssBytes = peakRssBytes;
+            event.gcPauseMillis = gcPauseMillis;
+            event.commit();
+        }
+
+        private void recordPause(long millis) {
+            gcPauses++;
+            gcPauseMillis += millis;
+            maxGcPauseMillis = Math.max(maxGcPauseMillis, millis);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            // A phase left open by a failure is reported up to now
+            close();
+            builder.startObject();
+            builder.field("name", name);
+            builder.field("wall_ms", wallNanos / 1e6);
+            builder.field("cpu_ms", cpuNanos / 1e6);
+            builder.field("bytes_read", bytesRead);
+            builder.field("bytes_written", bytesWritten);
+            if (bytesRead > 0) {
+                builder.field("read_mb_per_second", readMBPerSecond());
+            }
+            if (bytesWritten > 0) {
+                builder.field("write_mb_per_second", mbPerSecond(bytesWritten, wallNanos));
+            }
+            if (items > 0) {
+                builder.field("items", items);
+                builder.field("items_per_second", wallNanos == 0 ? 0 : items * 1e9 / wallNanos);
+            }
+            builder.startObject("io");
+            builder.field("rchar", io[0]);
+            builder.field("wchar", io[1]);
+            builder.field("storage_read_bytes", io[2]);
+            builder.field("storage_write_bytes", io[3]);
+            builder.endObject();
+            builder.startObject("memory");
+            builder.field("peak_heap_bytes", peakHeapBytes);
+            builder.field("peak_rss_bytes", peakRssBytes);
+            builder.field("direct_and_mapped_buffer_bytes", directBytes);
+            builder.endObject();
+            builder.startObject("gc");
+            builder.field("collections", gcCount);
+            builder.field("collection_ms", gcMillis);
+            builder.field("pauses", gcPauses);
+            builder.field("pause_ms", gcPauseMillis);
+            builder.field("max_pause_ms", maxGcPauseMillis);
+            builder.endObject();
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    @Name(JFR_EVENT_NAME)
+    @Label("Reorder Phase")
+    @Category({"OpenSearch", "k-NN", "Reorder"})
+    @Description("One phase of a vector reorder job")
+    static final class PhaseEvent extends Event {
+        @Label("Segment")
+        String segment;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+
+        @Label("CPU Time (ns)")
+        long cpuNanos;
+
+        @Label("Peak Heap")
+        @DataAmount
+        long peakHeapBytes;
+
+        @Label("Peak RSS")
+        @DataAmount
+        long peakRssBytes;
+
+        @Label("GC Pause Time (ms)")
+        long gcPauseMillis;
+    }
+
+    private static synchronized void installGcListener() {
+        if (gcListenerInstalled) {
+            return;
+        }
+        NotificationListener listener = (notification, handback) -> {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            // ZGC and Shenandoah report concurrent cycles separately from their pauses
+            if (info.getGcName().endsWith("Cycles")) {
+                return;
+            }
+            long millis = info.getGcInfo().getDuration();
+            for (Phase phase : OPEN_PHASES) {
+                phase.recordPause(millis);
+            }
+        };
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(listener, null, null);
+            }
+        }
+        gcListenerInstalled = true;
+    }
+
+    private static long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        // Writing 5 resets VmHWM to the current RSS (Linux 4.0+)
+        try {
+            Files.write(PROC_SELF_CLEAR_REFS, "5".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // Peak RSS then covers the whole process lifetime
+        }
+    }
+
+    private static long peakHeapBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    private static long bufferPoolBytes() {
+        long total = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            total += Math.max(0, pool.getMemoryUsed());
+        }
+        return total;
+    }
+
+    /**
+     * rchar, wchar, read_bytes and write_bytes from /proc/self/io, or -1 each when unavailable.
+     */
+    private static long[] readProcIo() {
+        long[] values = {-1, -1, -1, -1};
+        String[] keys = {"rchar:", "wchar:", "read_bytes:", "write_bytes:"};
+        try {
+            for (String line : Files.readAllLines(PROC_SELF_IO)) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (line.startsWith(keys[i])) {
+                        values[i] = Long.parseLong(line.substring(keys[i].length()).trim());
+                    }
+                }
+            }
+        } catch (IOException | SecurityException e) {
+            // Not Linux, or /proc is not readable
+        }
+        return values;
+    }
+
+    /**
+     * A "kB" line of /proc/self/status in bytes, or -1 when unavailable.
+     */
+    private static long readProcStatusBytes(String key) {
+        try {
+            for (String line : Files.readAllLines(PROC_SELF_STATUS)) {
+                if (line.startsWith(key)) {
+                    String value = line.substring(key.length()).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or an unexpected format
+        }
+        return -1;
+    }
+}
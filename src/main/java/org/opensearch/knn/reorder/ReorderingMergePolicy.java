@@ -0,0 +1,188 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.FilterMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Sorter;
+import org.apache.lucene.misc.index.AbstractBPReorderer;
+import org.apache.lucene.misc.index.IndexReorderer;
+import org.apache.lucene.store.Directory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Merge policy that renumbers the docs of large merged segments with a vector-locality
+ * {@link IndexReorderer} ({@link org.apache.lucene.misc.index.BpVectorReorderer} or
+ * {@link KMeansIndexReorderer}), so a live index is reordered as it merges instead of by an offline
+ * job. Modelled on Lucene's BPReorderingMergePolicy, which only accepts the postings-based
+ * BPIndexReorderer.
+ *
+ * Natural merges below {@link #setMinNaturalMergeNumDocs} docs are left alone; forced merges and
+ * addIndexes are always reordered. Reordering runs on a dedicated pool of
+ * {@link #setThreadBudget threadBudget} daemon threads rather than Lucene's intra-merge executor,
+ * and at most {@link #setMaxConcurrentReorders} merges compute a doc map at a time; later ones
+ * wait, which throttles the merge thread the same way a slow merge would. A reorderer that runs out
+ * of RAM skips reordering rather than failing the merge. Reordered segments carry the
+ * {@code knn.reordered} diagnostic.
+ */
+public final class ReorderingMergePolicy extends FilterMergePolicy {
+
+    public static final String REORDERED_DIAGNOSTIC = LuceneRewriteReorderer.REORDERED_DIAGNOSTIC;
+    public static final int DEFAULT_MIN_NATURAL_MERGE_NUM_DOCS = 1 << 18;
+
+    private final IndexReorderer reorderer;
+    private int minNaturalMergeNumDocs = DEFAULT_MIN_NATURAL_MERGE_NUM_DOCS;
+    private volatile ForkJoinPool pool;
+    private volatile Semaphore reorderPermits = new Semaphore(1);
+
+    /**
+     * @param in        merge policy that selects the merges
+     * @param reorderer computes the doc map of each large merged segment
+     */
+    public ReorderingMergePolicy(MergePolicy in, IndexReorderer reorderer) {
+        super(in);
+        this.reorderer = reorderer;
+        setThreadBudget(Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
+    }
+
+    /**
+     * Minimum number of live docs a natural merge must produce for its segment to be reordered.
+     * Pass {@link Integer#MAX_VALUE} to reorder only on forced merges.
+     */
+    public void setMinNaturalMergeNumDocs(int minNaturalMergeNumDocs) {
+        if (minNaturalMergeNumDocs < 1) {
+            throw new IllegalArgumentException("minNaturalMergeNumDocs must be at least 1, got " + minNaturalMergeNumDocs);
+        }
+        this.minNaturalMergeNumDocs = minNaturalMergeNumDocs;
+    }
+
+    /**
+     * Number of threads that compute doc maps, shared by all concurrent merges. Defaults to a quarter
+     * of the available processors so indexing and search keep most of the CPU.
+     */
+    public void setThreadBudget(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, got " + threads);
+        }
+        ForkJoinPool previous = pool;
+        pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(p) {};
+            thread.setName("knn-reorder-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Number of merges that may compute a doc map at the same time. Defaults to 1.
+     */
+    public void setMaxConcurrentReorders(int maxConcurrentReorders) {
+        if (maxConcurrentReorders < 1) {
+            throw new IllegalArgumentException("maxConcurrentReorders must be at least 1, got " + maxConcurrentReorders);
+        }
+        reorderPermits = new Semaphore(maxConcurrentReorders);
+    }
+
+    private MergeSpecification maybeReorder(MergeSpecification spec, boolean forced) {
+        if (spec == null) {
+            return null;
+        }
+        int minNumDocs = forced ? 1 : minNaturalMergeNumDocs;
+        MergeSpecification newSpec = new MergeSpecification();
+        for (OneMerge merge : spec.merges) {
+            newSpec.add(new ReorderingMerge(merge, minNumDocs));
+        }
+        return newSpec;
+    }
+
+    private class ReorderingMerge extends OneMerge {
+        private final OneMerge in;
+        private final int minNumDocs;
+        private volatile boolean reordered;
+
+        ReorderingMerge(OneMerge in, int minNumDocs) {
+            super(in);
+            this.in = in;
+            this.minNumDocs = minNumDocs;
+        }
+
+        @Override
+        public CodecReader wrapForMerge(CodecReader reader) throws IOException {
+            return in.wrapForMerge(reader);
+        }
+
+        @Override
+        public Sorter.DocMap reorder(CodecReader reader, Directory dir, Executor ignored) throws IOException {
+            if (reader.numDocs() < minNumDocs) {
+                return null;
+            }
+            Executor executor = pool;
+            Semaphore permits = reorderPermits;
+            permits.acquireUninterruptibly();
+            try {
+                Sorter.DocMap docMap = reorderer.computeDocMap(reader, dir, executor);
+                reordered = docMap != null;
+                return docMap;
+            } catch (AbstractBPReorderer.NotEnoughRAMException e) {
+                // Skip reordering, the merge must not fail
+                return null;
+            } finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void setMergeInfo(SegmentCommitInfo info) {
+            // reorder() is not called at all when an index sort is configured
+            info.info.addDiagnostics(Collections.singletonMap(REORDERED_DIAGNOSTIC, Boolean.toString(reordered)));
+            super.setMergeInfo(info);
+        }
+    }
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos,
+                                         MergeContext mergeContext) throws IOException {
+        return maybeReorder(super.findMerges(mergeTrigger, segmentInfos, mergeContext), false);
+    }
+
+    @Override
+    public MergeSpecification findForcedMerges(SegmentInfos segmentInfos, int maxSegmentCount,
+                                               Map<SegmentCommitInfo, Boolean> segmentsToMerge,
+                                               MergeContext mergeContext) throws IOException {
+        return maybeReorder(super.findForcedMerges(segmentInfos, maxSegmentCount, segmentsToMerge, mergeContext), true);
+    }
+
+    @Override
+    public MergeSpecification findForcedDeletesMerges(SegmentInfos segmentInfos, MergeContext mergeContext)
+            throws IOException {
+        return maybeReorder(super.findForcedDeletesMerges(segmentInfos, mergeContext), true);
+    }
+
+    @Override
+    public MergeSpecification findFullFlushMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos,
+                                                  MergeContext mergeContext) throws IOException {
+        return maybeReorder(super.findFullFlushMerges(mergeTrigger, segmentInfos, mergeContext), false);
+    }
+
+    @Override
+    public MergeSpecification findMerges(CodecReader... readers) throws IOException {
+        // addIndexes is treated as a forced merge
+        return maybeReorder(super.findMerges(readers), true);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.util.VectorUtil;
+
+import java.util.Arrays;
+
+/**
+ * k-NN space types and how each maps onto the FAISS metric used for clustering and the Lucene
+ * similarity used for BP reordering.
+ *
+ * Cosine similarity is inner product on unit vectors, which is also how k-NN indexes
+ * {@code cosinesimil} in FAISS. Vectors are normalized once into the working buffer with
+ * {@link #prepare(float[][])}, after which clustering, BP and the .faiss rebuild all see the same
+ * geometry. The .vec file itself is never rewritten from the buffer, so it keeps the original
+ * vectors.
+ */
+public enum SpaceType {
+    L2("l2", FaissKMeansService.METRIC_L2, VectorSimilarityFunction.EUCLIDEAN, false),
+    INNER_PRODUCT("innerproduct", FaissKMeansService.METRIC_INNER_PRODUCT, VectorSimilarityFunction.MAXIMUM_INNER_PRODUCT, false),
+    COSINESIMIL("cosinesimil", FaissKMeansService.METRIC_INNER_PRODUCT, VectorSimilarityFunction.COSINE, true);
+
+    private final String value;
+    private final int metricType;
+    private final VectorSimilarityFunction similarityFunction;
+    private final boolean normalize;
+
+    SpaceType(String value, int metricType, VectorSimilarityFunction similarityFunction, boolean normalize) {
+        this.value = value;
+        this.metricType = metricType;
+        this.similarityFunction = similarityFunction;
+        this.normalize = normalize;
+    }
+
+    /**
+     * Parse a k-NN space type name such as "l2", "innerproduct" or "cosinesimil".
+     */
+    public static SpaceType fromValue(String value) {
+        for (SpaceType spaceType : values()) {
+            if (spaceType.value.equalsIgnoreCase(value)) {
+                return spaceType;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported space type: " + value + ", expected one of "
+            + Arrays.stream(values()).map(SpaceType::getValue).toList());
+    }
+
+    /**
+     * Space that clusters vectors of a Lucene field with the given similarity. DOT_PRODUCT fields hold
+     * unit vectors already, so they cluster like inner product.
+     */
+    public static SpaceType fromSimilarity(VectorSimilarityFunction similarityFunction) {
+        return switch (similarityFunction) {
+            case EUCLIDEAN -> L2;
+            case DOT_PRODUCT, MAXIMUM_INNER_PRODUCT -> INNER_PRODUCT;
+            case COSINE -> COSINESIMIL;
+        };
+    }
+
+    /**
+     * Name used by k-NN and by {@link FaissIndexService#buildAndWriteIndex}.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * FaissKMeansService.METRIC_L2 or METRIC_INNER_PRODUCT.
+     */
+    public int getMetricType() {
+        return metricType;
+    }
+
+    public VectorSimilarityFunction getSimilarityFunction() {
+        return similarityFunction;
+    }
+
+    /**
+     * Whether vectors must be unit length before clustering or reordering.
+     */
+    public boolean isNormalized() {
+        return normalize;
+    }
+
+    /**
+     * Bring loaded vectors into this space's working geometry, normalizing them in place for
+     * cosine similarity. Zero vectors are left unchanged.
+     *
+     * @return the same array, for chaining
+     */
+    public float[][] prepare(float[][] vectors) {
+        if (normalize) {
+            Arrays.stream(vectors).parallel().forEach(v -> VectorUtil.l2normalize(v, false));
+        }
+        return vectors;
+    }
+}
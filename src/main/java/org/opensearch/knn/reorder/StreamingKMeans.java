@@ -0,0 +1,237 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.util.VectorUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Mini-batch k-means that streams vectors instead of holding the whole segment in memory.
+ *
+ * Training visits the data in contiguous batches (in shuffled batch order, so each batch is a
+ * single sequential read) and moves each centroid towards its assigned vectors with a per-centroid
+ * learning rate of 1/count, as in Sculley's "Web-Scale K-Means Clustering". A final sequential
+ * pass assigns every vector to its nearest centroid and records the distance, producing the same
+ * {@link KMeansResult} as {@link FaissKMeansService#kmeansWithDistances}: squared L2 distance for
+ * {@link FaissKMeansService#METRIC_L2} and inner product for
+ * {@link FaissKMeansService#METRIC_INNER_PRODUCT}.
+ *
+ * Memory use is O(k * dim + batchSize * dim) plus the 8 bytes per vector of the result.
+ */
+public class StreamingKMeans {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    public static final int DEFAULT_TRAIN_PASSES = 1;
+
+    /**
+     * Number of clusters for {@code n} vectors: {@code requested} capped at n, or for 0 the adaptive
+     * min(100, n / 10), never less than one.
+     */
+    public static int numClusters(int n, int requested) {
+        return requested > 0 ? Math.min(requested, n) : Math.max(1, Math.min(100, n / 10));
+    }
+
+    /**
+     * Cluster a mapped .vec file. See {@link #cluster(FloatVectorValues, int, int, int, int, long)}.
+     */
+    public static KMeansResult cluster(String vecPath, int numClusters, int batchSize, int trainPasses,
+                                       int metricType, long seed) throws IOException {
+        try (VecFileVectorValues vectors = VecFileVectorValues.open(vecPath)) {
+            return cluster(vectors, numClusters, batchSize, trainPasses, metricType, seed);
+        }
+    }
+
+    /**
+     * Cluster a mapped .vec file in the given space; cosine vectors are normalized as they are read
+     * and clustered spherically.
+     */
+    public static KMeansResult cluster(String vecPath, SpaceType spaceType, int numClusters, int batchSize,
+                                       int trainPasses, long seed) throws IOException {
+        try (VecFileVectorValues vectors = VecFileVectorValues.open(vecPath, spaceType.isNormalized())) {
+            float[][] centroids = trainCentroids(vectors, spaceType, numClusters, batchSize, trainPasses, seed);
+            return assign(vectors, centroids, batchSize, spaceType.getMetricType());
+        }
+    }
+
+    /**
+     * Train centroids with mini-batch k-means, then assign every vector to its nearest centroid.
+     *
+     * @param vectors     vectors to cluster, read in ordinal order
+     * @param numClusters number of clusters (k)
+     * @param batchSize   number of vectors per mini-batch
+     * @param trainPasses number of passes over the data during training
+     * @param metricType  METRIC_L2 or METRIC_INNER_PRODUCT
+     * @param seed        seed for centroid initialization and batch order
+     * @return KMeansResult containing assignments and distances
+     */
+    public static KMeansResult cluster(FloatVectorValues vectors, int numClusters, int batchSize, int trainPasses,
+                                       int metricType, long seed) throws IOException {
+        float[][] centroids = trainCentroids(vectors, numClusters, batchSize, trainPasses, metricType, seed);
+        return assign(vectors, centroids, batchSize, metricType);
+    }
+
+    /**
+     * Train k centroids with mini-batch k-means.
+     *
+     * @return centroids[k][dim]
+     */
+    public static float[][] trainCentroids(FloatVectorValues vectors, int numClusters, int batchSize, int trainPasses,
+                                           int metricType, long seed) throws IOException {
+        int n = vectors.size();
+        int dim = vectors.dimension();
+        if (numClusters < 1 || numClusters > n) {
+            throw new IllegalArgumentException("numClusters must be in [1, " + n + "], got " + numClusters);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1, got " + batchSize);
+        }
+
+        Random random = new Random(seed);
+        float[][] centroids = initCentroids(vectors, numClusters, random);
+        long[] counts = new long[numClusters];
+
+        int numBatches = (n + batchSize - 1) / batchSize;
+        float[][] batch = new float[Math.min(batchSize, n)][dim];
+        int[] batchAssignments = new int[batch.length];
+        float[] batchDistances = new float[batch.length];
+
+        for (int pass = 0; pass < trainPasses; pass++) {
+            int[] batchOrder = shuffledRange(numBatches, random);
+            for (int b : batchOrder) {
+                int from = b * batchSize;
+                int count = Math.min(batchSize, n - from);
+                readBatch(vectors, from, count, batch);
+                assignBatch(batch, count, centroids, metricType, batchAssignments, batchDistances);
+
+                for (int i = 0; i < count; i++) {
+                    int c = batchAssignments[i];
+                    float eta = 1f / ++counts[c];
+                    float[] centroid = centroids[c];
+                    float[] v = batch[i];
+                    for (int j = 0; j < dim; j++) {
+                        centroid[j] += eta * (v[j] - centroid[j]);
+                    }
+                }
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * Train k centroids in the given space. For cosine the vectors must already be normalized, and
+     * the centroids are projected back onto the unit sphere so that inner-product assignment does
+     * not favour clusters with a larger mean norm.
+     *
+     * @return centroids[k][dim]
+     */
+    public static float[][] trainCentroids(FloatVectorValues vectors, SpaceType spaceType, int numClusters,
+                                           int batchSize, int trainPasses, long seed) throws IOException {
+        float[][] centroids = trainCentroids(vectors, numClusters, batchSize, trainPasses, spaceType.getMetricType(), seed);
+        return spaceType.prepare(centroids);
+    }
+
+    /**
+     * Assign every vector to its nearest centroid in a single sequential pass.
+     */
+    public static KMeansResult assign(FloatVectorValues vectors, float[][] centroids, int batchSize, int metricType)
+            throws IOException {
+        int n = vectors.size();
+        int dim = vectors.dimension();
+        int[] assignments = new int[n];
+        float[] distances = new float[n];
+        float[][] batch = new float[Math.min(batchSize, n)][dim];
+        int[] batchAssignments = new int[batch.length];
+        float[] batchDistances = new float[batch.length];
+
+        for (int from = 0; from < n; from += batchSize) {
+            int count = Math.min(batchSize, n - from);
+            readBatch(vectors, from, count, batch);
+            assignBatch(batch, count, centroids, metricType, batchAssignments, batchDistances);
+            System.arraycopy(batchAssignments, 0, assignments, from, count);
+            System.arraycopy(batchDistances, 0, distances, from, count);
+        }
+        return new KMeansResult(assignments, distances);
+    }
+
+    /**
+     * Returns the similarity-oriented distance between a vector and a centroid: squared L2 (lower is
+     * closer) or inner product (higher is closer).
+     */
+    static float distance(float[] v, float[] centroid, int metricType) {
+        return metricType == FaissKMeansService.METRIC_INNER_PRODUCT
+            ? VectorUtil.dotProduct(v, centroid)
+            : VectorUtil.squareDistance(v, centroid);
+    }
+
+    static boolean isCloser(float candidate, float best, int metricType) {
+        return metricType == FaissKMeansService.METRIC_INNER_PRODUCT ? candidate > best : candidate < best;
+    }
+
+    private static void assignBatch(float[][] batch, int count, float[][] centroids, int metricType,
+                                    int[] assignments, float[] distances) {
+        IntStream.range(0, count).parallel().forEach(i -> {
+            float[] v = batch[i];
+            int best = 0;
+            float bestDist = distance(v, centroids[0], metricType);
+            for (int c = 1; c < centroids.length; c++) {
+                float d = distance(v, centroids[c], metricType);
+                if (isCloser(d, bestDist, metricType)) {
+                    bestDist = d;
+                    best = c;
+                }
+            }
+            assignments[i] = best;
+            distances[i] = bestDist;
+        });
+    }
+
+    static void readBatch(FloatVectorValues vectors, int from, int count, float[][] dst) throws IOException {
+        if (vectors instanceof VecFileVectorValues vec) {
+            vec.readBatch(from, count, dst);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(vectors.vectorValue(from + i), 0, dst[i], 0, vectors.dimension());
+        }
+    }
+
+    private static float[][] initCentroids(FloatVectorValues vectors, int numClusters, Random random)
+            throws IOException {
+        // Floyd's sampling of k distinct ordinals, visited in increasing order to keep reads forward-only
+        int n = vectors.size();
+        Set<Integer> chosen = new HashSet<>();
+        for (int j = n - numClusters; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            chosen.add(chosen.contains(t) ? j : t);
+        }
+        int[] picked = chosen.stream().mapToInt(Integer::intValue).sorted().toArray();
+
+        float[][] centroids = new float[numClusters][];
+        for (int c = 0; c < numClusters; c++) {
+            centroids[c] = vectors.vectorValue(picked[c]).clone();
+        }
+        return centroids;
+    }
+
+    private static int[] shuffledRange(int n, Random random) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) values[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+        return values;
+    }
+}
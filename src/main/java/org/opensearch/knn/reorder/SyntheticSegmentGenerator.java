@@ -0,0 +1,304 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.DocsWithFieldSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.VectorUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Writes synthetic k-NN segments: a .vec/.vemf pair in the layout of a real
+ * NativeEngines990KnnVectorsFormat field and, optionally, a matching FAISS HNSW .faiss file.
+ *
+ * Vectors are generated and written one batch at a time, so the heap only ever holds a batch.
+ * Each block of {@value #BLOCK_SIZE} vectors is drawn from its own seeded generator, which keeps
+ * the output identical for a given seed whatever the batch size, and lets a batch be generated in
+ * parallel. The .faiss file is built from native memory filled batch by batch.
+ *
+ * <ul>
+ *   <li>{@link Distribution#GAUSSIAN}: isotropic Gaussian blobs around centers drawn uniformly
+ *       from [-1, 1]^dim.</li>
+ *   <li>{@link Distribution#SIFT}: SIFT-like histograms. Components are non-negative integers
+ *       capped at 255, with skewed per-cluster means so most are small and many are zero.</li>
+ * </ul>
+ *
+ * A density below 1 produces a sparse field: {@code ceil(n / density)} documents, of which a
+ * uniformly random subset of exactly n have a vector. The .faiss ID mapping then holds the doc IDs.
+ */
+public class SyntheticSegmentGenerator {
+
+    public static final String SEGMENT_SUFFIX = "NativeEngines990KnnVectorsFormat_0";
+    public static final String FIELD_NAME = "vectors";
+    public static final int DEFAULT_BATCH_SIZE = 65536;
+    public static final int DEFAULT_CLUSTERS = 100;
+
+    // Vectors drawn from one generator; batches are rounded to a multiple of this
+    static final int BLOCK_SIZE = 1024;
+    // k-NN names engine files <segment>_<buildVersion>_<field>.faiss
+    private static final String FAISS_BUILD_VERSION = "165";
+    private static final float GAUSSIAN_SIGMA = 0.1f;
+    private static final float SIFT_MEAN = 20f;
+
+    public enum Distribution {
+        GAUSSIAN,
+        SIFT;
+
+        public static Distribution fromName(String name) {
+            return Distribution.valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * What to generate.
+     *
+     * @param numVectors     number of vectors
+     * @param dimension      vector dimension
+     * @param numClusters    mixture components
+     * @param distribution   vector distribution
+     * @param density        fraction of documents that have a vector, in (0, 1]
+     * @param spaceType      recorded as the field similarity and used to build the .faiss index
+     * @param seed           random seed
+     * @param writeFaiss     also build a .faiss file (needs the native library)
+     * @param m              HNSW M
+     * @param efConstruction HNSW ef_construction
+     * @param efSearch       HNSW ef_search
+     * @param batchSize      vectors per generated batch
+     */
+    public record Options(int numVectors, int dimension, int numClusters, Distribution distribution, double density,
+                          SpaceType spaceType, long seed, boolean writeFaiss, int m, int efConstruction, int efSearch,
+                          int batchSize) {
+
+        public Options {
+            if (numVectors <= 0 || dimension <= 0 || numClusters <= 0) {
+                throw new IllegalArgumentException("numVectors, dimension and numClusters must be positive");
+            }
+            if (!(density > 0 && density <= 1)) {
+                throw new IllegalArgumentException("density must be in (0, 1], got " + density);
+            }
+            if ((long) Math.ceil(numVectors / density) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("numVectors / density exceeds the maximum number of documents");
+            }
+        }
+
+        /**
+         * Dense L2 Gaussian mixture with default HNSW parameters.
+         */
+        public static Options of(int numVectors, int dimension) {
+            return new Options(numVectors, dimension, DEFAULT_CLUSTERS, Distribution.GAUSSIAN, 1.0, SpaceType.L2, 42L,
+                false, 16, 100, 100, DEFAULT_BATCH_SIZE);
+        }
+
+        public int maxDoc() {
+            return (int) Math.ceil(numVectors / density);
+        }
+    }
+
+    /**
+     * Paths of the generated files; {@code faissPath} is null when no .faiss was written.
+     */
+    public record Segment(String vecPath, String vemfPath, String faissPath, int maxDoc) {}
+
+    /**
+     * Generate a segment named {@code segmentName} (e.g. "_z") in {@code outputDir}.
+     */
+    public static Segment generate(String outputDir, String segmentName, Options options) throws IOException {
+        Path dir = Paths.get(outputDir).toAbsolutePath();
+        Files.createDirectories(dir);
+        String vecPath = dir.resolve(segmentName + "_" + SEGMENT_SUFFIX + ".vec").toString();
+        String vemfPath = dir.resolve(segmentName + "_" + SEGMENT_SUFFIX + ".vemf").toString();
+        String faissPath = options.writeFaiss()
+            ? dir.resolve(segmentName + "_" + FAISS_BUILD_VERSION + "_" + FIELD_NAME + ".faiss").toString()
+            : null;
+
+        int n = options.numVectors();
+        int dim = options.dimension();
+        int maxDoc = options.maxDoc();
+        Random random = new Random(options.seed());
+        byte[] segmentId = new byte[16];
+        random.nextBytes(segmentId);
+        float[][] centers = centers(options, random);
+        DocsWithFieldSet docsWithField = maxDoc == n ? null : sampleDocs(n, maxDoc, random);
+
+        int batchSize = Math.max(BLOCK_SIZE, options.batchSize() / BLOCK_SIZE * BLOCK_SIZE);
+        float[] batch = new float[batchSize * dim];
+        float[] normalized = options.writeFaiss() && options.spaceType().isNormalized() ? new float[batchSize * dim] : null;
+        long address = options.writeFaiss() ? FaissKMeansService.allocateVectors(n, dim) : 0;
+        try {
+            long start = System.currentTimeMillis();
+            try (KnnFileWriter.VectorStreamWriter writer =
+                     KnnFileWriter.openVectorStream(vecPath, vemfPath, segmentId, SEGMENT_SUFFIX, dim)) {
+                for (int from = 0; from < n; from += batchSize) {
+                    int count = Math.min(batchSize, n - from);
+                    fillBatch(options, centers, from, count, batch);
+                    writer.add(batch, count);
+                    if (address != 0) {
+                        // The .vec keeps raw vectors; the FAISS index is built in the space's geometry
+                        float[] faissBatch = batch;
+                        if (normalized != null) {
+                            faissBatch = normalized;
+                            normalizeRows(batch, normalized, count, dim);
+                        }
+                        FaissKMeansService.copyVectors(address, from, faissBatch, count, dim);
+                    }
+                    if ((from / batchSize) % 16 == 15) {
+                        System.out.println("  Wrote " + (from + count) + " / " + n + " vectors");
+                    }
+                }
+                writer.finish(0, options.spaceType().getSimilarityFunction().ordinal(), maxDoc, docsWithField);
+            }
+            System.out.println("Wrote " + n + " vectors (" + maxDoc + " docs) to " + vecPath + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+            if (address != 0) {
+                start = System.currentTimeMillis();
+                FaissIndexService.buildAndWriteIndex(address, n, dim, docIds(n, docsWithField),
+                    "HNSW" + options.m() + ",Flat", options.spaceType().getValue(),
+                    options.efConstruction(), options.efSearch(), faissPath, 0);
+                System.out.println("Built " + faissPath + " in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        } finally {
+            if (address != 0) {
+                FaissKMeansService.freeVectors(address);
+            }
+        }
+        return new Segment(vecPath, vemfPath, faissPath, maxDoc);
+    }
+
+    private static float[][] centers(Options options, Random random) {
+        float[][] centers = new float[options.numClusters()][options.dimension()];
+        for (float[] center : centers) {
+            for (int j = 0; j < center.length; j++) {
+                center[j] = switch (options.distribution()) {
+                    case GAUSSIAN -> random.nextFloat() * 2 - 1;
+                    // Exponential means: a few large bins per histogram, most small
+                    case SIFT -> (float) (-Math.log(1 - random.nextDouble()) * SIFT_MEAN);
+                };
+            }
+        }
+        return centers;
+    }
+
+    /**
+     * Fill {@code batch} with vectors {@code from .. from + count}, one block per task.
+     */
+    static void fillBatch(Options options, float[][] centers, int from, int count, float[] batch) {
+        int dim = options.dimension();
+        int firstBlock = from / BLOCK_SIZE;
+        int numBlocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream.range(0, numBlocks).parallel().forEach(b -> {
+            Random random = new Random(options.seed() ^ ((firstBlock + b + 1) * 0x9E3779B97F4A7C15L));
+            int blockCount = Math.min(BLOCK_SIZE, count - b * BLOCK_SIZE);
+            for (int i = 0; i < blockCount; i++) {
+                float[] center = centers[random.nextInt(centers.length)];
+                int base = (b * BLOCK_SIZE + i) * dim;
+                for (int j = 0; j < dim; j++) {
+                    batch[base + j] = switch (options.distribution()) {
+                        case GAUSSIAN -> center[j] + (float) random.nextGaussian() * GAUSSIAN_SIGMA;
+                        case SIFT -> Math.min(255f, Math.max(0f,
+                            Math.round(center[j] + random.nextGaussian() * (0.3 * center[j] + 4))));
+                    };
+                }
+            }
+        });
+    }
+
+    private static void normalizeRows(float[] src, float[] dst, int count, int dim) {
+        IntStream.range(0, count).parallel().forEach(i -> {
+            float[] row = Arrays.copyOfRange(src, i * dim, (i + 1) * dim);
+            VectorUtil.l2normalize(row, false);
+            System.arraycopy(row, 0, dst, i * dim, dim);
+        });
+    }
+
+    /**
+     * Pick exactly {@code n} of {@code maxDoc} documents uniformly at random, in one pass (Knuth's
+     * selection sampling), so only the bit set is held in memory.
+     */
+    static DocsWithFieldSet sampleDocs(int n, int maxDoc, Random random) {
+        DocsWithFieldSet docs = new DocsWithFieldSet();
+        int needed = n;
+        for (int doc = 0; doc < maxDoc && needed > 0; doc++) {
+            if (random.nextInt(maxDoc - doc) < needed) {
+                docs.add(doc);
+                needed--;
+            }
+        }
+        return docs;
+    }
+
+    private static int[] docIds(int n, DocsWithFieldSet docsWithField) throws IOException {
+        int[] ids = new int[n];
+        if (docsWithField == null) {
+            for (int i = 0; i < n; i++) {
+                ids[i] = i;
+            }
+            return ids;
+        }
+        DocIdSetIterator iterator = docsWithField.iterator();
+        int ord = 0;
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            ids[ord++] = doc;
+        }
+        return ids;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String outputDir = null;
+        String segmentName = "_z";
+        int numVectors = 0;
+        int dimension = 0;
+        int numClusters = DEFAULT_CLUSTERS;
+        String distribution = "gaussian";
+        double density = 1.0;
+        String spaceName = "l2";
+        long seed = 42L;
+        boolean writeFaiss = false;
+        int m = 16;
+        int efConstruction = 100;
+        int efSearch = 100;
+        int batchSize = DEFAULT_BATCH_SIZE;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--output" -> { if (++i < args.length) outputDir = args[i]; }
+                case "--segment" -> { if (++i < args.length) segmentName = args[i]; }
+                case "--n" -> { if (++i < args.length) numVectors = Integer.parseInt(args[i]); }
+                case "--dim" -> { if (++i < args.length) dimension = Integer.parseInt(args[i]); }
+                case "--clusters" -> { if (++i < args.length) numClusters = Integer.parseInt(args[i]); }
+                case "--distribution" -> { if (++i < args.length) distribution = args[i]; }
+                case "--density" -> { if (++i < args.length) density = Double.parseDouble(args[i]); }
+                case "--space" -> { if (++i < args.length) spaceName = args[i]; }
+                case "--seed" -> { if (++i < args.length) seed = Long.parseLong(args[i]); }
+                case "--faiss" -> writeFaiss = true;
+                case "--m" -> { if (++i < args.length) m = Integer.parseInt(args[i]); }
+                case "--ef-construction" -> { if (++i < args.length) efConstruction = Integer.parseInt(args[i]); }
+                case "--ef-search" -> { if (++i < args.length) efSearch = Integer.parseInt(args[i]); }
+                case "--batch-size" -> { if (++i < args.length) batchSize = Integer.parseInt(args[i]); }
+            }
+        }
+        if (outputDir == null || numVectors <= 0 || dimension <= 0) {
+            System.err.println("Usage: SyntheticSegmentGenerator --output <dir> --n <vectors> --dim <dimension> [--segment _z]");
+            System.err.println("                                 [--distribution gaussian|sift] [--clusters <n>] [--density <0..1>]");
+            System.err.println("                                 [--space <l2|innerproduct|cosinesimil>] [--seed <n>] [--batch-size <n>]");
+            System.err.println("                                 [--faiss [--m <n>] [--ef-construction <n>] [--ef-search <n>]]");
+            System.exit(1);
+        }
+
+        Options options = new Options(numVectors, dimension, numClusters, Distribution.fromName(distribution), density,
+            SpaceType.fromValue(spaceName), seed, writeFaiss, m, efConstruction, efSearch, batchSize);
+        Segment segment = generate(outputDir, segmentName, options);
+        System.out.println("Generated " + segment);
+    }
+}
@@ -6,6 +6,7 @@
 package org.opensearch.knn.reorder;
 
 import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.DataAccessHint;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
@@ -14,60 +15,181 @@ import org.apache.lucene.store.IndexOutput;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Utility class for reading and writing Lucene99FlatVectorsFormat .vec files.
  */
 public class VecFileIO {
 
-    private static final String META_CODEC_NAME = "Lucene99FlatVectorsFormatMeta";
+    /** Threads {@link #loadVectors(String)} reads with; a single local disk gains nothing beyond a few */
+    public static final int DEFAULT_LOAD_THREADS = Math.min(8, Runtime.getRuntime().availableProcessors());
+    // Smaller ranges cost more in thread handoff than they gain in parallel reads
+    static final long MIN_RANGE_BYTES = 1L << 20;
+    private static final int OFF_HEAP_BATCH_BYTES = 1 << 20;
 
     public record VecFileMeta(int dimension, int size, long dataOffset, long dataLength) {}
 
     /**
-     * Read metadata from .vemf file.
+     * Read metadata from .vemf file. Works for any segment suffix and for dense and sparse fields.
      */
     public static VecFileMeta readMetadata(String vecPath) throws IOException {
         Path path = Paths.get(vecPath);
-        String metaFileName = path.getFileName().toString().replace(".vec", ".vemf");
-        
-        try (FSDirectory directory = FSDirectory.open(path.getParent());
-             IndexInput meta = directory.openInput(metaFileName, IOContext.DEFAULT)) {
-            
-            int headerLength = CodecUtil.headerLength(META_CODEC_NAME) + 16 + 1 + "NativeEngines990KnnVectorsFormat_0".length();
-            meta.seek(headerLength);
-            
-            meta.readInt(); // fieldNumber
-            meta.readInt(); // vectorEncoding
-            meta.readInt(); // similarityFunction
-            long dataOffset = meta.readVLong();
-            long dataLength = meta.readVLong();
-            int dimension = meta.readVInt();
-            int size = meta.readInt();
-            
-            return new VecFileMeta(dimension, size, dataOffset, dataLength);
-        }
+        Path metaPath = path.resolveSibling(path.getFileName().toString().replace(".vec", ".vemf"));
+        VemfFileIO.VemfMeta meta = VemfFileIO.readMetadata(metaPath.toString());
+        return new VecFileMeta(meta.dimension(), meta.size(), meta.vectorDataOffset(), meta.vectorDataLength());
     }
 
     /**
-     * Load all vectors from a .vec file into memory.
+     * Load all vectors from a .vec file into memory with {@link #DEFAULT_LOAD_THREADS} threads.
      */
     public static float[][] loadVectors(String vecPath) throws IOException {
-        Path path = Paths.get(vecPath);
+        return loadVectors(vecPath, DEFAULT_LOAD_THREADS);
+    }
+
+    /**
+     * Load all vectors from a .vec file into memory. The data region is split into up to
+     * {@code threads} contiguous ranges that are read concurrently, each through its own input opened
+     * with a sequential access hint, so the OS reads ahead aggressively and a network volume serves
+     * several requests at once instead of one.
+     */
+    public static float[][] loadVectors(String vecPath, int threads) throws IOException {
         VecFileMeta meta = readMetadata(vecPath);
-        
         float[][] vectors = new float[meta.size][meta.dimension];
-        try (FSDirectory directory = FSDirectory.open(path.getParent());
-             IndexInput vecInput = directory.openInput(path.getFileName().toString(), IOContext.DEFAULT)) {
-            
-            IndexInput slice = vecInput.slice("vectors", meta.dataOffset, meta.dataLength);
-            for (int i = 0; i < meta.size; i++) {
+        readRanges(vecPath, meta, threads, true, (slice, from, to) -> {
+            for (int i = from; i < to; i++) {
                 slice.readFloats(vectors[i], 0, meta.dimension);
             }
-        }
+        });
         return vectors;
     }
 
+    /**
+     * Load vectors into native memory from {@link FaissKMeansService#allocateVectors}, vector
+     * {@code order[i]} at position i, so a FAISS build can take them without the segment ever being on
+     * the heap. Ranges of positions are read concurrently and copied in 1 MB batches. The caller
+     * releases the memory with {@link FaissKMeansService#freeVectors}.
+     *
+     * @param order newOrder[newIdx] = oldIdx, or null for file order, which is read sequentially
+     * @return pointer to numVectors * dimension floats
+     */
+    public static long loadVectorsOffHeap(String vecPath, int[] order, int threads) throws IOException {
+        VecFileMeta meta = readMetadata(vecPath);
+        if (order != null && order.length != meta.size) {
+            throw new IllegalArgumentException("Order has " + order.length + " entries, " + vecPath + " has "
+                + meta.size + " vectors");
+        }
+        int dim = meta.dimension;
+        long vectorBytes = (long) dim * Float.BYTES;
+        int batchVectors = (int) Math.max(1, OFF_HEAP_BATCH_BYTES / vectorBytes);
+        long address = FaissKMeansService.allocateVectors(meta.size, dim);
+        boolean success = false;
+        try {
+            readRanges(vecPath, meta, threads, order == null, (slice, from, to) -> {
+                float[] batch = new float[batchVectors * dim];
+                for (int start = from; start < to; start += batchVectors) {
+                    int count = Math.min(batchVectors, to - start);
+                    if (order == null) {
+                        slice.readFloats(batch, 0, count * dim);
+                    } else {
+                        for (int k = 0; k < count; k++) {
+                            slice.seek(order[start + k] * vectorBytes);
+                            slice.readFloats(batch, k * dim, dim);
+                        }
+                    }
+                    FaissKMeansService.copyVectors(address, start, batch, count, dim);
+                }
+            });
+            success = true;
+            return address;
+        } finally {
+            if (!success) {
+                FaissKMeansService.freeVectors(address);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeReader {
+        /**
+         * Read vectors at positions [from, to). A sequential slice starts at vector {@code from};
+         * otherwise it covers the whole data region.
+         */
+        void read(IndexInput slice, int from, int to) throws IOException;
+    }
+
+    /**
+     * Split positions [0, size) into up to {@code threads} ranges and read them concurrently, each
+     * range through its own input.
+     *
+     * @param sequential whether each range reads its own part of the file front to back; otherwise
+     *                   reads are random and the input is opened with a random access hint
+     */
+    private static void readRanges(String vecPath, VecFileMeta meta, int threads, boolean sequential,
+                                   RangeReader reader) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, got " + threads);
+        }
+        Path path = Paths.get(vecPath);
+        String fileName = path.getFileName().toString();
+        long vectorBytes = (long) meta.dimension * Float.BYTES;
+        int ranges = (int) Math.max(1, Math.min(threads, Math.min(meta.size, meta.dataLength / MIN_RANGE_BYTES)));
+        IOContext context = IOContext.DEFAULT.withHints(sequential ? DataAccessHint.SEQUENTIAL : DataAccessHint.RANDOM);
+
+        try (FSDirectory directory = FSDirectory.open(path.getParent())) {
+            RangeTask[] tasks = new RangeTask[ranges];
+            for (int r = 0; r < ranges; r++) {
+                int from = (int) ((long) meta.size * r / ranges);
+                int to = (int) ((long) meta.size * (r + 1) / ranges);
+                tasks[r] = () -> {
+                    try (IndexInput input = directory.openInput(fileName, context)) {
+                        IndexInput slice = sequential
+                            ? input.slice("vectors", meta.dataOffset + from * vectorBytes, (to - from) * vectorBytes)
+                            : input.slice("vectors", meta.dataOffset, meta.dataLength);
+                        reader.read(slice, from, to);
+                    }
+                    return null;
+                };
+            }
+            if (ranges == 1) {
+                tasks[0].call();
+                return;
+            }
+            try (ExecutorService pool = Executors.newFixedThreadPool(ranges)) {
+                List<Future<Void>> futures = new ArrayList<>(ranges);
+                for (RangeTask task : tasks) {
+                    futures.add(pool.submit(task));
+                }
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + vecPath, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Reading " + vecPath + " failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Callable that only throws IOException, so a single range can run on the calling thread.
+     */
+    @FunctionalInterface
+    private interface RangeTask extends Callable<Void> {
+        @Override
+        Void call() throws IOException;
+    }
+
     /**
      * Write vectors to a new .vec file in reordered order.
      * newOrder[newIdx] = oldIdx means vector at oldIdx goes to position newIdx.
@@ -83,10 +205,7 @@ public class VecFileIO {
              IndexInput vecInput = srcDir.openInput(src.getFileName().toString(), IOContext.DEFAULT);
              IndexOutput out = dstDir.createOutput(dst.getFileName().toString(), IOContext.DEFAULT)) {
 
-            // Copy header unchanged
-            byte[] header = new byte[(int) meta.dataOffset];
-            vecInput.readBytes(header, 0, header.length);
-            out.writeBytes(header, header.length);
+            copyBytes(vecInput, out, 0, meta.dataOffset);
 
             // Write vectors in new order
             IndexInput slice = vecInput.slice("vectors", meta.dataOffset, meta.dataLength);
@@ -99,42 +218,52 @@ public class VecFileIO {
                 out.writeBytes(buffer, vectorBytes);
             }
 
-            // Copy footer unchanged
-            vecInput.seek(meta.dataOffset + meta.dataLength);
-            byte[] footer = new byte[(int) (vecInput.length() - vecInput.getFilePointer())];
-            vecInput.readBytes(footer, 0, footer.length);
-            out.writeBytes(footer, footer.length);
+            copyTrailer(vecInput, out, meta);
         }
     }
 
     /**
-     * Write vectors from array to a new .vec file in reordered order.
+     * Write a reordered copy of {@code srcPath} from vectors already on the heap, so the source
+     * vector data is not read again. The header, including the segment ID, suffix and alignment
+     * padding, and any data after the vectors are copied from the source.
+     *
+     * @param vectors vectors of {@code srcPath} in their original order, unmodified (not normalized)
+     * @param newOrder newOrder[newIdx] = oldIdx
      */
-    public static void writeReorderedFromArray(float[][] vectors, int[] newOrder, String dstPath) throws IOException {
+    public static void writeReorderedFromArray(String srcPath, float[][] vectors, int[] newOrder, String dstPath)
+            throws IOException {
+        Path src = Paths.get(srcPath);
         Path dst = Paths.get(dstPath);
-        int n = vectors.length;
-        int dim = vectors[0].length;
+        VecFileMeta meta = readMetadata(srcPath);
+        if (vectors.length != meta.size || newOrder.length != meta.size
+                || (meta.size > 0 && vectors[0].length != meta.dimension)) {
+            throw new IllegalArgumentException("Expected " + meta.size + " vectors of dimension " + meta.dimension
+                + " to match " + srcPath);
+        }
 
-        try (FSDirectory dstDir = FSDirectory.open(dst.getParent());
+        try (FSDirectory srcDir = FSDirectory.open(src.getParent());
+             FSDirectory dstDir = FSDirectory.open(dst.getParent());
+             IndexInput vecInput = srcDir.openInput(src.getFileName().toString(), IOContext.DEFAULT);
              IndexOutput out = dstDir.createOutput(dst.getFileName().toString(), IOContext.DEFAULT)) {
 
-            // Write minimal header (just enough for k-NN to read)
-            // Format: [header][vectors][footer]
-            // We write a simple format that VecFileIO can read back
-            CodecUtil.writeIndexHeader(out, "Lucene99FlatVectorsFormatData", 0, new byte[16], "");
-            
-            long dataOffset = out.getFilePointer();
-            
-            // Write vectors in new order
-            for (int newIdx = 0; newIdx < n; newIdx++) {
-                int oldIdx = newOrder[newIdx];
-                float[] vec = vectors[oldIdx];
-                for (float v : vec) {
-                    out.writeInt(Float.floatToIntBits(v));
-                }
-            }
-            
-            CodecUtil.writeFooter(out);
+            copyBytes(vecInput, out, 0, meta.dataOffset);
+            KnnFileWriter.writeVectors(out, vectors, newOrder);
+            copyTrailer(vecInput, out, meta);
         }
     }
+
+    /**
+     * Copy whatever follows the vector data (ordToDoc data of sparse fields) and write a footer
+     * whose checksum covers the new content; the source footer only matches the source bytes.
+     */
+    private static void copyTrailer(IndexInput vecInput, IndexOutput out, VecFileMeta meta) throws IOException {
+        long trailerStart = meta.dataOffset + meta.dataLength;
+        copyBytes(vecInput, out, trailerStart, vecInput.length() - CodecUtil.footerLength() - trailerStart);
+        CodecUtil.writeFooter(out);
+    }
+
+    private static void copyBytes(IndexInput input, IndexOutput output, long offset, long length) throws IOException {
+        input.seek(offset);
+        output.copyBytes(input, length);
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.VectorUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Random-access view over the vector data region of a .vec file.
+ *
+ * The file is opened through {@link FSDirectory}, which maps it on 64-bit platforms, so vectors
+ * are paged in on demand instead of being copied onto the heap. Sequential ordinals translate to
+ * sequential reads of the mapped region.
+ *
+ * Like other {@link FloatVectorValues}, an instance is not thread-safe and the array returned by
+ * {@link #vectorValue(int)} is reused. Use {@link #copy()} to get an independent reader for
+ * another thread; copies share the underlying file and must not outlive the original.
+ *
+ * When opened with {@code normalize}, every vector is scaled to unit length as it is read, so
+ * cosine callers see normalized vectors without touching the file.
+ */
+public class VecFileVectorValues extends FloatVectorValues implements Closeable {
+
+    private final Closeable owner;
+    private final IndexInput slice;
+    private final int dimension;
+    private final int size;
+    private final int byteSize;
+    private final boolean normalize;
+    private final float[] value;
+    private int lastOrd = -1;
+
+    private VecFileVectorValues(Closeable owner, IndexInput slice, int dimension, int size, boolean normalize) {
+        this.owner = owner;
+        this.slice = slice;
+        this.dimension = dimension;
+        this.size = size;
+        this.normalize = normalize;
+        this.byteSize = dimension * Float.BYTES;
+        this.value = new float[dimension];
+    }
+
+    /**
+     * Open the vector data region of a .vec file. The caller must close the returned instance.
+     */
+    public static VecFileVectorValues open(String vecPath) throws IOException {
+        return open(vecPath, false);
+    }
+
+    /**
+     * Open the vector data region of a .vec file, optionally normalizing vectors as they are read.
+     * The caller must close the returned instance.
+     */
+    public static VecFileVectorValues open(String vecPath, boolean normalize) throws IOException {
+        VecFileIO.VecFileMeta meta = VecFileIO.readMetadata(vecPath);
+        return open(Paths.get(vecPath), meta.dataOffset(), meta.dataLength(), meta.dimension(), meta.size(), normalize);
+    }
+
+    /**
+     * Open a region of any file that holds {@code size} contiguous little-endian float vectors,
+     * such as the flat storage section of a .faiss file.
+     */
+    static VecFileVectorValues open(Path path, long offset, long length, int dimension, int size, boolean normalize)
+            throws IOException {
+        FSDirectory directory = FSDirectory.open(path.getParent());
+        IndexInput input = null;
+        boolean success = false;
+        try {
+            input = directory.openInput(path.getFileName().toString(), IOContext.DEFAULT);
+            IndexInput slice = input.slice("vectors", offset, length);
+            IndexInput in = input;
+            VecFileVectorValues values = new VecFileVectorValues(
+                () -> IOUtils.close(in, directory), slice, dimension, size, normalize
+            );
+            success = true;
+            return values;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(input, directory);
+            }
+        }
+    }
+
+    @Override
+    public float[] vectorValue(int ord) throws IOException {
+        if (ord != lastOrd) {
+            slice.seek((long) ord * byteSize);
+            slice.readFloats(value, 0, dimension);
+            if (normalize) {
+                VectorUtil.l2normalize(value, false);
+            }
+            lastOrd = ord;
+        }
+        return value;
+    }
+
+    /**
+     * Read {@code count} consecutive vectors starting at {@code fromOrd} into {@code dst}, which
+     * must hold at least {@code count} rows of {@link #dimension()} floats.
+     */
+    public void readBatch(int fromOrd, int count, float[][] dst) throws IOException {
+        slice.seek((long) fromOrd * byteSize);
+        for (int i = 0; i < count; i++) {
+            slice.readFloats(dst[i], 0, dimension);
+            if (normalize) {
+                VectorUtil.l2normalize(dst[i], false);
+            }
+        }
+        lastOrd = -1;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public VecFileVectorValues copy() {
+        return new VecFileVectorValues(null, slice.clone(), dimension, size, normalize);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (owner != null) {
+            owner.close();
+        }
+    }
+}
@@ -5,14 +5,19 @@
 
 package org.opensearch.knn.reorder;
 
+import jdk.jfr.Recording;
 import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.FloatVectorValues;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -34,6 +39,7 @@ public class VectorReorder {
         
         switch (cmd) {
             case "kmeans-reorder" -> parseAndRunKmeansReorder(args);
+            case "graph-reorder" -> parseAndRunGraphReorder(args);
             case "print" -> {
                 if (args.length < 2) { printUsage(); System.exit(1); }
                 printFirst10Vectors(args[1]);
@@ -55,29 +61,68 @@ public class VectorReorder {
         }
     }
 
+    private static String orSource(int value) {
+        return value > 0 ? Integer.toString(value) : "source";
+    }
+
     private static void printUsage() {
         System.err.println("Usage:");
         System.err.println("  VectorReorder kmeans-reorder --vec <file1.vec> [--vec <file2.vec> ...] [--faiss <file1.faiss> ...]");
-        System.err.println("                        [--space <l2|innerproduct>] [--ef-search <n>] [--ef-construction <n>] [--m <n>]");
+        System.err.println("                        [--space <l2|innerproduct|cosinesimil>] [--ef-search <n>] [--ef-construction <n>] [--m <n>]");
+        System.err.println("                        [--streaming] [--batch-size <n>]");
+        System.err.println("                        [--max-cluster-size <n> | --max-cluster-bytes <n>] [--page-size <n>]");
+        System.err.println("                        [--clusters <k>] [--approx-assign] [--assign-ef-search <n>]");
+        System.err.println("                        [--report <run.json>] [--jfr <run.jfr>] [--checkpoint-dir <dir>]");
+        System.err.println("  VectorReorder graph-reorder --vec <file1.vec> --faiss <file1.faiss> [--vec ... --faiss ...]");
+        System.err.println("                        [--method <gorder|rcm|degree>] [--window <n>] [--partition-size <n>]");
+        System.err.println("                        [--report <run.json>] [--jfr <run.jfr>] [--checkpoint-dir <dir>]");
+        System.err.println("                        [--space <l2|innerproduct|cosinesimil>] [--ef-search <n>] [--ef-construction <n>] [--m <n>]");
         System.err.println("  VectorReorder print <path-to-vec-file>");
         System.err.println("  VectorReorder load <path-to-vec-file>");
         System.err.println();
         System.err.println("Options:");
         System.err.println("  --vec             Path to .vec file (can specify multiple)");
         System.err.println("  --faiss           Path to .faiss file (can specify multiple, optional)");
-        System.err.println("  --space           Space type: l2 (default) or innerproduct");
-        System.err.println("  --ef-search       ef_search parameter for FAISS HNSW (default: 100)");
-        System.err.println("  --ef-construction ef_construction parameter for FAISS HNSW (default: 100)");
-        System.err.println("  --m               M parameter for FAISS HNSW (default: 16)");
+        System.err.println("  --space           Space type: l2 (default), innerproduct or cosinesimil");
+        System.err.println("  --ef-search       ef_search parameter for FAISS HNSW (default: same as the source .faiss)");
+        System.err.println("  --ef-construction ef_construction parameter for FAISS HNSW (default: same as the source .faiss)");
+        System.err.println("  --m               M parameter for FAISS HNSW (default: same as the source .faiss)");
+        System.err.println("  --streaming       Cluster with mini-batch k-means over the mapped .vec file instead of loading it");
+        System.err.println("  --batch-size      Mini-batch size for --streaming (default: " + StreamingKMeans.DEFAULT_BATCH_SIZE + ")");
+        System.err.println("  --max-cluster-size Balanced mode: cap clusters at n vectors");
+        System.err.println("  --max-cluster-bytes Balanced mode: cap clusters at n bytes, rounded down to whole pages");
+        System.err.println("  --page-size       Page or readahead size balanced clusters are aligned to (default: 4096)");
+        System.err.println("  --clusters        Number of clusters (default: min(100, n/10))");
+        System.err.println("  --approx-assign   Assign through an HNSW index over the centroids instead of exhaustively (not with --streaming or balanced mode)");
+        System.err.println("  --method          graph-reorder: ordering computed from the HNSW level-0 graph (default: gorder)");
+        System.err.println("  --window          graph-reorder: Gorder window size (default: " + GraphReorderer.DEFAULT_WINDOW + ")");
+        System.err.println("  --partition-size  graph-reorder: nodes per parallel Gorder partition (default: " + GraphReorderer.DEFAULT_PARTITION_SIZE + ")");
+        System.err.println("  --assign-ef-search ef_search of the centroid index (default: " + FaissKMeansService.DEFAULT_CENTROID_EF_SEARCH + ")");
+        System.err.println("  --report          Write per-phase metrics for the run as JSON");
+        System.err.println("  --jfr             Record a JFR file including per-phase events");
+        System.err.println("  --checkpoint-dir  Persist permutations and finished segments here; a rerun skips them");
     }
 
     private static void parseAndRunKmeansReorder(String[] args) throws IOException {
         List<String> vecFiles = new ArrayList<>();
         List<String> faissFiles = new ArrayList<>();
         String spaceType = "l2";
-        int efSearch = 100;
-        int efConstruction = 100;
-        int m = 16;
+        // 0 keeps the value of the source .faiss
+        int efSearch = 0;
+        int efConstruction = 0;
+        int m = 0;
+        boolean streaming = false;
+        int batchSize = StreamingKMeans.DEFAULT_BATCH_SIZE;
+        int maxClusterSize = 0;
+        long maxClusterBytes = 0;
+        int pageBytes = KMeansOptions.DEFAULT_PAGE_BYTES;
+        int numClusters = 0;
+        boolean approxAssign = false;
+        int assignEfSearch = FaissKMeansService.DEFAULT_CENTROID_EF_SEARCH;
+        boolean assignEfSearchSet = false;
+        String reportPath = null;
+        String jfrPath = null;
+        String checkpointDir = null;
 
         for (int i = 1; i < args.length; i++) {
             switch (args[i]) {
@@ -87,6 +132,22 @@ public class VectorReorder {
                 case "--ef-search" -> { if (++i < args.length) efSearch = Integer.parseInt(args[i]); }
                 case "--ef-construction" -> { if (++i < args.length) efConstruction = Integer.parseInt(args[i]); }
                 case "--m" -> { if (++i < args.length) m = Integer.parseInt(args[i]); }
+                case "--streaming" -> streaming = true;
+                case "--batch-size" -> { if (++i < args.length) batchSize = Integer.parseInt(args[i]); }
+                case "--max-cluster-size" -> { if (++i < args.length) maxClusterSize = Integer.parseInt(args[i]); }
+                case "--max-cluster-bytes" -> { if (++i < args.length) maxClusterBytes = Long.parseLong(args[i]); }
+                case "--page-size" -> { if (++i < args.length) pageBytes = Integer.parseInt(args[i]); }
+                case "--clusters" -> { if (++i < args.length) numClusters = Integer.parseInt(args[i]); }
+                case "--approx-assign" -> approxAssign = true;
+                case "--assign-ef-search" -> {
+                    if (++i < args.length) {
+                        assignEfSearch = Integer.parseInt(args[i]);
+                        assignEfSearchSet = true;
+                    }
+                }
+                case "--report" -> { if (++i < args.length) reportPath = args[i]; }
+                case "--jfr" -> { if (++i < args.length) jfrPath = args[i]; }
+                case "--checkpoint-dir" -> { if (++i < args.length) checkpointDir = args[i]; }
             }
         }
 
@@ -96,11 +157,168 @@ public class VectorReorder {
             System.exit(1);
         }
 
-        int metricType = "innerproduct".equalsIgnoreCase(spaceType) 
-            ? FaissKMeansService.METRIC_INNER_PRODUCT 
-            : FaissKMeansService.METRIC_L2;
+        // Only in-memory, unbalanced k-means assigns through a centroid HNSW; the other modes would ignore these
+        if ((approxAssign || assignEfSearchSet) && (streaming || maxClusterSize > 0 || maxClusterBytes > 0)) {
+            System.err.println("Error: --approx-assign and --assign-ef-search cannot be combined with --streaming, "
+                + "--max-cluster-size or --max-cluster-bytes");
+            printUsage();
+            System.exit(1);
+        }
+
+        KMeansOptions options = new KMeansOptions(streaming, batchSize, maxClusterSize, maxClusterBytes, pageBytes,
+            numClusters, approxAssign, assignEfSearch);
+        ReorderMetrics metrics = new ReorderMetrics("kmeans-reorder");
+        ReorderCheckpoint checkpoint = checkpointDir == null ? ReorderCheckpoint.disabled()
+            : ReorderCheckpoint.open(checkpointDir, "kmeans-reorder", "space=" + spaceType + ",ef_search=" + efSearch
+                + ",ef_construction=" + efConstruction + ",m=" + m + "," + options);
+        Recording recording = jfrPath == null ? null : ReorderMetrics.startRecording(jfrPath);
+        try (recording) {
+            kmeansReorder(vecFiles, faissFiles, SpaceType.fromValue(spaceType), efSearch, efConstruction, m, options, metrics,
+                checkpoint);
+        } finally {
+            if (reportPath != null) {
+                metrics.writeReport(reportPath);
+            }
+        }
+    }
+
+    private static void parseAndRunGraphReorder(String[] args) throws IOException {
+        List<String> vecFiles = new ArrayList<>();
+        List<String> faissFiles = new ArrayList<>();
+        String spaceType = "l2";
+        // 0 keeps the value of the source .faiss
+        int efSearch = 0;
+        int efConstruction = 0;
+        int m = 0;
+        GraphReorderer.Method method = GraphReorderer.Method.GORDER;
+        int window = GraphReorderer.DEFAULT_WINDOW;
+        int partitionSize = GraphReorderer.DEFAULT_PARTITION_SIZE;
+        String reportPath = null;
+        String jfrPath = null;
+        String checkpointDir = null;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--vec" -> { if (++i < args.length) vecFiles.add(args[i]); }
+                case "--faiss" -> { if (++i < args.length) faissFiles.add(args[i]); }
+                case "--space" -> { if (++i < args.length) spaceType = args[i]; }
+                case "--ef-search" -> { if (++i < args.length) efSearch = Integer.parseInt(args[i]); }
+                case "--ef-construction" -> { if (++i < args.length) efConstruction = Integer.parseInt(args[i]); }
+                case "--m" -> { if (++i < args.length) m = Integer.parseInt(args[i]); }
+                case "--method" -> { if (++i < args.length) method = GraphReorderer.Method.fromName(args[i]); }
+                case "--window" -> { if (++i < args.length) window = Integer.parseInt(args[i]); }
+                case "--partition-size" -> { if (++i < args.length) partitionSize = Integer.parseInt(args[i]); }
+                case "--report" -> { if (++i < args.length) reportPath = args[i]; }
+                case "--jfr" -> { if (++i < args.length) jfrPath = args[i]; }
+                case "--checkpoint-dir" -> { if (++i < args.length) checkpointDir = args[i]; }
+            }
+        }
+
+        if (vecFiles.isEmpty() || faissFiles.size() != vecFiles.size()) {
+            System.err.println("Error: graph-reorder needs one --faiss file per --vec file");
+            printUsage();
+            System.exit(1);
+        }
+
+        ReorderMetrics metrics = new ReorderMetrics("graph-reorder");
+        ReorderCheckpoint checkpoint = checkpointDir == null ? ReorderCheckpoint.disabled()
+            : ReorderCheckpoint.open(checkpointDir, "graph-reorder", "space=" + spaceType + ",ef_search=" + efSearch
+                + ",ef_construction=" + efConstruction + ",m=" + m + ",method=" + method + ",window=" + window
+                + ",partition_size=" + partitionSize);
+        Recording recording = jfrPath == null ? null : ReorderMetrics.startRecording(jfrPath);
+        try (recording) {
+            graphReorder(vecFiles, faissFiles, SpaceType.fromValue(spaceType), efSearch, efConstruction, m, method, window,
+                partitionSize, metrics, checkpoint);
+        } finally {
+            if (reportPath != null) {
+                metrics.writeReport(reportPath);
+            }
+        }
+    }
+
+    /**
+     * Reorder vectors by the level-0 adjacency of their existing HNSW graph. The graph is read from
+     * each .faiss file, the .vec file is rewritten in graph order and the same graph is permuted to
+     * that order; it is rebuilt with vectors inserted in that order only when --m or --ef-* differ
+     * from the source.
+     */
+    public static void graphReorder(List<String> vecFiles, List<String> faissFiles, SpaceType spaceType,
+                                    int efSearch, int efConstruction, int m,
+                                    GraphReorderer.Method method, int window, int partitionSize) throws IOException {
+        graphReorder(vecFiles, faissFiles, spaceType, efSearch, efConstruction, m, method, window, partitionSize,
+            new ReorderMetrics("graph-reorder"), ReorderCheckpoint.disabled());
+    }
+
+    /**
+     * Graph reorder, recording every step as a phase of {@code metrics}. Segments that
+     * {@code checkpoint} records as finished are skipped, and cached permutations are reused.
+     * An {@code efSearch}, {@code efConstruction} or {@code m} of 0 keeps the value of each source
+     * .faiss, whose storage type and metric are always kept. Binary and scalar quantized graphs are
+     * permuted instead of rebuilt unless one of these values differs from the source.
+     */
+    public static void graphReorder(List<String> vecFiles, List<String> faissFiles, SpaceType spaceType,
+                                    int efSearch, int efConstruction, int m, GraphReorderer.Method method, int window,
+                                    int partitionSize, ReorderMetrics metrics, ReorderCheckpoint checkpoint)
+            throws IOException {
+        metrics.parameter("method", method.name()).parameter("window", window).parameter("partition_size", partitionSize)
+            .parameter("space", spaceType.getValue()).parameter("ef_search", efSearch)
+            .parameter("ef_construction", efConstruction).parameter("m", m);
+        System.out.println("=== Graph Reorder ===");
+        System.out.println("Vec files: " + vecFiles);
+        System.out.println("FAISS files: " + faissFiles);
+        System.out.println("Parameters: method=" + method + ", window=" + window + ", partition_size=" + partitionSize
+                          + ", space=" + spaceType.getValue() + ", ef_search=" + orSource(efSearch)
+                          + ", ef_construction=" + orSource(efConstruction) + ", m=" + orSource(m));
+        System.out.println();
+
+        for (int i = 0; i < vecFiles.size(); i++) {
+            String vecFile = vecFiles.get(i);
+            String faissFile = faissFiles.get(i);
+            String outputVec = vecFile.replace(".vec", "_reordered.vec");
+            String outputFaiss = faissFile.replace(".faiss", "_reordered.faiss");
+            if (checkpoint.isComplete(vecFile, outputVec, outputFaiss)) {
+                System.out.println("Skipping (already complete): " + vecFile);
+                continue;
+            }
+
+            System.out.println("Processing: " + vecFile);
+            String outputVemf = outputVec.replace(".vec", ".vemf");
+            checkpoint.discardPartialOutputs(outputVec, outputFaiss, outputVemf, outputVemf.replace(".vemf", ".vord"));
+            checkRebuildable(vecFile, faissFile, m, efConstruction, efSearch);
+            ReorderMetrics.Segment segment = metrics.segment(vecFile);
+            int[] newOrder = checkpoint.loadPermutation(vecFile);
+            if (newOrder == null) {
+                FaissHnswGraph graph;
+                try (ReorderMetrics.Phase phase = segment.phase("load-graph")) {
+                    graph = FaissHnswGraph.load(faissFile);
+                    phase.bytesRead(new File(faissFile).length());
+                    System.out.println("  Loaded graph: " + graph.numNodes() + " nodes, " + graph.numEdges()
+                        + " level-0 edges in " + phase.elapsedNanos() / 1_000_000 + " ms");
+                }
+                segment.attribute("vectors", graph.numNodes()).attribute("edges", graph.numEdges());
+
+                try (ReorderMetrics.Phase phase = segment.phase("graph-order")) {
+                    newOrder = GraphReorderer.computePermutation(graph, method, window, partitionSize);
+                    System.out.println("  " + method + " ordering took " + phase.elapsedNanos() / 1_000_000 + " ms");
+                }
+                checkpoint.savePermutation(vecFile, newOrder);
+            }
+
+            System.out.println("  Writing: " + outputVec);
+            writeReorderedVec(vecFile, outputVec, newOrder, null, spaceType, segment);
+
+            // The order came from this graph, so permuting it keeps the graph it was computed on
+            if (FaissFilePermuter.parseStructure(faissFile).keepsParameters(m, efConstruction, efSearch)) {
+                permuteFaiss(faissFile, outputFaiss, newOrder, segment);
+            } else {
+                rebuildFaiss(vecFile, faissFile, outputFaiss, newOrder, null, spaceType, efSearch, efConstruction, m,
+                    segment);
+            }
+            writeSegmentFiles(vecFile, outputVec, newOrder, segment);
+            checkpoint.markComplete(vecFile);
+        }
 
-        kmeansReorder(vecFiles, faissFiles, metricType, efSearch, efConstruction, m, spaceType);
+        System.out.println("\nGraph reorder complete!");
     }
 
     /**
@@ -148,7 +366,7 @@ public class VectorReorder {
      * K-means reorder vectors (single file, legacy).
      */
     public static void kmeansReorder(String vecFilePath) throws IOException {
-        kmeansReorder(List.of(vecFilePath), List.of(), FaissKMeansService.METRIC_L2, 100, 100, 16, "l2");
+        kmeansReorder(List.of(vecFilePath), List.of(), SpaceType.L2, 100, 100, 16);
     }
 
     /**
@@ -157,56 +375,344 @@ public class VectorReorder {
      * they must match 1:1 with .vec files by position.
      */
     public static void kmeansReorder(List<String> vecFiles, List<String> faissFiles, 
-                                       int metricType, int efSearch, int efConstruction, int m, String spaceType) throws IOException {
+                                       SpaceType spaceType, int efSearch, int efConstruction, int m) throws IOException {
+        kmeansReorder(vecFiles, faissFiles, spaceType, efSearch, efConstruction, m, KMeansOptions.DEFAULT);
+    }
+
+    /**
+     * Options controlling how k-means clusters are computed and laid out.
+     *
+     * @param streaming       cluster with mini-batch k-means over the mapped .vec file instead of FAISS
+     * @param batchSize       mini-batch size for streaming k-means and balanced assignment
+     * @param maxClusterSize  balanced mode: maximum vectors per cluster (0 = not set)
+     * @param maxClusterBytes balanced mode: maximum bytes per cluster, rounded down to whole pages (0 = not set)
+     * @param pageBytes       page or readahead size that balanced clusters are aligned to
+     * @param numClusters     number of clusters (0 = adaptive)
+     * @param approxAssign    assign vectors through an HNSW index over the centroids instead of exhaustively
+     * @param assignEfSearch  ef_search of the centroid index when {@code approxAssign} is set
+     */
+    public record KMeansOptions(boolean streaming, int batchSize, int maxClusterSize, long maxClusterBytes, int pageBytes,
+                                int numClusters, boolean approxAssign, int assignEfSearch) {
+        public static final int DEFAULT_PAGE_BYTES = 4096;
+        public static final KMeansOptions DEFAULT =
+            new KMeansOptions(false, StreamingKMeans.DEFAULT_BATCH_SIZE, 0, 0, DEFAULT_PAGE_BYTES,
+                0, false, FaissKMeansService.DEFAULT_CENTROID_EF_SEARCH);
+
+        public boolean balanced() {
+            return maxClusterSize > 0 || maxClusterBytes > 0;
+        }
+
+        /**
+         * Cluster capacity in vectors for balanced mode.
+         */
+        public int capacity(int vectorBytes) {
+            if (maxClusterBytes > 0) {
+                return BalancedClusterAssigner.alignedCapacity(maxClusterBytes, vectorBytes, pageBytes);
+            }
+            return maxClusterSize;
+        }
+    }
+
+    /**
+     * K-means reorder vectors from files. When {@code options.streaming()} is set, clustering runs
+     * as mini-batch k-means over the mapped .vec file, and a .faiss rebuild reads the vectors into
+     * native memory in their new order, so the segment is only loaded onto the heap if its cosine
+     * vectors must be normalized for the rebuild. Cosine vectors are normalized once as they are
+     * loaded or read.
+     */
+    public static void kmeansReorder(List<String> vecFiles, List<String> faissFiles, SpaceType spaceType,
+                                       int efSearch, int efConstruction, int m,
+                                       KMeansOptions options) throws IOException {
+        kmeansReorder(vecFiles, faissFiles, spaceType, efSearch, efConstruction, m, options,
+            new ReorderMetrics("kmeans-reorder"), ReorderCheckpoint.disabled());
+    }
+
+    /**
+     * K-means reorder, recording every step as a phase of {@code metrics}. Segments that
+     * {@code checkpoint} records as finished are skipped, and cached permutations are reused.
+     * HNSW parameters of 0 keep the values of each source .faiss, as for {@link #graphReorder}.
+     */
+    public static void kmeansReorder(List<String> vecFiles, List<String> faissFiles, SpaceType spaceType,
+                                       int efSearch, int efConstruction, int m, KMeansOptions options,
+                                       ReorderMetrics metrics, ReorderCheckpoint checkpoint) throws IOException {
         if (!faissFiles.isEmpty() && faissFiles.size() != vecFiles.size()) {
             throw new IllegalArgumentException("Number of .faiss files (" + faissFiles.size() + 
                 ") must match number of .vec files (" + vecFiles.size() + ")");
         }
+        metrics.parameter("space", spaceType.getValue()).parameter("ef_search", efSearch)
+            .parameter("ef_construction", efConstruction).parameter("m", m).parameter("clustering", options.toString());
 
         System.out.println("=== K-Means Reorder ===");
         System.out.println("Vec files: " + vecFiles);
         System.out.println("FAISS files: " + (faissFiles.isEmpty() ? "(none)" : faissFiles));
-        System.out.println("Parameters: space=" + spaceType + ", ef_search=" + efSearch + 
-                          ", ef_construction=" + efConstruction + ", m=" + m);
+        System.out.println("Parameters: space=" + spaceType.getValue() + ", ef_search=" + orSource(efSearch) + 
+                          ", ef_construction=" + orSource(efConstruction) + ", m=" + orSource(m));
+        System.out.println("Clustering: " + options);
         System.out.println();
 
-        String metricName = metricType == FaissKMeansService.METRIC_INNER_PRODUCT ? "inner_product" : "l2";
-
         for (int i = 0; i < vecFiles.size(); i++) {
             String vecFile = vecFiles.get(i);
             String faissFile = faissFiles.isEmpty() ? null : faissFiles.get(i);
+            String outputVec = vecFile.replace(".vec", "_reordered.vec");
+            String outputFaiss = faissFile == null ? null : faissFile.replace(".faiss", "_reordered.faiss");
+            if (checkpoint.isComplete(vecFile, outputVec, outputFaiss)) {
+                System.out.println("Skipping (already complete): " + vecFile);
+                continue;
+            }
 
             System.out.println("Processing: " + vecFile);
-            float[][] vectors = VecFileIO.loadVectors(vecFile);
-            int n = vectors.length;
-            int dim = vectors[0].length;
-            int k = Math.min(100, n / 10);  // Adaptive k
-
-            System.out.println("  Loaded " + n + " vectors (dim=" + dim + "), k=" + k);
-
-            long addr = FaissKMeansService.storeVectors(vectors);
-            KMeansResult result = FaissKMeansService.kmeansWithDistances(addr, n, dim, k, 1, metricType);
-            FaissKMeansService.freeVectors(addr);
-
-            int[] newOrder = ClusterSorter.sortByCluster(result.assignments(), result.distances(), metricType);
+            checkpoint.discardPartialOutputs(outputVec, outputFaiss);
+            if (faissFile != null) {
+                checkRebuildable(vecFile, faissFile, m, efConstruction, efSearch);
+            }
+            ReorderMetrics.Segment segment = metrics.segment(vecFile);
+            float[][] vectors = null;
+            int[] newOrder = checkpoint.loadPermutation(vecFile);
+            if (newOrder == null) {
+                vectors = options.streaming() ? null : loadVectors(vecFile, spaceType, segment);
+                newOrder = computeKMeansOrder(vecFile, vectors, spaceType, options, segment);
+                checkpoint.savePermutation(vecFile, newOrder);
+            }
 
             // Reorder .vec file
-            String outputVec = vecFile.replace(".vec", "_reordered.vec");
             System.out.println("  Writing: " + outputVec);
-            VecFileIO.writeReordered(vecFile, outputVec, newOrder);
+            writeReorderedVec(vecFile, outputVec, newOrder, vectors, spaceType, segment);
 
             // Rebuild FAISS if specified
-            if (faissFile != null) {
-                String outputFaiss = faissFile.replace(".faiss", "_reordered.faiss");
-                System.out.println("  Rebuilding: " + outputFaiss);
-                long[] oldIdMapping = FaissFilePermuter.readIdMapping(faissFile);
-                FaissIndexRebuilder.rebuild(vectors, newOrder, oldIdMapping, dim, outputFaiss, m, efConstruction, efSearch, spaceType);
+            if (faissFile != null && FaissFilePermuter.parseStructure(faissFile)
+                    .permutableWith(m, efConstruction, efSearch)) {
+                permuteFaiss(faissFile, outputFaiss, newOrder, segment);
+            } else if (faissFile != null) {
+                rebuildFaiss(vecFile, faissFile, outputFaiss, newOrder, vectors, spaceType, efSearch, efConstruction, m,
+                    segment);
             }
+            checkpoint.markComplete(vecFile);
         }
 
         System.out.println("\nK-means reorder complete!");
     }
 
+    /**
+     * Permute a .faiss file to {@code newOrder}, keeping its graph and any trained quantizer instead
+     * of rebuilding.
+     */
+    private static void permuteFaiss(String faissFile, String outputFaiss, int[] newOrder,
+                                     ReorderMetrics.Segment segment) throws IOException {
+        System.out.println("  Permuting graph: " + outputFaiss);
+        try (ReorderMetrics.Phase phase = segment.phase("permute-faiss")) {
+            FaissFilePermuter.permute(faissFile, newOrder, outputFaiss);
+            phase.bytesRead(new File(faissFile).length()).bytesWritten(new File(outputFaiss).length());
+        }
+    }
+
+    /**
+     * Cluster one segment and return the cluster-sorted order.
+     *
+     * @param vectors loaded vectors already prepared for {@code spaceType}, or null to stream them
+     *                from the mapped .vec file
+     * @return newOrder where newOrder[newIdx] = oldIdx
+     */
+    private static int[] computeKMeansOrder(String vecFile, float[][] vectors, SpaceType spaceType, KMeansOptions options,
+                                            ReorderMetrics.Segment segment) throws IOException {
+        int metricType = spaceType.getMetricType();
+        VecFileIO.VecFileMeta meta = VecFileIO.readMetadata(vecFile);
+        int n = meta.size();
+        int dim = meta.dimension();
+        int vectorBytes = dim * Float.BYTES;
+        int k = StreamingKMeans.numClusters(n, options.numClusters());
+        int capacity = options.balanced() ? options.capacity(vectorBytes) : 0;
+        if (capacity > 0) {
+            // Enough clusters to hold every vector, with some slack for reassignment
+            k = Math.max(k, (int) Math.min(n, (long) Math.ceil(n * 1.25 / capacity)));
+        }
+        System.out.println("  " + (vectors == null ? "Streaming " : "Loaded ") + n + " vectors (dim=" + dim + "), k=" + k
+            + (capacity > 0 ? ", capacity=" + capacity : ""));
+        segment.attribute("vectors", n).attribute("dimension", dim).attribute("clusters", k);
+
+        if (capacity == 0) {
+            KMeansResult result;
+            if (vectors == null) {
+                try (ReorderMetrics.Phase phase = segment.phase("kmeans")) {
+                    result = StreamingKMeans.cluster(vecFile, spaceType, k, options.batchSize(), StreamingKMeans.DEFAULT_TRAIN_PASSES, 42L);
+                    phase.bytesRead((long) n * vectorBytes * StreamingKMeans.DEFAULT_TRAIN_PASSES);
+                }
+            } else {
+                long addr = storeVectors(vectors, segment);
+                try (ReorderMetrics.Phase phase = segment.phase("kmeans")) {
+                    result = options.approxAssign()
+                        ? FaissKMeansService.kmeansWithDistancesApprox(addr, n, dim, k, 1, metricType,
+                            FaissKMeansService.DEFAULT_CENTROID_HNSW_M, options.assignEfSearch(),
+                            FaissKMeansService.DEFAULT_ASSIGN_BATCH_SIZE)
+                        : FaissKMeansService.kmeansWithDistances(addr, n, dim, k, 1, metricType);
+                    phase.items(n);
+                } finally {
+                    FaissKMeansService.freeVectors(addr);
+                }
+            }
+            try (ReorderMetrics.Phase phase = segment.phase("cluster-sort")) {
+                phase.items(n);
+                return ClusterSorter.sortByCluster(result.assignments(), result.distances(), metricType);
+            }
+        }
+
+        KMeansResult result;
+        if (vectors == null) {
+            try (VecFileVectorValues values = VecFileVectorValues.open(vecFile, spaceType.isNormalized())) {
+                float[][] centroids;
+                try (ReorderMetrics.Phase phase = segment.phase("train-centroids")) {
+                    centroids = StreamingKMeans.trainCentroids(
+                        values, spaceType, k, options.batchSize(), StreamingKMeans.DEFAULT_TRAIN_PASSES, 42L);
+                    phase.bytesRead((long) n * vectorBytes * StreamingKMeans.DEFAULT_TRAIN_PASSES);
+                }
+                try (ReorderMetrics.Phase phase = segment.phase("balanced-assign")) {
+                    result = BalancedClusterAssigner.assign(values, centroids, metricType, capacity,
+                        BalancedClusterAssigner.DEFAULT_NUM_CANDIDATES, options.batchSize());
+                    phase.bytesRead((long) n * vectorBytes);
+                }
+            }
+        } else {
+            long addr = storeVectors(vectors, segment);
+            float[] flat;
+            try (ReorderMetrics.Phase phase = segment.phase("train-centroids")) {
+                flat = FaissKMeansService.trainCentroids(addr, n, dim, k, 1, metricType);
+                phase.items(n);
+            } finally {
+                FaissKMeansService.freeVectors(addr);
+            }
+            float[][] centroids = new float[k][];
+            for (int c = 0; c < k; c++) {
+                centroids[c] = Arrays.copyOfRange(flat, c * dim, (c + 1) * dim);
+            }
+            spaceType.prepare(centroids);
+            try (ReorderMetrics.Phase phase = segment.phase("balanced-assign")) {
+                result = BalancedClusterAssigner.assign(FloatVectorValues.fromFloats(Arrays.asList(vectors), dim), centroids,
+                    metricType, capacity, BalancedClusterAssigner.DEFAULT_NUM_CANDIDATES, options.batchSize());
+                phase.items(n);
+            }
+        }
+        try (ReorderMetrics.Phase phase = segment.phase("cluster-sort")) {
+            phase.items(n);
+            return ClusterSorter.sortByClusterPageAligned(result.assignments(), result.distances(), metricType,
+                vectorBytes, options.pageBytes());
+        }
+    }
+
+    private static float[][] loadVectors(String vecFile, SpaceType spaceType, ReorderMetrics.Segment segment)
+            throws IOException {
+        try (ReorderMetrics.Phase phase = segment.phase("load-vectors")) {
+            float[][] vectors = spaceType.prepare(VecFileIO.loadVectors(vecFile));
+            phase.bytesRead((long) vectors.length * (vectors.length == 0 ? 0 : vectors[0].length) * Float.BYTES);
+            System.out.printf("  Loaded %d vectors in %d ms (%.0f MB/s)%n", vectors.length,
+                phase.elapsedNanos() / 1_000_000, phase.readMBPerSecond());
+            return vectors;
+        }
+    }
+
+    /**
+     * Reorder the .vemf (writing the .vord next to it) and copy the .osknnqstate of {@code vecFile}, when present,
+     * as bp-reorder does.
+     */
+    private static void writeSegmentFiles(String vecFile, String outputVec, int[] newOrder,
+                                          ReorderMetrics.Segment segment) throws IOException {
+        String vemfPath = vecFile.replace(".vec", ".vemf");
+        if (new File(vemfPath).exists()) {
+            String outputVemf = outputVec.replace(".vec", ".vemf");
+            System.out.println("  Reordering .vemf: " + outputVemf);
+            try (ReorderMetrics.Phase phase = segment.phase("write-vemf")) {
+                VemfFileIO.writeReordered(vemfPath, outputVemf, outputVec, newOrder);
+                phase.bytesRead(new File(vemfPath).length()).bytesWritten(new File(outputVemf).length()
+                    + new File(outputVemf.replace(".vemf", ".vord")).length());
+            }
+        }
+
+        String qstatePath = vecFile.replace(".vec", ".osknnqstate");
+        if (new File(qstatePath).exists()) {
+            String outputQstatePath = outputVec.replace(".vec", ".osknnqstate");
+            System.out.println("  Copying .osknnqstate: " + outputQstatePath);
+            try (ReorderMetrics.Phase phase = segment.phase("copy-qstate")) {
+                Files.copy(Path.of(qstatePath), Path.of(outputQstatePath), StandardCopyOption.REPLACE_EXISTING);
+                long bytes = new File(qstatePath).length();
+                phase.bytesRead(bytes).bytesWritten(bytes);
+            }
+        }
+    }
+
+    /**
+     * Fail before ordering when {@code faissFile} is binary, the overrides force a rebuild and there is no
+     * quantization state to rebuild it with.
+     */
+    private static void checkRebuildable(String vecFile, String faissFile, int m, int efConstruction, int efSearch)
+            throws IOException {
+        FaissFilePermuter.FaissStructure source = FaissFilePermuter.parseStructure(faissFile);
+        if (source.isBinary && !source.permutableWith(m, efConstruction, efSearch)) {
+            BinaryFaissIndexRebuilder.checkRebuildable(faissFile, vecFile);
+        }
+    }
+
+    /**
+     * Rebuild {@code faissFile} with vectors inserted in {@code newOrder}.
+     *
+     * Binary sources are re-quantized with the {@code .osknnqstate} next to {@code vecFile}.
+     *
+     * @param vectors vectors of {@code vecFile} prepared for {@code spaceType}, or null if not loaded;
+     *                then they are read off-heap, unless the space needs them normalized or the source is binary
+     */
+    private static void rebuildFaiss(String vecFile, String faissFile, String outputFaiss, int[] newOrder,
+                                     float[][] vectors, SpaceType spaceType, int efSearch, int efConstruction, int m,
+                                     ReorderMetrics.Segment segment) throws IOException {
+        System.out.println("  Rebuilding: " + outputFaiss);
+        boolean binary = FaissFilePermuter.parseStructure(faissFile).isBinary;
+        if (vectors == null && (spaceType.isNormalized() || binary)) {
+            vectors = loadVectors(vecFile, spaceType, segment);
+        }
+        long[] oldIdMapping;
+        try (ReorderMetrics.Phase phase = segment.phase("read-id-mapping")) {
+            oldIdMapping = FaissFilePermuter.readIdMapping(faissFile);
+            phase.bytesRead((long) oldIdMapping.length * Long.BYTES);
+        }
+        if (binary) {
+            BinaryFaissIndexRebuilder.rebuild(faissFile, vecFile, vectors, newOrder, oldIdMapping, outputFaiss, m,
+                efConstruction, efSearch, segment, 0);
+            return;
+        }
+        FaissIndexRebuilder.BuildConfig config = FaissIndexRebuilder.BuildConfig.inferFrom(
+            faissFile, spaceType, m, efConstruction, efSearch);
+        System.out.println("  Index: " + config);
+        segment.attribute("index", config.toString());
+        if (vectors != null) {
+            FaissIndexRebuilder.rebuild(vectors, newOrder, oldIdMapping, vectors[0].length, outputFaiss, config,
+                segment, 0);
+        } else {
+            FaissIndexRebuilder.rebuild(vecFile, newOrder, oldIdMapping, outputFaiss, config, segment, 0);
+        }
+    }
+
+    /**
+     * @param vectors vectors of {@code vecFile} prepared for {@code spaceType}, or null if not loaded.
+     *                Unless they were normalized they are written directly instead of re-reading the
+     *                source in the new order.
+     */
+    private static void writeReorderedVec(String vecFile, String outputVec, int[] newOrder, float[][] vectors,
+                                          SpaceType spaceType, ReorderMetrics.Segment segment) throws IOException {
+        try (ReorderMetrics.Phase phase = segment.phase("write-vec")) {
+            if (vectors != null && !spaceType.isNormalized()) {
+                VecFileIO.writeReorderedFromArray(vecFile, vectors, newOrder, outputVec);
+            } else {
+                VecFileIO.writeReordered(vecFile, outputVec, newOrder);
+                phase.bytesRead(new File(vecFile).length());
+            }
+            phase.bytesWritten(new File(outputVec).length());
+        }
+    }
+
+    private static long storeVectors(float[][] vectors, ReorderMetrics.Segment segment) {
+        try (ReorderMetrics.Phase phase = segment.phase("jni-copy")) {
+            long addr = FaissKMeansService.storeVectors(vectors);
+            phase.bytesWritten((long) vectors.length * vectors[0].length * Float.BYTES);
+            return addr;
+        }
+    }
+
     private static String formatVector(float[] vector) {
         if (vector.length <= 8) {
             return Arrays.toString(vector);
@@ -6,14 +6,18 @@
 package org.opensearch.knn.reorder;
 
 import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.lucene95.OrdToDocDISIReaderConfiguration;
+import org.apache.lucene.store.DataAccessHint;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.packed.DirectMonotonicReader;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * Handles .vemf file reading and rewriting after BP reordering.
@@ -21,21 +25,18 @@ import java.nio.file.Paths;
  * PROBLEM: After BP reorder, ordToDoc[ord] = docId is NOT monotonic.
  * Lucene's DirectMonotonicWriter requires monotonic values.
  * 
- * SOLUTION: Write .vemf in dense format (ordToDoc is identity).
- * Store the actual docToOrd mapping in a separate .vord file.
+ * SOLUTION: Write .vemf in dense format (ordToDoc is identity), or keep the source sparse
+ * configuration for fields with missing or deleted vectors. Store the actual docToOrd and
+ * ordToDoc mappings in a separate .vord file.
  * 
- * .vord format:
- *   - Header (CodecUtil)
- *   - int count
- *   - int[count] docToOrd mapping
- *   - Footer (CodecUtil)
+ * .vord format: see {@link VordReader}. v1 stores docToOrd bit-packed behind a 64-byte aligned
+ * header so it can be mapped and queried without loading it onto the heap.
  * 
- * To look up vector for docId: ord = docToOrd[docId], then read vector at ord.
+ * To look up vector for docId: ord = docToOrd[docId] (-1 if none), then read vector at ord.
  */
 public class VemfFileIO {
 
     private static final String META_CODEC_NAME = "Lucene99FlatVectorsFormatMeta";
-    private static final String VORD_CODEC_NAME = "OpenSearchVectorOrdMapping";
     private static final int CODEC_MAGIC = 0x3fd76c17;
 
     public record VemfMeta(
@@ -117,39 +118,63 @@ public class VemfFileIO {
     /**
      * Rewrite .vemf and create .vord after BP reordering.
      * 
-     * .vemf is written in dense format (ord == docId assumption).
-     * .vord contains the actual docToOrd mapping for correct lookups.
+     * Dense fields get a dense .vemf (ord == docId assumption). Sparse fields keep their source
+     * docsWithField/ordToDoc configuration, whose data the reordered .vec carries over unchanged.
+     * .vord contains the actual docToOrd and ordToDoc mappings for correct lookups.
      */
     public static void writeReordered(
         String srcVemfPath,
         String dstVemfPath,
         String dstVecPath,
         int[] newOrder
+    ) throws IOException {
+        writeReordered(srcVemfPath, dstVemfPath, dstVecPath, newOrder, VordReader.Encoding.PACKED);
+    }
+
+    /**
+     * Same as {@link #writeReordered(String, String, String, int[])} with an explicit .vord payload
+     * encoding.
+     */
+    public static void writeReordered(
+        String srcVemfPath,
+        String dstVemfPath,
+        String dstVecPath,
+        int[] newOrder,
+        VordReader.Encoding vordEncoding
     ) throws IOException {
         VemfMeta srcMeta = readMetadata(srcVemfPath);
         
         if (srcMeta.isEmpty()) {
             throw new IllegalArgumentException("Cannot reorder empty vector field");
         }
+        int count = newOrder.length;
+        if (count != srcMeta.size()) {
+            throw new IllegalArgumentException("Permutation has " + count + " entries but the field has "
+                + srcMeta.size() + " vectors");
+        }
         
         Path dstVemf = Paths.get(dstVemfPath);
         String vordPath = dstVemfPath.replace(".vemf", ".vord");
         Path dstVord = Paths.get(vordPath);
         
-        // Compute docToOrd mapping
-        // After reorder: vector at newOrd came from oldOrd = newOrder[newOrd]
-        // In dense case: oldOrd == docId
-        // So: ordToDoc[newOrd] = newOrder[newOrd]
-        // Inverse: docToOrd[docId] = newOrd where newOrder[newOrd] == docId
-        int count = newOrder.length;
-        int[] docToOrd = new int[count];
+        // After reorder: vector at newOrd came from oldOrd = newOrder[newOrd], which belongs to
+        // doc = srcOrdToDoc[oldOrd] (identity when dense).
+        // So: ordToDoc[newOrd] = srcOrdToDoc[newOrder[newOrd]]
+        // Inverse: docToOrd[docId] = newOrd, -1 for docs without a vector
+        SparseConfig sparse = srcMeta.isDense() ? null : readSparseConfig(srcVemfPath, srcMeta);
+        int[] ordToDoc = new int[count];
+        for (int newOrd = 0; newOrd < count; newOrd++) {
+            ordToDoc[newOrd] = sparse == null ? newOrder[newOrd] : sparse.ordToDoc()[newOrder[newOrd]];
+        }
+        int[] docToOrd = new int[sparse == null ? count : sparse.ordToDoc()[count - 1] + 1];
+        if (sparse != null) {
+            Arrays.fill(docToOrd, -1);
+        }
         for (int newOrd = 0; newOrd < count; newOrd++) {
-            int docId = newOrder[newOrd];
-            docToOrd[docId] = newOrd;
+            docToOrd[ordToDoc[newOrd]] = newOrd;
         }
         
         try (FSDirectory dir = FSDirectory.open(dstVemf.getParent())) {
-            // Write .vemf in dense format
             try (IndexOutput metaOut = dir.createOutput(dstVemf.getFileName().toString(), IOContext.DEFAULT)) {
                 CodecUtil.writeIndexHeader(metaOut, META_CODEC_NAME, 0, srcMeta.segmentId(), srcMeta.segmentSuffix());
                 
@@ -163,62 +188,74 @@ public class VemfFileIO {
                 metaOut.writeVInt(srcMeta.dimension());
                 metaOut.writeInt(count);
                 
-                // Dense format
-                metaOut.writeLong(-1L);  // docsWithFieldOffset = -1 means dense
-                metaOut.writeLong(0L);
-                metaOut.writeShort((short) -1);
-                metaOut.writeByte((byte) -1);
+                if (sparse == null) {
+                    // Dense format
+                    metaOut.writeLong(-1L);  // docsWithFieldOffset = -1 means dense
+                    metaOut.writeLong(0L);
+                    metaOut.writeShort((short) -1);
+                    metaOut.writeByte((byte) -1);
+                } else {
+                    // Sparse format, pointing at the docsWithField and ordToDoc data in the .vec
+                    metaOut.writeBytes(sparse.storedMeta(), sparse.storedMeta().length);
+                }
                 
                 metaOut.writeInt(-1);  // end marker
                 CodecUtil.writeFooter(metaOut);
             }
             
-            // Write .vord with docToOrd mapping
+            // Write .vord with docToOrd and ordToDoc mappings
             try (IndexOutput vordOut = dir.createOutput(dstVord.getFileName().toString(), IOContext.DEFAULT)) {
-                CodecUtil.writeIndexHeader(vordOut, VORD_CODEC_NAME, 0, srcMeta.segmentId(), srcMeta.segmentSuffix());
-                
-                vordOut.writeInt(docToOrd.length);
-                for (int ord : docToOrd) {
-                    vordOut.writeInt(ord);
-                }
-                
-                CodecUtil.writeFooter(vordOut);
+                VordReader.write(vordOut, srcMeta.segmentId(), srcMeta.segmentSuffix(), docToOrd, ordToDoc,
+                    vordEncoding);
             }
         }
         
-        System.out.println("Wrote .vemf (dense format) and .vord (docToOrd mapping)");
+        System.out.println("Wrote .vemf (" + (sparse == null ? "dense" : "sparse") + " format) and .vord (docToOrd mapping)");
         System.out.println("  .vord: " + vordPath);
     }
 
     /**
-     * Read docToOrd mapping from .vord file.
+     * Stored docsWithField/ordToDoc metadata of a sparse field, verbatim, and the ordToDoc mapping
+     * it describes.
      */
-    public static int[] readDocToOrd(String vordPath) throws IOException {
-        Path path = Paths.get(vordPath);
-        try (FSDirectory dir = FSDirectory.open(path.getParent());
-             IndexInput input = dir.openInput(path.getFileName().toString(), IOContext.DEFAULT)) {
-            
-            // Skip header manually (magic + codec name + version + segmentId + suffix)
-            int magic = readBEInt(input);
-            if (magic != CODEC_MAGIC) {
-                throw new IOException("Invalid magic in .vord");
-            }
-            String codec = input.readString();
-            if (!VORD_CODEC_NAME.equals(codec)) {
-                throw new IOException("Expected codec " + VORD_CODEC_NAME);
-            }
-            readBEInt(input); // version
-            input.skipBytes(16); // segmentId
-            int suffixLen = input.readByte() & 0xFF;
-            input.skipBytes(suffixLen);
-            
-            int count = input.readInt();
-            int[] docToOrd = new int[count];
-            for (int i = 0; i < count; i++) {
-                docToOrd[i] = input.readInt();
+    private record SparseConfig(byte[] storedMeta, int[] ordToDoc) {}
+
+    private static SparseConfig readSparseConfig(String vemfPath, VemfMeta meta) throws IOException {
+        Path path = Paths.get(vemfPath);
+        String vecFileName = path.getFileName().toString().replace(".vemf", ".vec");
+        try (FSDirectory directory = FSDirectory.open(path.getParent());
+             IndexInput input = directory.openInput(path.getFileName().toString(), IOContext.READONCE);
+             IndexInput data = directory.openInput(vecFileName, IOContext.DEFAULT.withHints(DataAccessHint.SEQUENTIAL))) {
+            CodecUtil.checkIndexHeader(input, META_CODEC_NAME, 0, Integer.MAX_VALUE, meta.segmentId(),
+                meta.segmentSuffix());
+            input.readInt();   // fieldNumber
+            input.readInt();   // vectorEncoding
+            input.readInt();   // similarityFunction
+            input.readVLong(); // vectorDataOffset
+            input.readVLong(); // vectorDataLength
+            input.readVInt();  // dimension
+            int size = input.readInt();
+            long start = input.getFilePointer();
+            OrdToDocDISIReaderConfiguration config = OrdToDocDISIReaderConfiguration.fromStoredMeta(input, size);
+            byte[] storedMeta = new byte[(int) (input.getFilePointer() - start)];
+            input.seek(start);
+            input.readBytes(storedMeta, 0, storedMeta.length);
+
+            DirectMonotonicReader reader = config.getDirectMonotonicReader(data);
+            int[] ordToDoc = new int[size];
+            for (int ord = 0; ord < size; ord++) {
+                ordToDoc[ord] = (int) reader.get(ord);
             }
-            
-            return docToOrd;
+            return new SparseConfig(storedMeta, ordToDoc);
+        }
+    }
+
+    /**
+     * Read docToOrd mapping from .vord file onto the heap. Prefer {@link VordReader} for lookups.
+     */
+    public static int[] readDocToOrd(String vordPath) throws IOException {
+        try (VordReader reader = VordReader.open(vordPath)) {
+            return reader.toArray();
         }
     }
 
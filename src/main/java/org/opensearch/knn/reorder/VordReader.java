@@ -0,0 +1,288 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.DataAccessHint;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RandomAccessInput;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.packed.DirectReader;
+import org.apache.lucene.util.packed.DirectWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Memory-mapped, random-access reader for .vord docToOrd/ordToDoc files.
+ *
+ * .vord v2 format:
+ *   - Header (CodecUtil, version 2)
+ *   - int  count (vectors)
+ *   - byte encoding (0 = int32, 1 = packed)
+ *   - byte docToOrd bitsPerValue (32 for int32)
+ *   - int  docBound (last doc with a vector + 1; equals count for dense fields)
+ *   - byte ordToDoc bitsPerValue
+ *   - zero padding to a 64-byte boundary
+ *   - docToOrd payload: docBound values; docs without a vector hold -1 (int32) or count (packed)
+ *   - zero padding to a 64-byte boundary
+ *   - ordToDoc payload: count values
+ *   - long ordToDoc payload offset
+ *   - Footer (CodecUtil)
+ *
+ * Payloads are little-endian ints or DirectWriter streams. Opening only reads the header and the
+ * trailer, so it is O(1) regardless of segment size; lookups go straight to the mapped payloads.
+ * v1 files (dense docToOrd only, no docBound or ordToDoc) and v0 files (header, count, int[count],
+ * footer) are read through the same interface.
+ */
+public final class VordReader implements Closeable {
+
+    static final String CODEC_NAME = "OpenSearchVectorOrdMapping";
+    static final int VERSION_START = 0;
+    static final int VERSION_ALIGNED = 1;
+    static final int VERSION_ORD_TO_DOC = 2;
+    static final int VERSION_CURRENT = VERSION_ORD_TO_DOC;
+    static final int PAYLOAD_ALIGNMENT = 64;
+
+    public enum Encoding {
+        INT32,
+        PACKED
+    }
+
+    private final Directory directory;
+    private final IndexInput input;
+    private final int version;
+    private final int count;
+    private final int docBound;
+    private final Encoding encoding;
+    private final int bitsPerValue;
+    private final long payloadOffset;
+    private final RandomAccessInput payload;
+    private final LongValues packed;
+    private final RandomAccessInput ordToDocPayload;
+    private final LongValues ordToDocPacked;
+
+    private VordReader(Directory directory, IndexInput input) throws IOException {
+        this.directory = directory;
+        this.input = input;
+        this.version = CodecUtil.checkHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT);
+        input.skipBytes(StringHelper.ID_LENGTH);
+        input.skipBytes(Byte.toUnsignedInt(input.readByte()));  // segment suffix
+        this.count = input.readInt();
+        int ordToDocBits = 0;
+        if (version >= VERSION_ALIGNED) {
+            int encodingByte = input.readByte();
+            if (encodingByte < 0 || encodingByte >= Encoding.values().length) {
+                throw new CorruptIndexException("Unknown .vord encoding " + encodingByte, input);
+            }
+            this.encoding = Encoding.values()[encodingByte];
+            this.bitsPerValue = input.readByte();
+            if (version >= VERSION_ORD_TO_DOC) {
+                this.docBound = input.readInt();
+                ordToDocBits = input.readByte();
+            } else {
+                this.docBound = count;
+            }
+            this.payloadOffset = alignOffset(input.getFilePointer());
+        } else {
+            this.encoding = Encoding.INT32;
+            this.bitsPerValue = Integer.SIZE;
+            this.docBound = count;
+            this.payloadOffset = input.getFilePointer();
+        }
+        CodecUtil.retrieveChecksum(input);  // validates footer structure and file length
+        long payloadEnd = input.length() - CodecUtil.footerLength();
+        if (version >= VERSION_ORD_TO_DOC) {
+            payloadEnd -= Long.BYTES;
+            long ordToDocOffset = input.randomAccessSlice(payloadEnd, Long.BYTES).readLong(0);
+            this.ordToDocPayload = input.randomAccessSlice(ordToDocOffset, payloadEnd - ordToDocOffset);
+            this.ordToDocPacked = encoding == Encoding.PACKED
+                ? DirectReader.getInstance(ordToDocPayload, ordToDocBits) : null;
+            payloadEnd = ordToDocOffset;
+        } else {
+            this.ordToDocPayload = null;
+            this.ordToDocPacked = null;
+        }
+        this.payload = input.randomAccessSlice(payloadOffset, payloadEnd - payloadOffset);
+        this.packed = encoding == Encoding.PACKED ? DirectReader.getInstance(payload, bitsPerValue) : null;
+    }
+
+    /**
+     * Map {@code vordPath}. The file stays open until {@link #close()}.
+     */
+    public static VordReader open(String vordPath) throws IOException {
+        Path path = Paths.get(vordPath).toAbsolutePath();
+        Directory directory = FSDirectory.open(path.getParent());
+        IndexInput input = null;
+        try {
+            input = directory.openInput(path.getFileName().toString(), IOContext.DEFAULT.withHints(DataAccessHint.RANDOM));
+            return new VordReader(directory, input);
+        } catch (Throwable t) {
+            if (input != null) {
+                input.close();
+            }
+            directory.close();
+            throw t;
+        }
+    }
+
+    /**
+     * Ordinal of the vector for {@code doc}, or -1 if the doc has no vector.
+     */
+    public int docToOrd(int doc) throws IOException {
+        if (doc >= docBound) {
+            return -1;
+        }
+        if (packed != null) {
+            long ord = packed.get(doc);
+            return ord >= count ? -1 : (int) ord;
+        }
+        return payload.readInt((long) doc * Integer.BYTES);
+    }
+
+    /**
+     * Doc that owns the vector at {@code ord}. Only v2 files store this mapping.
+     */
+    public int ordToDoc(int ord) throws IOException {
+        if (ordToDocPayload == null) {
+            throw new IllegalStateException(".vord v" + version + " has no ordToDoc mapping");
+        }
+        if (ordToDocPacked != null) {
+            return (int) ordToDocPacked.get(ord);
+        }
+        return ordToDocPayload.readInt((long) ord * Integer.BYTES);
+    }
+
+    public boolean hasOrdToDoc() {
+        return ordToDocPayload != null;
+    }
+
+    /**
+     * Copy docToOrd onto the heap, for callers that need an int[]. Docs without a vector map to -1.
+     */
+    public int[] toArray() throws IOException {
+        int[] docToOrd = new int[docBound];
+        if (packed == null) {
+            IndexInput clone = input.clone();
+            clone.seek(payloadOffset);
+            clone.readInts(docToOrd, 0, docBound);
+        } else {
+            for (int doc = 0; doc < docBound; doc++) {
+                docToOrd[doc] = docToOrd(doc);
+            }
+        }
+        return docToOrd;
+    }
+
+    /**
+     * Verify the checksum of the whole file. Reads every byte, unlike {@link #open}.
+     */
+    public void checkIntegrity() throws IOException {
+        CodecUtil.checksumEntireFile(input);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * One past the last doc with a vector.
+     */
+    public int docBound() {
+        return docBound;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    public int bitsPerValue() {
+        return bitsPerValue;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            input.close();
+        } finally {
+            directory.close();
+        }
+    }
+
+    /**
+     * Write the mappings in the v2 layout.
+     *
+     * @param docToOrd ordinal per doc up to the last doc with a vector, -1 for docs without one
+     * @param ordToDoc doc per ordinal
+     */
+    static void write(IndexOutput out, byte[] segmentId, String segmentSuffix, int[] docToOrd, int[] ordToDoc,
+                      Encoding encoding) throws IOException {
+        int count = ordToDoc.length;
+        int docBound = docToOrd.length;
+        boolean packed = encoding == Encoding.PACKED;
+        // Packed values are unsigned, so docs without a vector are stored as count
+        int docToOrdBits = packed ? DirectWriter.unsignedBitsRequired(Math.max(0, docBound > count ? count : count - 1))
+            : Integer.SIZE;
+        int ordToDocBits = packed ? DirectWriter.unsignedBitsRequired(Math.max(0, docBound - 1)) : Integer.SIZE;
+        CodecUtil.writeIndexHeader(out, CODEC_NAME, VERSION_CURRENT, segmentId, segmentSuffix);
+        out.writeInt(count);
+        out.writeByte((byte) encoding.ordinal());
+        out.writeByte((byte) docToOrdBits);
+        out.writeInt(docBound);
+        out.writeByte((byte) ordToDocBits);
+        out.alignFilePointer(PAYLOAD_ALIGNMENT);
+        writeValues(out, docToOrd, packed ? docToOrdBits : 0, count);
+        long ordToDocOffset = out.alignFilePointer(PAYLOAD_ALIGNMENT);
+        writeValues(out, ordToDoc, packed ? ordToDocBits : 0, count);
+        out.writeLong(ordToDocOffset);
+        CodecUtil.writeFooter(out);
+    }
+
+    private static void writeValues(IndexOutput out, int[] values, int bits, int missing) throws IOException {
+        if (bits == 0) {
+            for (int value : values) {
+                out.writeInt(value);
+            }
+            return;
+        }
+        DirectWriter writer = DirectWriter.getInstance(out, values.length, bits);
+        for (int value : values) {
+            writer.add(value < 0 ? missing : value);
+        }
+        writer.finish();
+    }
+
+    private static long alignOffset(long offset) {
+        return (offset + PAYLOAD_ALIGNMENT - 1) & -PAYLOAD_ALIGNMENT;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: VordReader <vord-path>");
+            return;
+        }
+        try (VordReader reader = open(args[0])) {
+            reader.checkIntegrity();
+            System.out.println("Vord v" + reader.version() + ": " + reader.size() + " vectors, doc bound "
+                + reader.docBound() + ", " + reader.encoding() + ", " + reader.bitsPerValue() + " bits/value");
+            for (int doc = 0; doc < Math.min(10, reader.size()); doc++) {
+                System.out.println("  doc " + doc + " -> ord " + reader.docToOrd(doc));
+            }
+        }
+    }
+}
@@ -110,7 +110,7 @@ public class BpReordererTest {
             for (int i = 0; i < 100; i++) ids[i] = i;
             
             String inputFaiss = tempDir.resolve("input.faiss").toString();
-            FaissIndexService.buildAndWriteIndex(addr, 100, 8, ids, "HNSW16,Flat", "l2", 100, 100, inputFaiss);
+            FaissIndexService.buildAndWriteIndex(addr, 100, 8, ids, "HNSW16,Flat", "l2", 100, 100, inputFaiss, 0);
             FaissKMeansService.freeVectors(addr);
 
             // Write test .vec file (raw format for simplicity - won't work with VecFileIO but tests the flow)
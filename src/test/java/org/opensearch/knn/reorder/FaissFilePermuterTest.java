@@ -0,0 +1,292 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Test that permuting a multi-level .faiss graph moves levels, neighbor blocks, stored vectors and
+ * the ID map together, renumbers neighbors, and leaves a valid footer, for binary, float and scalar
+ * quantized indices;
+ * and that M, metric and storage are inferred from the file.
+ */
+public class FaissFilePermuterTest {
+
+    private static final int NUM_VECTORS = 500;
+    private static final int M = 4;
+    /** Level 0 holds 2 * M slots, every upper level M */
+    private static final int[] CUM_NEIGHBORS = {0, 2 * M, 3 * M, 4 * M};
+    private static final int SQ8 = 0;
+
+    /** Flat storage of a test index and the HNSW and ID map types that wrap it */
+    private enum Storage {
+        BINARY("IBMp", "IBHf", "IBxF", 6, null),
+        FLAT("IxMp", "IHNf", "IxF2", 4 * Float.BYTES, "HNSW4,Flat"),
+        SQ8("IxMp", "IHNs", "IxSQ", 8, "HNSW4,SQ8");
+
+        final String idMapType;
+        final String hnswType;
+        final String flatType;
+        final int codeSize;
+        final String description;
+
+        Storage(String idMapType, String hnswType, String flatType, int codeSize, String description) {
+            this.idMapType = idMapType;
+            this.hnswType = hnswType;
+            this.flatType = flatType;
+            this.codeSize = codeSize;
+            this.description = description;
+        }
+
+        boolean binary() {
+            return this == BINARY;
+        }
+
+        int dimension() {
+            return switch (this) {
+                case BINARY -> codeSize * 8;
+                case FLAT -> codeSize / Float.BYTES;
+                case SQ8 -> codeSize;
+            };
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("faiss-file-permuter-test", tempDir -> {
+            for (Storage storage : Storage.values()) {
+                testPermute(tempDir, storage);
+            }
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testPermute(Path tempDir, Storage storage) throws IOException {
+        System.out.println("Testing " + storage + " graph...");
+        boolean binary = storage.binary();
+        Random random = new Random(7 + storage.ordinal());
+        Graph graph = Graph.random(random, storage.codeSize);
+        String name = storage.name().toLowerCase(Locale.ROOT);
+        Path input = tempDir.resolve(name + ".faiss");
+        Path output = tempDir.resolve(name + "_reordered.faiss");
+        write(input, graph, storage);
+
+        int[] newOrder = ReorderTestUtil.shuffled(NUM_VECTORS, random);
+        FaissFilePermuter.permute(input.toString(), newOrder, output.toString());
+
+        FaissFilePermuter.FaissStructure s = FaissFilePermuter.parseStructure(output.toString());
+        assert s.isBinary == binary : "Index type changed: " + s;
+        assert s.numVectors == NUM_VECTORS && s.codeSize == graph.codes[0].length : "Header changed: " + s;
+        assert Files.size(output) == Files.size(input) : "Size changed";
+        assert s.m == M : "Wrong M inferred: " + s.m;
+        assert s.permutableWith(0, 0, 0) == (storage != Storage.FLAT) : "Only quantized storage is permuted";
+        assert !s.permutableWith(M * 2, 0, 0) : "An M override must rebuild";
+        if (!binary) {
+            assert s.isScalarQuantized() == (storage == Storage.SQ8) : "Wrong storage: " + s;
+            assert !s.isInnerProduct() && storage.description.equals(s.indexDescription())
+                : "Wrong configuration: " + s;
+            FaissIndexRebuilder.BuildConfig config = FaissIndexRebuilder.BuildConfig.inferFrom(output.toString(),
+                SpaceType.L2, 0, 40, 0);
+            assert config.m() == M && config.efConstruction() == 40 && config.efSearch() == 100
+                : "Explicit values must override only themselves: " + config;
+            try {
+                FaissIndexRebuilder.BuildConfig.inferFrom(output.toString(), SpaceType.COSINESIMIL, 0, 0, 0);
+                assert false : "Metric mismatch was not detected";
+            } catch (IllegalArgumentException expected) {
+                // l2 index, cosine space
+            }
+        }
+
+        int[] inverse = new int[NUM_VECTORS];
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            inverse[newOrder[i]] = i;
+        }
+        Graph permuted = read(output, s);
+        assert permuted.entryPoint == inverse[graph.entryPoint] : "Entry point not renumbered";
+        for (int newIdx = 0; newIdx < NUM_VECTORS; newIdx++) {
+            int oldIdx = newOrder[newIdx];
+            assert permuted.levels[newIdx] == graph.levels[oldIdx] : "Wrong level at " + newIdx;
+            assert Arrays.equals(permuted.codes[newIdx], graph.codes[oldIdx]) : "Wrong vector at " + newIdx;
+            assert permuted.ids[newIdx] == graph.ids[oldIdx] : "Wrong ID mapping at " + newIdx;
+            int[] expected = graph.neighbors[oldIdx].clone();
+            for (int j = 0; j < expected.length; j++) {
+                expected[j] = expected[j] < 0 ? expected[j] : inverse[expected[j]];
+            }
+            assert Arrays.equals(permuted.neighbors[newIdx], expected) : "Wrong neighbors at " + newIdx;
+        }
+
+        // Flat header, including any trained quantizer ranges, is per dimension and must not move
+        long codesStart = s.flatVectorsEnd - (long) NUM_VECTORS * s.codeSize;
+        assert Arrays.equals(readRange(input, s.flatVectorsStart, codesStart),
+            readRange(output, s.flatVectorsStart, codesStart)) : "Flat header changed";
+
+        FaissHnswGraph before = FaissHnswGraph.load(input.toString());
+        FaissHnswGraph after = FaissHnswGraph.load(output.toString());
+        assert after.numEdges() == before.numEdges() : "Level-0 edge count changed";
+
+        try (FSDirectory dir = FSDirectory.open(tempDir);
+             IndexInput in = dir.openInput(output.getFileName().toString(), IOContext.READONCE)) {
+            CodecUtil.checksumEntireFile(in);
+        }
+        System.out.println("  Passed");
+    }
+
+    /**
+     * Per-node content of a .faiss file; {@code codes} holds packed binary codes or raw float bytes.
+     */
+    private record Graph(int[] levels, int[][] neighbors, byte[][] codes, long[] ids, int entryPoint) {
+
+        static Graph random(Random random, int codeSize) {
+            int[] levels = new int[NUM_VECTORS];
+            int[][] neighbors = new int[NUM_VECTORS][];
+            byte[][] codes = new byte[NUM_VECTORS][codeSize];
+            long[] ids = new long[NUM_VECTORS];
+            int entryPoint = 0;
+            for (int i = 0; i < NUM_VECTORS; i++) {
+                int level = 1;
+                while (level < CUM_NEIGHBORS.length - 1 && random.nextInt(4) == 0) {
+                    level++;
+                }
+                levels[i] = level;
+                if (level > levels[entryPoint]) {
+                    entryPoint = i;
+                }
+                neighbors[i] = new int[CUM_NEIGHBORS[level]];
+                for (int j = 0; j < neighbors[i].length; j++) {
+                    // Partially filled lists are padded with -1, as FAISS leaves them
+                    neighbors[i][j] = random.nextInt(4) == 0 ? -1 : random.nextInt(NUM_VECTORS);
+                }
+                random.nextBytes(codes[i]);
+                ids[i] = 1000L + 3L * i;
+            }
+            return new Graph(levels, neighbors, codes, ids, entryPoint);
+        }
+    }
+
+    private static void write(Path path, Graph graph, Storage storage) throws IOException {
+        boolean binary = storage.binary();
+        int codeSize = storage.codeSize;
+        int dimension = storage.dimension();
+        try (FSDirectory dir = FSDirectory.open(path.getParent());
+             IndexOutput out = dir.createOutput(path.getFileName().toString(), IOContext.DEFAULT)) {
+            writeHeader(out, storage.idMapType, binary, dimension, codeSize);
+            writeHeader(out, storage.hnswType, binary, dimension, codeSize);
+            out.writeLong(0); // assign_probas
+            out.writeLong(CUM_NEIGHBORS.length);
+            for (int cum : CUM_NEIGHBORS) {
+                out.writeInt(cum);
+            }
+            out.writeLong(NUM_VECTORS);
+            for (int level : graph.levels) {
+                out.writeInt(level);
+            }
+            out.writeLong(NUM_VECTORS + 1);
+            long offset = 0;
+            out.writeLong(offset);
+            for (int[] block : graph.neighbors) {
+                offset += block.length;
+                out.writeLong(offset);
+            }
+            out.writeLong(offset);
+            for (int[] block : graph.neighbors) {
+                for (int neighbor : block) {
+                    out.writeInt(neighbor);
+                }
+            }
+            out.writeInt(graph.entryPoint);
+            out.writeInt(CUM_NEIGHBORS.length - 2); // max_level
+            out.writeInt(100); // efConstruction
+            out.writeInt(100); // efSearch
+            out.writeInt(0); // upper_beam
+            writeHeader(out, storage.flatType, binary, dimension, codeSize);
+            if (storage == Storage.SQ8) {
+                out.writeInt(SQ8);
+                out.writeInt(0); // rangestat
+                out.writeInt(Float.floatToIntBits(0f)); // rangestat_arg
+                out.writeLong(dimension);
+                out.writeLong(codeSize);
+                // trained: per-dimension vmin and vdiff, which must move with the header
+                out.writeLong(2L * dimension);
+                for (int j = 0; j < 2 * dimension; j++) {
+                    out.writeInt(Float.floatToIntBits(j));
+                }
+            }
+            // Binary and SQ codes are sized in bytes, float vectors in floats
+            out.writeLong(storage == Storage.FLAT ? (long) NUM_VECTORS * dimension : (long) NUM_VECTORS * codeSize);
+            for (byte[] code : graph.codes) {
+                out.writeBytes(code, code.length);
+            }
+            out.writeLong(NUM_VECTORS);
+            for (long id : graph.ids) {
+                out.writeLong(id);
+            }
+            CodecUtil.writeFooter(out);
+        }
+    }
+
+    private static void writeHeader(IndexOutput out, String type, boolean binary, int dimension, int codeSize)
+            throws IOException {
+        out.writeBytes(type.getBytes(StandardCharsets.US_ASCII), 4);
+        out.writeInt(dimension);
+        if (binary) {
+            out.writeInt(codeSize);
+            out.writeLong(NUM_VECTORS);
+        } else {
+            out.writeLong(NUM_VECTORS);
+            out.writeLong(1 << 20);
+            out.writeLong(1 << 20);
+        }
+        out.writeByte((byte) 1); // is_trained
+        out.writeInt(binary ? 0 : 1); // metric_type
+    }
+
+    private static Graph read(Path path, FaissFilePermuter.FaissStructure s) throws IOException {
+        try (FSDirectory dir = FSDirectory.open(path.getParent());
+             IndexInput in = dir.openInput(path.getFileName().toString(), IOContext.READONCE)) {
+            in.seek(s.levelsStart + Long.BYTES);
+            int[] levels = new int[NUM_VECTORS];
+            in.readInts(levels, 0, NUM_VECTORS);
+            long[] offsets = FaissFilePermuter.readOffsets(in, s);
+            in.seek(s.neighborsStart + Long.BYTES);
+            int[][] neighbors = new int[NUM_VECTORS][];
+            for (int i = 0; i < NUM_VECTORS; i++) {
+                neighbors[i] = new int[(int) (offsets[i + 1] - offsets[i])];
+                in.readInts(neighbors[i], 0, neighbors[i].length);
+            }
+            // Flat data follows the type, header and size
+            in.seek(s.flatVectorsEnd - (long) NUM_VECTORS * s.codeSize);
+            byte[][] codes = new byte[NUM_VECTORS][s.codeSize];
+            for (byte[] code : codes) {
+                in.readBytes(code, 0, code.length);
+            }
+            in.seek(s.idMappingStart + Long.BYTES);
+            long[] ids = new long[NUM_VECTORS];
+            in.readLongs(ids, 0, NUM_VECTORS);
+            return new Graph(levels, neighbors, codes, ids, s.entryPoint);
+        }
+    }
+
+    private static byte[] readRange(Path path, long from, long to) throws IOException {
+        try (FSDirectory dir = FSDirectory.open(path.getParent());
+             IndexInput in = dir.openInput(path.getFileName().toString(), IOContext.READONCE)) {
+            byte[] bytes = new byte[Math.toIntExact(to - from)];
+            in.seek(from);
+            in.readBytes(bytes, 0, bytes.length);
+            return bytes;
+        }
+    }
+}
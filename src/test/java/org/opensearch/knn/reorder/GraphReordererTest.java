@@ -0,0 +1,132 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import java.util.Random;
+
+/**
+ * Test for graph-based reordering on a synthetic graph with known locality.
+ */
+public class GraphReordererTest {
+
+    public static void main(String[] args) {
+        testUnitHeap();
+        testOrdersRecoverLocality();
+        testSmallPartitions();
+        System.out.println("\nAll tests passed!");
+    }
+
+    private static void testUnitHeap() {
+        System.out.println("Testing UnitHeap...");
+        GraphReorderer.UnitHeap heap = new GraphReorderer.UnitHeap(4);
+        heap.update(2, true);
+        heap.update(2, true);
+        heap.update(1, true);
+        heap.update(2, false);
+        heap.update(3, true);
+        heap.update(3, true);
+        assert heap.extractMax() == 3 : "Expected node 3 with key 2";
+        int next = heap.extractMax();
+        assert next == 1 || next == 2 : "Expected a node with key 1, got " + next;
+        heap.remove(next == 1 ? 2 : 1);
+        assert heap.extractMax() == 0 : "Expected node 0 with key 0";
+        System.out.println("  UnitHeap test passed");
+    }
+
+    private static void testOrdersRecoverLocality() {
+        System.out.println("Testing graph orders on a shuffled ring lattice...");
+        int n = 20_000;
+        FaissHnswGraph graph = shuffledRingLattice(n, 8, new Random(42));
+        double shuffledGap = averageEdgeGap(graph, identity(n));
+        System.out.println("  Shuffled average edge gap: " + shuffledGap);
+
+        for (GraphReorderer.Method method : GraphReorderer.Method.values()) {
+            int[] newOrder = GraphReorderer.computePermutation(graph, method);
+            assertPermutation(newOrder, n);
+            double gap = averageEdgeGap(graph, newOrder);
+            System.out.println("  " + method + " average edge gap: " + gap);
+            if (method != GraphReorderer.Method.DEGREE) {
+                // Every node has the same degree, so degree sort carries no locality signal
+                assert gap < shuffledGap / 10 : method + " did not improve locality: " + gap;
+            }
+        }
+        System.out.println("  Locality test passed");
+    }
+
+    private static void testSmallPartitions() {
+        System.out.println("Testing Gorder with many partitions...");
+        int n = 5_000;
+        FaissHnswGraph graph = shuffledRingLattice(n, 4, new Random(7));
+        int[] newOrder = GraphReorderer.computePermutation(graph, GraphReorderer.Method.GORDER, 5, 300);
+        assertPermutation(newOrder, n);
+        assert averageEdgeGap(graph, newOrder) < averageEdgeGap(graph, identity(n)) / 10 : "Partitioned Gorder did not improve locality";
+        System.out.println("  Partition test passed");
+    }
+
+    /**
+     * Ring where node i links to its k nearest ring neighbors, with ordinals randomly shuffled.
+     */
+    private static FaissHnswGraph shuffledRingLattice(int n, int k, Random random) {
+        int[] label = identity(n);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = label[i];
+            label[i] = label[j];
+            label[j] = tmp;
+        }
+        int[] outStart = new int[n + 1];
+        int[] outNeighbors = new int[n * k];
+        for (int pos = 0; pos < n; pos++) {
+            int node = label[pos];
+            outStart[node + 1] = k;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+        }
+        for (int pos = 0; pos < n; pos++) {
+            int node = label[pos];
+            int fill = outStart[node];
+            for (int d = 1; d <= k / 2; d++) {
+                outNeighbors[fill++] = label[(pos + d) % n];
+                outNeighbors[fill++] = label[(pos - d + n) % n];
+            }
+        }
+        return new FaissHnswGraph(n, label[0], outStart, outNeighbors);
+    }
+
+    private static double averageEdgeGap(FaissHnswGraph graph, int[] newOrder) {
+        int n = graph.numNodes();
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[newOrder[i]] = i;
+        }
+        long total = 0;
+        for (int node = 0; node < n; node++) {
+            for (int i = 0; i < graph.outDegree(node); i++) {
+                total += Math.abs(position[node] - position[graph.outNeighbor(node, i)]);
+            }
+        }
+        return (double) total / graph.numEdges();
+    }
+
+    private static void assertPermutation(int[] newOrder, int n) {
+        assert newOrder.length == n : "Permutation length mismatch";
+        boolean[] seen = new boolean[n];
+        for (int oldIdx : newOrder) {
+            assert oldIdx >= 0 && oldIdx < n : "Invalid index in permutation: " + oldIdx;
+            assert !seen[oldIdx] : "Duplicate index in permutation: " + oldIdx;
+            seen[oldIdx] = true;
+        }
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test the page faults and recall that {@link HnswSearchSimulator} replays over a
+ * {@link SyntheticHnswIndex}, whose identity order is the local one.
+ */
+public class HnswSearchSimulatorTest {
+
+    private static final int NUM_VECTORS = 2000;
+    private static final int DIMENSION = 16;
+    private static final int PAGE_BYTES = 4096;
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("hnsw-search-simulator-test", tempDir -> {
+            Path faiss = SyntheticHnswIndex.writeClustered(tempDir, NUM_VECTORS, DIMENSION);
+            testShuffledOrderFaultsMore(faiss);
+            testRecallWithFullEf(faiss);
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testShuffledOrderFaultsMore(Path faiss) throws IOException {
+        System.out.println("Testing page faults of identity against a shuffled order...");
+        try (HnswSearchSimulator.Index index = HnswSearchSimulator.Index.open(faiss.toString(), SpaceType.L2)) {
+            HnswSearchSimulator.QueryTrace[] traces = HnswSearchSimulator.run(index,
+                SyntheticHnswIndex.queries(index, 50), SpaceType.L2, 16, 10);
+            for (HnswSearchSimulator.QueryTrace trace : traces) {
+                assert trace.cpuNanos() >= 0 : "Negative query time " + trace.cpuNanos();
+            }
+            long cacheBytes = 4L * PAGE_BYTES;
+            HnswSearchSimulator.Result identity = HnswSearchSimulator.replay(index, traces,
+                ReorderTestUtil.identity(NUM_VECTORS), PAGE_BYTES, cacheBytes, 0, 0, null);
+            HnswSearchSimulator.Result shuffled = HnswSearchSimulator.replay(index, traces,
+                ReorderTestUtil.shuffled(NUM_VECTORS, 7), PAGE_BYTES, cacheBytes, 0, 0, null);
+            System.out.println("  Page faults: identity " + identity.faults() + ", shuffled " + shuffled.faults());
+            assert identity.accesses() == shuffled.accesses() : "Replays saw different traces";
+            assert identity.faults() > 0 && identity.faults() <= identity.accesses() : "Faults outside [1, accesses]";
+            assert shuffled.faults() > identity.faults() : "Shuffling did not add page faults";
+
+            HnswSearchSimulator.Result cached = HnswSearchSimulator.replay(index, traces,
+                ReorderTestUtil.shuffled(NUM_VECTORS, 7), PAGE_BYTES, 1L << 30, 0, 0, null);
+            long pages = (Files.size(faiss) + PAGE_BYTES - 1) / PAGE_BYTES;
+            assert cached.faults() <= pages : "Cache larger than the index faulted " + cached.faults() + " times";
+        }
+        System.out.println("  Passed");
+    }
+
+    private static void testRecallWithFullEf(Path faiss) throws IOException {
+        System.out.println("Testing recall with ef_search >= n...");
+        try (HnswSearchSimulator.Index index = HnswSearchSimulator.Index.open(faiss.toString(), SpaceType.L2)) {
+            float[][] queries = SyntheticHnswIndex.queries(index, 20);
+            HnswSearchSimulator.QueryTrace[] traces = HnswSearchSimulator.run(index, queries, SpaceType.L2,
+                NUM_VECTORS, 10);
+            int[][] truth = HnswSearchSimulator.groundTruth(index, queries, SpaceType.L2, 10);
+            HnswSearchSimulator.Result result = HnswSearchSimulator.replay(index, traces,
+                ReorderTestUtil.identity(NUM_VECTORS), PAGE_BYTES, 1L << 20, 0, 0, truth);
+            assert result.recall() == 1.0 : "Expected exact results, got recall " + result.recall();
+        }
+        System.out.println("  Passed");
+    }
+}
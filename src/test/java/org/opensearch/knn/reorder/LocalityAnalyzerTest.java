@@ -0,0 +1,83 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.index.FloatVectorValues;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test the locality scores of {@link LocalityAnalyzer} on a {@link SyntheticHnswIndex}, whose
+ * identity order is the local one, and the kmeans orders on segments too small to cluster.
+ */
+public class LocalityAnalyzerTest {
+
+    private static final int NUM_VECTORS = 2000;
+    private static final int DIMENSION = 16;
+    private static final int PAGE_BYTES = 4096;
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("locality-analyzer-test", tempDir -> {
+            testKMeansOrderOnTinySegment(tempDir);
+            testShuffledOrderLosesLocality(SyntheticHnswIndex.writeClustered(tempDir, NUM_VECTORS, DIMENSION));
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testKMeansOrderOnTinySegment(Path tempDir) throws IOException {
+        System.out.println("Testing kmeans orders on fewer than 10 vectors...");
+        assert StreamingKMeans.numClusters(5, 0) == 1 : "Expected one cluster for 5 vectors";
+        float[][] vectors = new float[5][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = new float[] { i, -i };
+        }
+        FaissHnswGraph graph = SyntheticHnswIndex.knnGraph(vectors);
+        int[] order = LocalityAnalyzer.computeOrder("kmeans", graph, FloatVectorValues.fromFloats(Arrays.asList(vectors), 2),
+            SpaceType.L2);
+        assertPermutation(order, vectors.length);
+
+        String vecFile = SyntheticSegmentGenerator.generate(tempDir.toString(), "_t",
+            SyntheticSegmentGenerator.Options.of(5, 2)).vecPath();
+        VectorReorder.KMeansOptions streaming = new VectorReorder.KMeansOptions(true, StreamingKMeans.DEFAULT_BATCH_SIZE,
+            0, 0, VectorReorder.KMeansOptions.DEFAULT_PAGE_BYTES, 0, false, FaissKMeansService.DEFAULT_CENTROID_EF_SEARCH);
+        VectorReorder.kmeansReorder(List.of(vecFile), List.of(), SpaceType.L2, 0, 0, 0, streaming);
+        Path reordered = Path.of(vecFile.replace(".vec", "_reordered.vec"));
+        assert Files.size(reordered) == Files.size(Path.of(vecFile)) : "kmeans-reorder wrote a different .vec size";
+        System.out.println("  Passed");
+    }
+
+    private static void testShuffledOrderLosesLocality(Path faiss) throws IOException {
+        System.out.println("Testing identity against a shuffled order...");
+        int[] identity = ReorderTestUtil.identity(NUM_VECTORS);
+        int[] shuffled = ReorderTestUtil.shuffled(NUM_VECTORS, 7);
+        try (HnswSearchSimulator.Index index = HnswSearchSimulator.Index.open(faiss.toString(), SpaceType.L2)) {
+            FaissHnswGraph graph = FaissHnswGraph.load(faiss.toString());
+            LocalityAnalyzer.SearchTrace trace = LocalityAnalyzer.simulateSearches(graph, index.vectors, SpaceType.L2,
+                50, 16, 42L);
+            LocalityAnalyzer.Report local = LocalityAnalyzer.analyze(graph, identity, trace, PAGE_BYTES);
+            LocalityAnalyzer.Report scattered = LocalityAnalyzer.analyze(graph, shuffled, trace, PAGE_BYTES);
+            System.out.printf("  Log2 gap: identity %.2f, shuffled %.2f%n", local.averageLog2Gap(),
+                scattered.averageLog2Gap());
+            assert scattered.averageLog2Gap() > local.averageLog2Gap() : "Shuffling did not widen neighbor gaps";
+            assert scattered.averagePages() > local.averagePages() : "Shuffling did not spread searches over more pages";
+
+        }
+        System.out.println("  Passed");
+    }
+
+    private static void assertPermutation(int[] order, int n) {
+        assert order.length == n : "Permutation length mismatch";
+        boolean[] seen = new boolean[n];
+        for (int oldIdx : order) {
+            assert oldIdx >= 0 && oldIdx < n && !seen[oldIdx] : "Not a permutation at " + oldIdx;
+            seen[oldIdx] = true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Test that a multi-leaf index rewritten by {@link LuceneRewriteReorderer} keeps every doc's stored
+ * field, doc value and vector together, marks its segments and keeps the commit user data, and that
+ * sorted indices and indices with codecs missing from the classpath are rejected.
+ */
+public class LuceneRewriteReordererTest {
+
+    private static final Map<String, String> USER_DATA = Map.of("translog_uuid", "test-uuid", "max_seq_no", "5999");
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("lucene-rewrite-reorderer-test", tempDir -> {
+            float[][] vectors = ReorderingMergePolicyTest.randomVectors();
+            testRewrite(tempDir, vectors);
+            testSortedIndexRejected(tempDir, vectors);
+            testMissingCodecRejected(tempDir, vectors);
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testRewrite(Path tempDir, float[][] vectors) throws IOException {
+        System.out.println("Testing multi-leaf rewrite...");
+        Path src = tempDir.resolve("src");
+        Path dst = tempDir.resolve("dst");
+        writeIndex(src, vectors, new IndexWriterConfig());
+        int srcLeaves;
+        try (Directory dir = FSDirectory.open(src)) {
+            srcLeaves = SegmentInfos.readLatestCommit(dir).size();
+        }
+        assert srcLeaves > 1 : "Expected several source leaves, got " + srcLeaves;
+
+        LuceneRewriteReorderer.rewrite(src.toString(), dst.toString(), options(),
+            new ReorderMetrics("lucene-rewrite"));
+
+        try (Directory dir = FSDirectory.open(dst); DirectoryReader reader = DirectoryReader.open(dir)) {
+            assert reader.leaves().size() == srcLeaves : "Leaf count changed to " + reader.leaves().size();
+            assert reader.numDocs() == ReorderingMergePolicyTest.NUM_DOCS : "Doc count changed";
+            int moved = 0;
+            for (LeafReaderContext ctx : reader.leaves()) {
+                String diagnostic = ((SegmentReader) ctx.reader()).getSegmentInfo().info.getDiagnostics()
+                    .get(LuceneRewriteReorderer.REORDERED_DIAGNOSTIC);
+                assert "true".equals(diagnostic) : "Leaf " + ctx.ord + " has " + diagnostic;
+                moved += ReorderingMergePolicyTest.verify(ctx.reader(), vectors);
+            }
+            assert moved > 0 : "No doc moved";
+            assert SegmentInfos.readLatestCommit(dir).getUserData().equals(USER_DATA) : "Commit user data was lost";
+        }
+        System.out.println("  Passed");
+    }
+
+    private static void testSortedIndexRejected(Path tempDir, float[][] vectors) throws IOException {
+        System.out.println("Testing that a sorted index is rejected...");
+        Path src = tempDir.resolve("sorted");
+        writeIndex(src, vectors, new IndexWriterConfig().setIndexSort(new Sort(new SortField("id", SortField.Type.LONG))));
+        assertRejected(src, tempDir.resolve("sorted-dst"), "Index is sorted");
+        System.out.println("  Passed");
+    }
+
+    private static void testMissingCodecRejected(Path tempDir, float[][] vectors) throws IOException {
+        System.out.println("Testing that a codec missing from the classpath is rejected...");
+        Path src = tempDir.resolve("unregistered");
+        writeIndex(src, vectors, new IndexWriterConfig().setCodec(new FilterCodec("UnregisteredCodec", Codec.getDefault()) {}));
+        assertRejected(src, tempDir.resolve("unregistered-dst"), "not on the classpath");
+        System.out.println("  Passed");
+    }
+
+    /**
+     * Index the shared test docs into several unmerged leaves and commit {@link #USER_DATA}.
+     */
+    private static void writeIndex(Path path, float[][] vectors, IndexWriterConfig config) throws IOException {
+        try (Directory dir = FSDirectory.open(path);
+             IndexWriter writer = new IndexWriter(dir, config.setMaxBufferedDocs(1000)
+                 .setMergePolicy(NoMergePolicy.INSTANCE))) {
+            ReorderingMergePolicyTest.index(writer, vectors, VectorSimilarityFunction.EUCLIDEAN);
+            writer.setLiveCommitData(USER_DATA.entrySet());
+            writer.commit();
+        }
+    }
+
+    private static void assertRejected(Path src, Path dst, String reason) throws IOException {
+        try {
+            LuceneRewriteReorderer.rewrite(src.toString(), dst.toString(), options(), new ReorderMetrics("lucene-rewrite"));
+            throw new AssertionError("Rewrite of " + src.getFileName() + " was not rejected");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains(reason) : "Unexpected message: " + e.getMessage();
+        }
+    }
+
+    private static LuceneRewriteReorderer.Options options() {
+        return new LuceneRewriteReorderer.Options("vec", 2, 2, 256, 20, 32);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.opensearch.common.io.stream.BytesStreamOutput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test that batch quantization produces the same MSB-first codes as a plain per-bit loop, and the
+ * same codes as quantizing one vector at a time or into off-heap memory, for odd dimensions,
+ * rotations, permutations and 2-bit/4-bit planes; and that 1-bit and multi-bit states parse.
+ */
+public class QuantizationStateIOTest {
+
+    private static final int VERSION_3_2_0 = 137237827;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("Vector API packing: " + QuantizationStateIO.VECTORIZED);
+        for (int dim : new int[] {1, 7, 8, 63, 64, 100, 768}) {
+            testDimension(dim, false);
+            testDimension(dim, true);
+            for (int bits : new int[] {2, 4}) {
+                testMultiBit(dim, bits, false);
+                testMultiBit(dim, bits, true);
+            }
+        }
+        testParse();
+        System.out.println("\nAll tests passed!");
+    }
+
+    private static void testDimension(int dim, boolean rotated) {
+        System.out.println("Testing dim=" + dim + ", rotated=" + rotated + "...");
+        Random random = new Random(dim);
+        int n = 5000;
+        float[][] vectors = new float[n][dim];
+        for (float[] v : vectors) {
+            for (int j = 0; j < dim; j++) {
+                v[j] = (float) random.nextGaussian();
+            }
+        }
+        float[] thresholds = new float[dim];
+        for (int j = 0; j < dim; j++) {
+            thresholds[j] = (float) random.nextGaussian() * 0.1f;
+        }
+        // Ties must not set a bit
+        vectors[0] = thresholds.clone();
+        float[][] rotation = null;
+        if (rotated) {
+            rotation = new float[dim][dim];
+            for (float[] row : rotation) {
+                for (int j = 0; j < dim; j++) {
+                    row[j] = (float) random.nextGaussian();
+                }
+            }
+        }
+        QuantizationStateIO.OneBitState state = new QuantizationStateIO.OneBitState(thresholds, rotation);
+        int bytesPerVector = state.getBytesPerVector();
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = (i * 7919) % n;
+        }
+
+        byte[] all = QuantizationStateIO.quantizeAll(vectors, permutation, state);
+        // Off-heap output, written chunk by chunk as BinaryFaissIndexRebuilder hands it to FAISS
+        ByteBuffer direct = ByteBuffer.allocateDirect(all.length);
+        QuantizationStateIO.quantizeAll(vectors, permutation, state, (offset, length) -> direct.slice((int) offset, length));
+        byte[] offHeap = new byte[all.length];
+        direct.get(0, offHeap);
+        assert Arrays.equals(all, offHeap) : "quantizeAll into a CodeSink differs from quantizeAll";
+        byte[] batch = new byte[3 + 10 * bytesPerVector];
+        QuantizationStateIO.quantizeBatch(vectors, 100, 10, permutation, batch, 3, state);
+        for (int i = 0; i < n; i++) {
+            byte[] actual = Arrays.copyOfRange(all, i * bytesPerVector, (i + 1) * bytesPerVector);
+            checkAgainstReference(vectors[permutation[i]], state, actual);
+            assert Arrays.equals(QuantizationStateIO.quantize(vectors[permutation[i]], state), actual)
+                : "quantize differs from quantizeAll at " + i;
+            if (i >= 100 && i < 110) {
+                int offset = 3 + (i - 100) * bytesPerVector;
+                assert Arrays.equals(Arrays.copyOfRange(batch, offset, offset + bytesPerVector), actual)
+                    : "quantizeBatch differs from quantizeAll at " + i;
+            }
+        }
+        assert rotated || Arrays.equals(QuantizationStateIO.quantize(thresholds, state), new byte[bytesPerVector])
+            : "Tie set a bit";
+        System.out.println("  Passed");
+    }
+
+    private static void testMultiBit(int dim, int bits, boolean rotated) {
+        System.out.println("Testing dim=" + dim + ", bits=" + bits + ", rotated=" + rotated + "...");
+        Random random = new Random(dim * 31L + bits);
+        int n = 1000;
+        float[][] vectors = new float[n][dim];
+        for (float[] v : vectors) {
+            for (int j = 0; j < dim; j++) {
+                v[j] = (float) random.nextGaussian();
+            }
+        }
+        float[][] thresholds = new float[bits][dim];
+        for (int p = 0; p < bits; p++) {
+            for (int j = 0; j < dim; j++) {
+                thresholds[p][j] = (p + 1f) / (bits + 1f) * 2 - 1 + (float) random.nextGaussian() * 0.05f;
+            }
+        }
+        float[][] rotation = rotated ? identity(dim) : null;
+        QuantizationStateIO.MultiBitState state = new QuantizationStateIO.MultiBitState(thresholds, rotation);
+        assert state.getBinaryDimension() == bits * dim : "Wrong binary dimension";
+        int bytesPerVector = state.getBytesPerVector();
+        byte[] all = QuantizationStateIO.quantizeAll(vectors, null, state);
+        // Garbage in the output buffer must not leak into codes
+        byte[] dirty = new byte[n * bytesPerVector];
+        Arrays.fill(dirty, (byte) 0xA5);
+        QuantizationStateIO.quantizeBatch(vectors, 0, n, null, dirty, 0, state);
+        assert Arrays.equals(all, dirty) : "quantizeBatch depends on the previous buffer contents";
+        for (int i = 0; i < n; i++) {
+            // k-NN's BitPacker.quantizeAndPackBits
+            byte[] expected = new byte[bytesPerVector];
+            for (int p = 0; p < bits; p++) {
+                for (int j = 0; j < dim; j++) {
+                    if (vectors[i][j] > thresholds[p][j]) {
+                        int bit = p * dim + j;
+                        expected[bit >> 3] |= (byte) (1 << (7 - (bit & 7)));
+                    }
+                }
+            }
+            assert Arrays.equals(Arrays.copyOfRange(all, i * bytesPerVector, (i + 1) * bytesPerVector), expected)
+                : "Wrong code for vector " + i;
+        }
+        System.out.println("  Passed");
+    }
+
+    private static void testParse() throws IOException {
+        System.out.println("Testing state parsing...");
+        float[] means = {0.5f, -0.5f, 1f};
+        QuantizationStateIO.MultiBitState oneBit = QuantizationStateIO.parseState(serialize(1, new float[][] {means}, null, 136407927));
+        assert oneBit instanceof QuantizationStateIO.OneBitState one && Arrays.equals(one.meanThresholds, means)
+            : "1-bit state did not parse";
+
+        float[][] planes = {{0.1f, 0.2f, 0.3f}, {1.1f, 1.2f, 1.3f}};
+        float[][] rotation = identity(3);
+        QuantizationStateIO.MultiBitState twoBit = QuantizationStateIO.parseState(serialize(2, planes, rotation, VERSION_3_2_0));
+        assert !(twoBit instanceof QuantizationStateIO.OneBitState) : "2-bit state parsed as 1-bit";
+        assert twoBit.getBitsPerCoordinate() == 2 && Arrays.deepEquals(twoBit.thresholds, planes) : "Wrong thresholds";
+        assert Arrays.deepEquals(twoBit.rotationMatrix, rotation) : "Wrong rotation";
+        System.out.println("  Passed");
+    }
+
+    /**
+     * Bytes as written by OneBitScalarQuantizationState / MultiBitScalarQuantizationState.writeTo.
+     */
+    private static byte[] serialize(int bits, float[][] thresholds, float[][] rotation, int version) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeVInt(version);
+            out.writeVInt(bits);
+            if (version >= VERSION_3_2_0) {
+                out.writeBoolean(rotation != null);
+                out.writeBoolean(false);
+            }
+            if (bits == 1) {
+                out.writeFloatArray(thresholds[0]);
+            } else {
+                out.writeVInt(thresholds.length);
+                out.writeVInt(thresholds[0].length);
+                for (float[] plane : thresholds) {
+                    out.writeFloatArray(plane);
+                }
+            }
+            if (version >= VERSION_3_2_0) {
+                out.writeBoolean(rotation != null);
+                if (rotation != null) {
+                    out.writeVInt(rotation.length);
+                    for (float[] row : rotation) {
+                        out.writeFloatArray(row);
+                    }
+                }
+            }
+            return out.bytes().toBytesRef().bytes;
+        }
+    }
+
+    private static float[][] identity(int dim) {
+        float[][] matrix = new float[dim][dim];
+        for (int i = 0; i < dim; i++) {
+            matrix[i][i] = 1f;
+        }
+        return matrix;
+    }
+
+    /**
+     * Compare every bit with a per-bit loop over the exactly rotated vector. Rotated values within a
+     * float rounding margin of the threshold may go either way, since FMA changes the summation.
+     */
+    private static void checkAgainstReference(float[] vector, QuantizationStateIO.OneBitState state, byte[] actual) {
+        int dim = vector.length;
+        double[] v = new double[dim];
+        double margin = 0;
+        for (int i = 0; i < dim; i++) {
+            if (state.rotationMatrix == null) {
+                v[i] = vector[i];
+                continue;
+            }
+            double sum = 0;
+            double abs = 0;
+            for (int j = 0; j < dim; j++) {
+                sum += (double) state.rotationMatrix[i][j] * vector[j];
+                abs += Math.abs((double) state.rotationMatrix[i][j] * vector[j]);
+            }
+            v[i] = sum;
+            margin = Math.max(margin, abs * dim * 0x1p-23);
+        }
+        for (int j = 0; j < dim; j++) {
+            boolean bit = (actual[j >> 3] & (1 << (7 - (j & 7)))) != 0;
+            if (Math.abs(v[j] - state.meanThresholds[j]) > margin) {
+                assert bit == (v[j] > state.meanThresholds[j]) : "Wrong bit " + j;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test that permutations round-trip, that corrupt or stale sidecars are ignored, and that a rerun
+ * skips finished segments.
+ */
+public class ReorderCheckpointTest {
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("reorder-checkpoint-test", tempDir -> {
+            String vecFile = SyntheticSegmentGenerator.generate(tempDir.toString(), "_c",
+                SyntheticSegmentGenerator.Options.of(2000, 8)).vecPath();
+            testRoundTrip(tempDir, vecFile);
+            testCorruptPermutation(tempDir, vecFile);
+            testConfigurationChange(tempDir, vecFile);
+            testResume(tempDir, vecFile);
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testRoundTrip(Path tempDir, String vecFile) throws IOException {
+        System.out.println("Testing permutation round trip...");
+        ReorderCheckpoint checkpoint = ReorderCheckpoint.open(tempDir.resolve("rt").toString(), "test", "a");
+        assert checkpoint.loadPermutation(vecFile) == null : "Nothing cached yet";
+        int[] newOrder = ReorderTestUtil.shuffled(2000, 42);
+        checkpoint.savePermutation(vecFile, newOrder);
+        assert Arrays.equals(checkpoint.loadPermutation(vecFile), newOrder) : "Permutation did not round trip";
+        System.out.println("  Round trip test passed");
+    }
+
+    private static void testCorruptPermutation(Path tempDir, String vecFile) throws IOException {
+        System.out.println("Testing corrupt permutation...");
+        ReorderCheckpoint checkpoint = ReorderCheckpoint.open(tempDir.resolve("corrupt").toString(), "test", "a");
+        checkpoint.savePermutation(vecFile, ReorderTestUtil.shuffled(2000, 42));
+        Path perm = checkpoint.permPath(vecFile);
+        try (FileChannel channel = FileChannel.open(perm, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long pos = channel.size() / 2;
+            channel.read(b, pos);
+            b.put(0, (byte) ~b.get(0)).rewind();
+            channel.write(b, pos);
+        }
+        assert checkpoint.loadPermutation(vecFile) == null : "Corrupt permutation must not be reused";
+        System.out.println("  Corrupt permutation test passed");
+    }
+
+    private static void testConfigurationChange(Path tempDir, String vecFile) throws IOException {
+        System.out.println("Testing configuration change...");
+        String dir = tempDir.resolve("config").toString();
+        ReorderCheckpoint.open(dir, "test", "a").savePermutation(vecFile, ReorderTestUtil.shuffled(2000, 42));
+        ReorderCheckpoint.open(dir, "test", "a").markComplete(vecFile);
+        ReorderCheckpoint other = ReorderCheckpoint.open(dir, "test", "b");
+        assert other.loadPermutation(vecFile) == null : "Permutation from another configuration reused";
+        assert !other.isComplete(vecFile) : "Segment complete under another configuration";
+        assert ReorderCheckpoint.open(dir, "test", "a").isComplete(vecFile) : "Manifest not persisted";
+        System.out.println("  Configuration change test passed");
+    }
+
+    private static void testResume(Path tempDir, String vecFile) throws Exception {
+        System.out.println("Testing resumed bp-reorder...");
+        String dir = tempDir.resolve("resume").toString();
+        String outputVec = vecFile.replace(".vec", "_reordered.vec");
+        BpReorderTool.bpReorder(List.of(vecFile), List.of(), SpaceType.L2, 100, 100, 16,
+            new ReorderMetrics("bp-reorder"), ReorderCheckpoint.open(dir, "bp-reorder", "l2"));
+        byte[] first = Files.readAllBytes(Path.of(outputVec));
+        ReorderCheckpoint checkpoint = ReorderCheckpoint.open(dir, "bp-reorder", "l2");
+        assert checkpoint.isComplete(vecFile, outputVec) : "Segment not recorded as complete";
+
+        // A lost output forces the segment to be redone from the cached permutation
+        Files.delete(Path.of(outputVec));
+        assert !checkpoint.isComplete(vecFile, outputVec) : "Missing output must not count as complete";
+        ReorderMetrics metrics = new ReorderMetrics("bp-reorder");
+        BpReorderTool.bpReorder(List.of(vecFile), List.of(), SpaceType.L2, 100, 100, 16, metrics, checkpoint);
+        assert Arrays.equals(Files.readAllBytes(Path.of(outputVec)), first) : "Rerun produced a different .vec";
+        assert metrics.segments().get(0).phases().stream().noneMatch(p -> p.name().equals("bp-permutation"))
+            : "Cached permutation was recomputed";
+        System.out.println("  Resume test passed");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.util.IOUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Fixtures shared by the reorder tests: a temporary directory that is removed afterwards, and
+ * identity and shuffled permutations.
+ */
+final class ReorderTestUtil {
+
+    private ReorderTestUtil() {}
+
+    /**
+     * Body of a test that writes its files under a temporary directory.
+     */
+    @FunctionalInterface
+    interface TempDirTest {
+        void run(Path tempDir) throws Exception;
+    }
+
+    /**
+     * Run {@code test} in a new temporary directory named after {@code prefix} and delete the
+     * directory afterwards, whether or not the test passed.
+     */
+    static void withTempDir(String prefix, TempDirTest test) throws Exception {
+        Path tempDir = Files.createTempDirectory(prefix);
+        try {
+            test.run(tempDir);
+        } finally {
+            IOUtils.rm(tempDir);
+        }
+    }
+
+    static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * Uniformly random permutation of {@code 0..n-1} (Fisher-Yates).
+     */
+    static int[] shuffled(int n, Random random) {
+        int[] order = identity(n);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    static int[] shuffled(int n, long seed) {
+        return shuffled(n, new Random(seed));
+    }
+}
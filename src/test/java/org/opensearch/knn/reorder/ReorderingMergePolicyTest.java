@@ -0,0 +1,158 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.KnnVectorValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.misc.index.BpVectorReorderer;
+import org.apache.lucene.misc.index.IndexReorderer;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test that merges above the threshold are reordered without breaking the doc/vector/stored-field
+ * association, and that small natural merges are left alone.
+ */
+public class ReorderingMergePolicyTest {
+
+    static final int NUM_DOCS = 6000;
+    private static final int DIM = 8;
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("reordering-merge-policy-test", tempDir -> {
+            float[][] vectors = randomVectors();
+            testForceMerge(tempDir.resolve("bp"), vectors, new BpVectorReorderer("vec"), VectorSimilarityFunction.EUCLIDEAN);
+            testForceMerge(tempDir.resolve("kmeans"), vectors, new KMeansIndexReorderer("vec"), VectorSimilarityFunction.COSINE);
+            testNaturalMergeThreshold(tempDir.resolve("threshold"), vectors);
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testForceMerge(Path path, float[][] vectors, IndexReorderer reorderer,
+                                       VectorSimilarityFunction similarity) throws IOException {
+        System.out.println("Testing force merge with " + reorderer.getClass().getSimpleName() + "...");
+        ReorderingMergePolicy policy = new ReorderingMergePolicy(new LogDocMergePolicy(), reorderer);
+        policy.setThreadBudget(2);
+        try (Directory dir = FSDirectory.open(path)) {
+            try (IndexWriter writer = new IndexWriter(dir, config(policy))) {
+                index(writer, vectors, similarity);
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assert reader.leaves().size() == 1 : "Expected one segment";
+                LeafReader leaf = reader.leaves().get(0).reader();
+                assert "true".equals(diagnostic(leaf)) : "Forced merge was not reordered";
+                int moved = verify(leaf, vectors);
+                assert moved > NUM_DOCS / 2 : "Only " + moved + " docs moved";
+            }
+        }
+        System.out.println("  Passed");
+    }
+
+    private static void testNaturalMergeThreshold(Path path, float[][] vectors) throws IOException {
+        System.out.println("Testing natural merge threshold...");
+        LogDocMergePolicy in = new LogDocMergePolicy();
+        in.setMergeFactor(2);
+        ReorderingMergePolicy policy = new ReorderingMergePolicy(in, new BpVectorReorderer("vec"));
+        policy.setMinNaturalMergeNumDocs(NUM_DOCS + 1);
+        try (Directory dir = FSDirectory.open(path)) {
+            try (IndexWriter writer = new IndexWriter(dir, config(policy))) {
+                index(writer, vectors, VectorSimilarityFunction.EUCLIDEAN);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                boolean merged = false;
+                for (var ctx : reader.leaves()) {
+                    String diagnostic = diagnostic(ctx.reader());
+                    merged |= diagnostic != null;
+                    assert diagnostic == null || diagnostic.equals("false") : "Small natural merge was reordered";
+                    verify(ctx.reader(), vectors);
+                }
+                assert merged : "No natural merge happened";
+            }
+        }
+        System.out.println("  Passed");
+    }
+
+    private static IndexWriterConfig config(ReorderingMergePolicy policy) {
+        return new IndexWriterConfig().setMaxBufferedDocs(1000).setMergePolicy(policy);
+    }
+
+    static void index(IndexWriter writer, float[][] vectors, VectorSimilarityFunction similarity)
+            throws IOException {
+        for (int i = 0; i < NUM_DOCS; i++) {
+            Document doc = new Document();
+            doc.add(new StoredField("id", i));
+            doc.add(new NumericDocValuesField("id", i));
+            // Every tenth doc has no vector, so the sparse path is covered
+            if (i % 10 != 0) {
+                doc.add(new KnnFloatVectorField("vec", vectors[i], similarity));
+            }
+            writer.addDocument(doc);
+        }
+    }
+
+    /**
+     * Check every doc still has its own stored field, doc value and vector.
+     *
+     * @return number of docs whose position changed
+     */
+    static int verify(LeafReader leaf, float[][] vectors) throws IOException {
+        StoredFields storedFields = leaf.storedFields();
+        NumericDocValues docValues = leaf.getNumericDocValues("id");
+        FloatVectorValues vectorValues = leaf.getFloatVectorValues("vec");
+        KnnVectorValues.DocIndexIterator it = vectorValues.iterator();
+        int moved = 0;
+        for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+            int id = storedFields.document(doc).getField("id").numericValue().intValue();
+            assert docValues.advanceExact(doc) && docValues.longValue() == id : "Doc values out of sync at " + doc;
+            if (it.docID() < doc) {
+                it.advance(doc);
+            }
+            boolean hasVector = it.docID() == doc;
+            assert hasVector == (id % 10 != 0) : "Vector presence changed for id " + id;
+            assert !hasVector || Arrays.equals(vectorValues.vectorValue(it.index()), vectors[id])
+                : "Wrong vector for id " + id;
+            if (doc != id) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static String diagnostic(LeafReader leaf) {
+        return ((SegmentReader) leaf).getSegmentInfo().info.getDiagnostics()
+            .get(ReorderingMergePolicy.REORDERED_DIAGNOSTIC);
+    }
+
+    static float[][] randomVectors() {
+        Random random = new Random(3);
+        float[][] vectors = new float[NUM_DOCS][DIM];
+        for (float[] v : vectors) {
+            for (int j = 0; j < DIM; j++) {
+                v[j] = random.nextFloat() + 0.1f;
+            }
+        }
+        return vectors;
+    }
+}
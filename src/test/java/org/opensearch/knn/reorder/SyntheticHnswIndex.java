@@ -0,0 +1,195 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Single-level L2 HNSW .faiss file over a synthetic segment, written in Java so that tests of the
+ * locality tools run without the native library. Vectors are stored in k-means cluster order, so
+ * the identity order of the file is the local one.
+ */
+final class SyntheticHnswIndex {
+
+    private static final int NEAREST = 6;
+
+    private SyntheticHnswIndex() {}
+
+    /**
+     * Generate a segment, sort its vectors by k-means cluster and index them in that order.
+     */
+    static Path writeClustered(Path tempDir, int numVectors, int dimension) throws IOException {
+        SyntheticSegmentGenerator.Options options = new SyntheticSegmentGenerator.Options(numVectors, dimension, 20,
+            SyntheticSegmentGenerator.Distribution.GAUSSIAN, 1.0, SpaceType.L2, 42L, false, 16, 100, 100,
+            SyntheticSegmentGenerator.DEFAULT_BATCH_SIZE);
+        SyntheticSegmentGenerator.Segment segment = SyntheticSegmentGenerator.generate(tempDir.toString(), "_0", options);
+        float[][] generated = VecFileIO.loadVectors(segment.vecPath());
+        int[] clusterOrder = LocalityAnalyzer.computeOrder("kmeans", knnGraph(generated),
+            FloatVectorValues.fromFloats(Arrays.asList(generated), dimension), SpaceType.L2);
+        float[][] vectors = new float[numVectors][];
+        for (int i = 0; i < numVectors; i++) {
+            vectors[i] = generated[clusterOrder[i]];
+        }
+        Path faiss = tempDir.resolve("_0_165_vectors.faiss");
+        write(faiss, vectors, neighborLists(vectors));
+        return faiss;
+    }
+
+    /**
+     * Nearest neighbors of every vector plus a ring over ordinals, made symmetric so that every node
+     * is reachable from the entry point.
+     */
+    private static int[][] neighborLists(float[][] vectors) {
+        int n = vectors.length;
+        List<TreeSet<Integer>> sets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            sets.add(new TreeSet<>());
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j : nearest(vectors, i)) {
+                sets.get(i).add(j);
+                sets.get(j).add(i);
+            }
+            int next = (i + 1) % n;
+            sets.get(i).add(next);
+            sets.get(next).add(i);
+        }
+        int[][] lists = new int[n][];
+        for (int i = 0; i < n; i++) {
+            lists[i] = sets.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return lists;
+    }
+
+    private static int[] nearest(float[][] vectors, int node) {
+        int n = vectors.length;
+        Integer[] others = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            others[i] = i;
+        }
+        float[] distances = new float[n];
+        for (int i = 0; i < n; i++) {
+            distances[i] = LocalityAnalyzer.distance(vectors[i], vectors[node], SpaceType.L2);
+        }
+        Arrays.sort(others, (a, b) -> Float.compare(distances[a], distances[b]));
+        int count = Math.min(NEAREST, n - 1);
+        int[] result = new int[count];
+        int filled = 0;
+        for (int i = 0; filled < count; i++) {
+            if (others[i] != node) {
+                result[filled++] = others[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The graph {@link #writeClustered} would index, for vectors already in memory.
+     */
+    static FaissHnswGraph knnGraph(float[][] vectors) {
+        int n = vectors.length;
+        int[][] lists = neighborLists(vectors);
+        int[] outStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] = outStart[i] + lists[i].length;
+        }
+        int[] outNeighbors = new int[outStart[n]];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lists[i], 0, outNeighbors, outStart[i], lists[i].length);
+        }
+        return new FaissHnswGraph(n, 0, outStart, outNeighbors);
+    }
+
+    /**
+     * Write an IxMp/IHNf/IxF2 L2 index with one level whose lists are padded with -1 to the
+     * longest one.
+     */
+    private static void write(Path path, float[][] vectors, int[][] neighbors) throws IOException {
+        int n = vectors.length;
+        int dimension = vectors[0].length;
+        int slots = Arrays.stream(neighbors).mapToInt(list -> list.length).max().orElse(0);
+        slots += slots % 2;
+        try (FSDirectory dir = FSDirectory.open(path.getParent());
+             IndexOutput out = dir.createOutput(path.getFileName().toString(), IOContext.DEFAULT)) {
+            writeHeader(out, "IxMp", n, dimension);
+            writeHeader(out, "IHNf", n, dimension);
+            out.writeLong(0); // assign_probas
+            out.writeLong(2);
+            out.writeInt(0);
+            out.writeInt(slots);
+            out.writeLong(n);
+            for (int i = 0; i < n; i++) {
+                out.writeInt(1); // level 0 only
+            }
+            out.writeLong(n + 1);
+            for (int i = 0; i <= n; i++) {
+                out.writeLong((long) i * slots);
+            }
+            out.writeLong((long) n * slots);
+            for (int[] list : neighbors) {
+                for (int j = 0; j < slots; j++) {
+                    out.writeInt(j < list.length ? list[j] : -1);
+                }
+            }
+            out.writeInt(0); // entry point
+            out.writeInt(0); // max_level
+            out.writeInt(100); // efConstruction
+            out.writeInt(100); // efSearch
+            out.writeInt(0); // upper_beam
+            writeHeader(out, "IxF2", n, dimension);
+            out.writeLong((long) n * dimension);
+            for (float[] vector : vectors) {
+                for (float value : vector) {
+                    out.writeInt(Float.floatToIntBits(value));
+                }
+            }
+            out.writeLong(n);
+            for (int i = 0; i < n; i++) {
+                out.writeLong(i);
+            }
+            CodecUtil.writeFooter(out);
+        }
+    }
+
+    private static void writeHeader(IndexOutput out, String type, int n, int dimension) throws IOException {
+        out.writeBytes(type.getBytes(StandardCharsets.US_ASCII), 4);
+        out.writeInt(dimension);
+        out.writeLong(n);
+        out.writeLong(1 << 20);
+        out.writeLong(1 << 20);
+        out.writeByte((byte) 1); // is_trained
+        out.writeInt(1); // metric_type: L2
+    }
+
+    /**
+     * Dataset vectors of {@code index} with small Gaussian noise.
+     */
+    static float[][] queries(HnswSearchSimulator.Index index, int count) throws IOException {
+        Random random = new Random(11);
+        float[][] queries = new float[count][];
+        for (int q = 0; q < count; q++) {
+            float[] query = index.vectors.vectorValue(random.nextInt(index.size())).clone();
+            for (int j = 0; j < query.length; j++) {
+                query[j] += (float) random.nextGaussian() * 0.01f;
+            }
+            queries[q] = query;
+        }
+        return queries;
+    }
+}
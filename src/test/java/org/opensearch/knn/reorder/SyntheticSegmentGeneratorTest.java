@@ -0,0 +1,136 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.lucene95.OrdToDocDISIReaderConfiguration;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.packed.DirectMonotonicReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Test that generated segments read back through VecFileIO and Lucene's own metadata readers.
+ */
+public class SyntheticSegmentGeneratorTest {
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("synthetic-segment-test", tempDir -> {
+            testDenseReadBack(tempDir);
+            testBatchSizeIndependence(tempDir);
+            testSparseOrdToDoc(tempDir);
+            testSiftValues(tempDir);
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testDenseReadBack(Path tempDir) throws IOException {
+        System.out.println("Testing dense segment...");
+        SyntheticSegmentGenerator.Options options = SyntheticSegmentGenerator.Options.of(5000, 16);
+        SyntheticSegmentGenerator.Segment segment = SyntheticSegmentGenerator.generate(tempDir.toString(), "_d", options);
+        checksum(segment.vecPath());
+        checksum(segment.vemfPath());
+
+        VemfFileIO.VemfMeta meta = VemfFileIO.readMetadata(segment.vemfPath());
+        assert meta.isDense() : "Expected dense metadata";
+        assert meta.size() == 5000 && meta.dimension() == 16 : "Unexpected metadata " + meta;
+        float[][] vectors = VecFileIO.loadVectors(segment.vecPath());
+        assert vectors.length == 5000 && vectors[0].length == 16 : "Unexpected vector count or dimension";
+        assert segment.faissPath() == null : "No .faiss requested";
+        System.out.println("  Dense test passed");
+    }
+
+    private static void testBatchSizeIndependence(Path tempDir) throws IOException {
+        System.out.println("Testing batch size independence...");
+        SyntheticSegmentGenerator.Options small = withBatchSize(SyntheticSegmentGenerator.Options.of(10_000, 8), 1024);
+        SyntheticSegmentGenerator.Options large = withBatchSize(SyntheticSegmentGenerator.Options.of(10_000, 8), 8192);
+        float[][] a = VecFileIO.loadVectors(SyntheticSegmentGenerator.generate(tempDir.toString(), "_a", small).vecPath());
+        float[][] b = VecFileIO.loadVectors(SyntheticSegmentGenerator.generate(tempDir.toString(), "_b", large).vecPath());
+        for (int i = 0; i < a.length; i++) {
+            assert Arrays.equals(a[i], b[i]) : "Vector " + i + " differs between batch sizes";
+        }
+        System.out.println("  Batch size test passed");
+    }
+
+    private static void testSparseOrdToDoc(Path tempDir) throws IOException {
+        System.out.println("Testing sparse segment...");
+        SyntheticSegmentGenerator.Options base = SyntheticSegmentGenerator.Options.of(3000, 8);
+        SyntheticSegmentGenerator.Options options = new SyntheticSegmentGenerator.Options(base.numVectors(),
+            base.dimension(), base.numClusters(), base.distribution(), 0.25, SpaceType.COSINESIMIL, base.seed(),
+            false, base.m(), base.efConstruction(), base.efSearch(), base.batchSize());
+        SyntheticSegmentGenerator.Segment segment = SyntheticSegmentGenerator.generate(tempDir.toString(), "_s", options);
+        assert segment.maxDoc() == 12_000 : "Unexpected maxDoc " + segment.maxDoc();
+        checksum(segment.vecPath());
+        checksum(segment.vemfPath());
+
+        VemfFileIO.VemfMeta vemf = VemfFileIO.readMetadata(segment.vemfPath());
+        assert !vemf.isDense() && !vemf.isEmpty() : "Expected sparse metadata";
+        assert vemf.similarityFunction() == SpaceType.COSINESIMIL.getSimilarityFunction().ordinal() : "Wrong similarity";
+
+        Path vemfPath = Paths.get(segment.vemfPath());
+        Path vecPath = Paths.get(segment.vecPath());
+        try (FSDirectory dir = FSDirectory.open(vemfPath.getParent());
+             IndexInput meta = dir.openInput(vemfPath.getFileName().toString(), IOContext.READONCE);
+             IndexInput data = dir.openInput(vecPath.getFileName().toString(), IOContext.DEFAULT)) {
+            CodecUtil.checkIndexHeader(meta, "Lucene99FlatVectorsFormatMeta", 0, 0, vemf.segmentId(),
+                vemf.segmentSuffix());
+            meta.readInt();   // fieldNumber
+            meta.readInt();   // vectorEncoding
+            meta.readInt();   // similarityFunction
+            meta.readVLong(); // vectorDataOffset
+            meta.readVLong(); // vectorDataLength
+            meta.readVInt();  // dimension
+            int size = meta.readInt();
+            OrdToDocDISIReaderConfiguration config = OrdToDocDISIReaderConfiguration.fromStoredMeta(meta, size);
+            assert meta.readInt() == -1 : "Missing end marker";
+
+            DirectMonotonicReader ordToDoc = config.getDirectMonotonicReader(data);
+            long previous = -1;
+            for (int ord = 0; ord < size; ord++) {
+                long doc = ordToDoc.get(ord);
+                assert doc > previous && doc < segment.maxDoc() : "Invalid doc " + doc + " for ord " + ord;
+                previous = doc;
+            }
+        }
+        System.out.println("  Sparse test passed");
+    }
+
+    private static void testSiftValues(Path tempDir) throws IOException {
+        System.out.println("Testing SIFT-like distribution...");
+        SyntheticSegmentGenerator.Options base = SyntheticSegmentGenerator.Options.of(2000, 128);
+        SyntheticSegmentGenerator.Options options = new SyntheticSegmentGenerator.Options(base.numVectors(),
+            base.dimension(), base.numClusters(), SyntheticSegmentGenerator.Distribution.SIFT, 1.0, SpaceType.L2,
+            base.seed(), false, base.m(), base.efConstruction(), base.efSearch(), base.batchSize());
+        float[][] vectors = VecFileIO.loadVectors(SyntheticSegmentGenerator.generate(tempDir.toString(), "_f", options).vecPath());
+        int zeros = 0;
+        for (float[] v : vectors) {
+            for (float x : v) {
+                assert x >= 0 && x <= 255 && x == Math.rint(x) : "Not a SIFT-like component: " + x;
+                if (x == 0) zeros++;
+            }
+        }
+        assert zeros > 0 : "Expected some zero components";
+        System.out.println("  SIFT test passed");
+    }
+
+    private static SyntheticSegmentGenerator.Options withBatchSize(SyntheticSegmentGenerator.Options o, int batchSize) {
+        return new SyntheticSegmentGenerator.Options(o.numVectors(), o.dimension(), o.numClusters(), o.distribution(),
+            o.density(), o.spaceType(), o.seed(), o.writeFaiss(), o.m(), o.efConstruction(), o.efSearch(), batchSize);
+    }
+
+    private static void checksum(String file) throws IOException {
+        Path path = Paths.get(file);
+        try (FSDirectory dir = FSDirectory.open(path.getParent());
+             IndexInput input = dir.openInput(path.getFileName().toString(), IOContext.READONCE)) {
+            CodecUtil.checksumEntireFile(input);
+        }
+    }
+}
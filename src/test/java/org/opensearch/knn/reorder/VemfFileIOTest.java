@@ -0,0 +1,146 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.lucene95.OrdToDocDISIReaderConfiguration;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.packed.DirectMonotonicReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Test that reordered .vemf/.vord files map every doc to its original vector, for dense and sparse
+ * fields and both .vord encodings, that both reordered .vec writers produce the same valid file, and
+ * that a .vec loaded in parallel ranges matches a single-threaded load.
+ */
+public class VemfFileIOTest {
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("vemf-file-io-test", tempDir -> {
+            for (VordReader.Encoding encoding : VordReader.Encoding.values()) {
+                testReorder(tempDir, 1.0, encoding);
+                testReorder(tempDir, 0.3, encoding);
+            }
+            testParallelLoad(tempDir);
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testReorder(Path tempDir, double density, VordReader.Encoding encoding) throws IOException {
+        System.out.println("Testing density=" + density + ", encoding=" + encoding + "...");
+        String segName = "_" + (density == 1.0 ? "d" : "s") + encoding.ordinal();
+        SyntheticSegmentGenerator.Options base = SyntheticSegmentGenerator.Options.of(3000, 8);
+        SyntheticSegmentGenerator.Options options = new SyntheticSegmentGenerator.Options(base.numVectors(),
+            base.dimension(), base.numClusters(), base.distribution(), density, base.spaceType(), base.seed(), false,
+            base.m(), base.efConstruction(), base.efSearch(), base.batchSize());
+        SyntheticSegmentGenerator.Segment segment = SyntheticSegmentGenerator.generate(tempDir.toString(), segName, options);
+
+        float[][] vectors = VecFileIO.loadVectors(segment.vecPath());
+        int[] srcOrdToDoc = readOrdToDoc(segment.vemfPath(), segment.vecPath(), vectors.length);
+        int[] newOrder = ReorderTestUtil.shuffled(vectors.length, 7);
+
+        String outputVec = segment.vecPath().replace(".vec", "_reordered.vec");
+        String outputVemf = outputVec.replace(".vec", ".vemf");
+        VecFileIO.writeReordered(segment.vecPath(), outputVec, newOrder);
+        VemfFileIO.writeReordered(segment.vemfPath(), outputVemf, outputVec, newOrder, encoding);
+
+        // Writing from the heap must give the same bytes, header and sparse trailer included
+        String fromArrayVec = segment.vecPath().replace(".vec", "_from_array.vec");
+        VecFileIO.writeReorderedFromArray(segment.vecPath(), vectors, newOrder, fromArrayVec);
+        assert Arrays.equals(Files.readAllBytes(Paths.get(fromArrayVec)), Files.readAllBytes(Paths.get(outputVec)))
+            : "Array and file copies differ";
+        checkVecFile(outputVec, VemfFileIO.readMetadata(segment.vemfPath()));
+
+        VemfFileIO.VemfMeta meta = VemfFileIO.readMetadata(outputVemf);
+        assert meta.isDense() == (density == 1.0) : "Unexpected density in " + meta;
+        // Sparse metadata must still describe valid docsWithField/ordToDoc data in the new .vec
+        int[] dstOrdToDoc = readOrdToDoc(outputVemf, outputVec, vectors.length);
+        assert Arrays.equals(dstOrdToDoc, srcOrdToDoc) : "docsWithField changed";
+
+        float[][] reordered = VecFileIO.loadVectors(outputVec);
+        try (VordReader vord = VordReader.open(outputVemf.replace(".vemf", ".vord"))) {
+            vord.checkIntegrity();
+            assert vord.size() == vectors.length : "Wrong vector count";
+            int next = 0;
+            for (int doc = 0; doc < segment.maxDoc(); doc++) {
+                int ord = vord.docToOrd(doc);
+                if (next < srcOrdToDoc.length && srcOrdToDoc[next] == doc) {
+                    assert Arrays.equals(reordered[ord], vectors[next]) : "Doc " + doc + " maps to the wrong vector";
+                    assert vord.ordToDoc(ord) == doc : "ordToDoc(" + ord + ") != " + doc;
+                    next++;
+                } else {
+                    assert ord == -1 : "Doc " + doc + " has no vector but maps to " + ord;
+                }
+            }
+            assert next == vectors.length : "Not every vector was reached";
+        }
+        System.out.println("  Passed");
+    }
+
+    private static void testParallelLoad(Path tempDir) throws IOException {
+        System.out.println("Testing parallel load...");
+        int dim = 8;
+        // Enough data for several ranges, with a vector count that does not split evenly
+        int n = (int) (5 * VecFileIO.MIN_RANGE_BYTES / (dim * Float.BYTES)) + 7;
+        SyntheticSegmentGenerator.Segment segment = SyntheticSegmentGenerator.generate(tempDir.toString(), "_p",
+            SyntheticSegmentGenerator.Options.of(n, dim));
+        float[][] expected = VecFileIO.loadVectors(segment.vecPath(), 1);
+        for (int threads : new int[] {2, 3, 8}) {
+            assert Arrays.deepEquals(VecFileIO.loadVectors(segment.vecPath(), threads), expected)
+                : "Parallel load with " + threads + " threads differs";
+        }
+        System.out.println("  Passed");
+    }
+
+    /**
+     * Check the reordered .vec keeps the source segment ID and suffix and has a valid checksum.
+     */
+    private static void checkVecFile(String vecPath, VemfFileIO.VemfMeta source) throws IOException {
+        Path path = Paths.get(vecPath);
+        try (FSDirectory dir = FSDirectory.open(path.getParent());
+             IndexInput in = dir.openInput(path.getFileName().toString(), IOContext.READONCE)) {
+            CodecUtil.checkIndexHeader(in, "Lucene99FlatVectorsFormatData", 0, 0, source.segmentId(),
+                source.segmentSuffix());
+            CodecUtil.checksumEntireFile(in);
+        }
+    }
+
+    private static int[] readOrdToDoc(String vemfPath, String vecPath, int size) throws IOException {
+        VemfFileIO.VemfMeta vemf = VemfFileIO.readMetadata(vemfPath);
+        int[] ordToDoc = new int[size];
+        if (vemf.isDense()) {
+            Arrays.setAll(ordToDoc, i -> i);
+            return ordToDoc;
+        }
+        Path path = Paths.get(vemfPath);
+        try (FSDirectory dir = FSDirectory.open(path.getParent());
+             IndexInput meta = dir.openInput(path.getFileName().toString(), IOContext.READONCE);
+             IndexInput data = dir.openInput(Paths.get(vecPath).getFileName().toString(), IOContext.DEFAULT)) {
+            CodecUtil.checkIndexHeader(meta, "Lucene99FlatVectorsFormatMeta", 0, 0, vemf.segmentId(),
+                vemf.segmentSuffix());
+            meta.readInt();
+            meta.readInt();
+            meta.readInt();
+            meta.readVLong();
+            meta.readVLong();
+            meta.readVInt();
+            OrdToDocDISIReaderConfiguration config = OrdToDocDISIReaderConfiguration.fromStoredMeta(meta, meta.readInt());
+            assert meta.readInt() == -1 : "Missing end marker";
+            DirectMonotonicReader reader = config.getDirectMonotonicReader(data);
+            for (int ord = 0; ord < size; ord++) {
+                ordToDoc[ord] = (int) reader.get(ord);
+            }
+        }
+        return ordToDoc;
+    }
+}
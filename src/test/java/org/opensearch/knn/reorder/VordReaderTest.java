@@ -0,0 +1,122 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.knn.reorder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.packed.DirectWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Test that {@link VordReader} reads the v0 and v1 .vord layouts written before ordToDoc was
+ * stored, for both encodings, and rejects an unknown encoding byte.
+ */
+public class VordReaderTest {
+
+    private static final int COUNT = 1000;
+
+    public static void main(String[] args) throws Exception {
+        ReorderTestUtil.withTempDir("vord-reader-test", tempDir -> {
+            int[] docToOrd = ReorderTestUtil.shuffled(COUNT, 3);
+            testV0(tempDir, docToOrd);
+            for (VordReader.Encoding encoding : VordReader.Encoding.values()) {
+                testV1(tempDir, docToOrd, encoding);
+            }
+            testUnknownEncoding(tempDir);
+            System.out.println("\nAll tests passed!");
+        });
+    }
+
+    private static void testV0(Path tempDir, int[] docToOrd) throws IOException {
+        System.out.println("Testing v0...");
+        Path path = tempDir.resolve("_v0.vord");
+        try (FSDirectory dir = FSDirectory.open(tempDir);
+             IndexOutput out = dir.createOutput(path.getFileName().toString(), IOContext.DEFAULT)) {
+            CodecUtil.writeIndexHeader(out, VordReader.CODEC_NAME, VordReader.VERSION_START,
+                StringHelper.randomId(), "");
+            out.writeInt(docToOrd.length);
+            for (int ord : docToOrd) {
+                out.writeInt(ord);
+            }
+            CodecUtil.writeFooter(out);
+        }
+        assertReads(path, VordReader.VERSION_START, VordReader.Encoding.INT32, docToOrd);
+        System.out.println("  Passed");
+    }
+
+    private static void testV1(Path tempDir, int[] docToOrd, VordReader.Encoding encoding) throws IOException {
+        System.out.println("Testing v1, encoding=" + encoding + "...");
+        Path path = tempDir.resolve("_v1_" + encoding + ".vord");
+        boolean packed = encoding == VordReader.Encoding.PACKED;
+        int bits = packed ? DirectWriter.unsignedBitsRequired(docToOrd.length - 1) : Integer.SIZE;
+        try (FSDirectory dir = FSDirectory.open(tempDir);
+             IndexOutput out = dir.createOutput(path.getFileName().toString(), IOContext.DEFAULT)) {
+            writeV1Header(out, docToOrd.length, (byte) encoding.ordinal(), bits);
+            if (packed) {
+                DirectWriter writer = DirectWriter.getInstance(out, docToOrd.length, bits);
+                for (int ord : docToOrd) {
+                    writer.add(ord);
+                }
+                writer.finish();
+            } else {
+                for (int ord : docToOrd) {
+                    out.writeInt(ord);
+                }
+            }
+            CodecUtil.writeFooter(out);
+        }
+        assertReads(path, VordReader.VERSION_ALIGNED, encoding, docToOrd);
+        System.out.println("  Passed");
+    }
+
+    private static void testUnknownEncoding(Path tempDir) throws IOException {
+        System.out.println("Testing an unknown encoding byte...");
+        Path path = tempDir.resolve("_bad.vord");
+        try (FSDirectory dir = FSDirectory.open(tempDir);
+             IndexOutput out = dir.createOutput(path.getFileName().toString(), IOContext.DEFAULT)) {
+            writeV1Header(out, 0, (byte) VordReader.Encoding.values().length, Integer.SIZE);
+            CodecUtil.writeFooter(out);
+        }
+        try {
+            VordReader.open(path.toString()).close();
+            throw new AssertionError("Opened a .vord with an unknown encoding");
+        } catch (CorruptIndexException e) {
+            assert e.getMessage().contains("Unknown .vord encoding") : e.getMessage();
+        }
+        System.out.println("  Passed");
+    }
+
+    private static void writeV1Header(IndexOutput out, int count, byte encoding, int bits) throws IOException {
+        CodecUtil.writeIndexHeader(out, VordReader.CODEC_NAME, VordReader.VERSION_ALIGNED, StringHelper.randomId(), "");
+        out.writeInt(count);
+        out.writeByte(encoding);
+        out.writeByte((byte) bits);
+        out.alignFilePointer(VordReader.PAYLOAD_ALIGNMENT);
+    }
+
+    private static void assertReads(Path path, int version, VordReader.Encoding encoding, int[] docToOrd)
+        throws IOException {
+        try (VordReader vord = VordReader.open(path.toString())) {
+            vord.checkIntegrity();
+            assert vord.version() == version : "Wrong version " + vord.version();
+            assert vord.encoding() == encoding : "Wrong encoding " + vord.encoding();
+            assert vord.size() == docToOrd.length && vord.docBound() == docToOrd.length : "Wrong count";
+            assert !vord.hasOrdToDoc() : "v" + version + " has no ordToDoc mapping";
+            for (int doc = 0; doc < docToOrd.length; doc++) {
+                assert vord.docToOrd(doc) == docToOrd[doc] : "docToOrd(" + doc + ") = " + vord.docToOrd(doc);
+            }
+            assert vord.docToOrd(docToOrd.length) == -1 : "Doc past the bound has an ordinal";
+            assert Arrays.equals(vord.toArray(), docToOrd) : "toArray() differs from docToOrd";
+        }
+    }
+}